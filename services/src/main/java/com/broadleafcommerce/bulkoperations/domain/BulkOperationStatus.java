@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.domain;
+
+import com.broadleafcommerce.bulkoperations.domain.types.BulkOperationSubstatusType;
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.io.Serializable;
+
+import lombok.Data;
+
+/**
+ * The status of a bulk operation as reported by catalog. Only the fields needed to determine
+ * whether the bulk operation is still running are read.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkOperationStatus implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The ID of the bulk operation.
+     */
+    private String id;
+
+    /**
+     * The status of the bulk operation.
+     */
+    private String status;
+
+    /**
+     * The {@link BulkOperationSubstatusType} of the bulk operation.
+     */
+    @JsonAlias({"subStatus", "substatus"})
+    private String substatus;
+
+    public boolean isCanceled() {
+        return BulkOperationSubstatusType.isCanceled(substatus);
+    }
+}
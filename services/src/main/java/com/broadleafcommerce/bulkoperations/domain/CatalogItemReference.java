@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.domain;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * A compact {@link CatalogItem} holding only the ID, for when nothing else about the item is
+ * needed, such as when initializing the items of a bulk operation. The additional attributes are
+ * only allocated if one is added.
+ */
+@EqualsAndHashCode
+@ToString
+public class CatalogItemReference implements CatalogItem {
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+
+    private Map<String, Object> additionalAttributes;
+
+    public CatalogItemReference(String id) {
+        this.id = id;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public Map<String, Object> getAdditionalAttributes() {
+        if (additionalAttributes == null) {
+            additionalAttributes = new HashMap<>();
+        }
+        return additionalAttributes;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import lombok.Data;
+
+/**
+ * A snapshot of how far the initialization of a bulk operation's items has progressed, used to
+ * resume the initialization where it left off if the initialize items request is redelivered.
+ */
+@Data
+public class InitializeItemsCheckpoint implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The ID of the bulk operation whose items are being initialized.
+     */
+    private String bulkOperationId;
+
+    /**
+     * The offset of the first search result that has not been initialized yet.
+     */
+    private long nextOffset;
+
+    /**
+     * The batch size the search results were being paged through with.
+     */
+    private int batchSize;
+
+    /**
+     * The cursor to search the page at {@link #getNextOffset()} with, if the search results are
+     * paged by cursor.
+     */
+    private String cursor;
+
+    /**
+     * The number of bulk operation items initialized for the search results before
+     * {@link #getNextOffset()}.
+     */
+    private long totalItemRecords;
+
+    /**
+     * When the checkpoint was last updated.
+     */
+    private Instant lastUpdated;
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.domain;
+
+import java.io.Serializable;
+
+import lombok.Data;
+
+/**
+ * A range of search result pages whose items are initialized by a single initialize items
+ * message, so that the initialization of a large bulk operation can be spread across the cluster.
+ */
+@Data
+public class InitializeItemsShard implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The ID of the bulk operation whose items are being initialized.
+     */
+    private String bulkOperationId;
+
+    /**
+     * The position of this shard amongst the shards of the bulk operation, starting at 0.
+     */
+    private int shardIndex;
+
+    /**
+     * The total number of shards the bulk operation was split into.
+     */
+    private int shardCount;
+
+    /**
+     * The number of the first page of search results in this shard.
+     */
+    private int firstPage;
+
+    /**
+     * The number of the page following the last page in this shard. The last shard keeps
+     * initializing past this page while the pages are full, to pick up results added after the
+     * shards were computed.
+     */
+    private int endPage;
+
+    /**
+     * The batch size the search results are paged through with.
+     */
+    private int batchSize;
+
+    /**
+     * The number of bulk operation items initialized by this shard, once it has completed.
+     */
+    private long itemCount;
+
+    /**
+     * Whether the items of this shard have been initialized.
+     */
+    private boolean completed;
+
+    public boolean isLastShard() {
+        return shardIndex == shardCount - 1;
+    }
+}
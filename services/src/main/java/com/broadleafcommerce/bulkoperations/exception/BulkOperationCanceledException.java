@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.exception;
+
+import com.broadleafcommerce.bulkoperations.domain.types.BulkOperationSubstatusType;
+
+import lombok.Getter;
+
+/**
+ * Thrown to stop the item initialization of a bulk operation that has been
+ * {@link BulkOperationSubstatusType#CANCELED canceled}.
+ */
+public class BulkOperationCanceledException extends RuntimeException {
+
+    /**
+     * The ID of the canceled bulk operation.
+     *
+     * @return The ID of the canceled bulk operation.
+     */
+    @Getter
+    private final String bulkOperationId;
+
+    public BulkOperationCanceledException(String bulkOperationId) {
+        super("Bulk operation " + bulkOperationId + " has been canceled");
+        this.bulkOperationId = bulkOperationId;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown instead of making a request to a provider endpoint whose circuit is open because it
+ * has been failing.
+ */
+public class ProviderCircuitOpenException extends RuntimeException {
+
+    /**
+     * The key of the failing endpoint.
+     *
+     * @return The key of the failing endpoint.
+     */
+    @Getter
+    private final String endpoint;
+
+    public ProviderCircuitOpenException(String endpoint) {
+        super("Circuit for provider endpoint " + endpoint + " is open");
+        this.endpoint = endpoint;
+    }
+}
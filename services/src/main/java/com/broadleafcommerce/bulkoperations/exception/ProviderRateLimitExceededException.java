@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a request to a provider service would have to wait longer than allowed for the
+ * rate limit of the tenant making it.
+ */
+public class ProviderRateLimitExceededException extends RuntimeException {
+
+    /**
+     * The name of the rate limited service.
+     *
+     * @return The name of the rate limited service.
+     */
+    @Getter
+    private final String service;
+
+    /**
+     * The tenant whose rate limit was exceeded.
+     *
+     * @return The tenant whose rate limit was exceeded.
+     */
+    @Getter
+    private final String tenantId;
+
+    public ProviderRateLimitExceededException(String service, String tenantId) {
+        super("Rate limit for service " + service + " exceeded by tenant " + tenantId);
+        this.service = service;
+        this.tenantId = tenantId;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.messaging;
+
+import com.broadleafcommerce.bulkoperations.messaging.InitializeBulkOperationItemsProperties.AdaptiveBatchSize;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Chooses the batch size of the next page of a bulk operation based on how long the search and
+ * initialize requests of the previous page took. The batch size grows while both requests stay
+ * well under {@link AdaptiveBatchSize#getTargetLatency()}, and shrinks when either exceeds it or a
+ * page fails, bounded by {@link AdaptiveBatchSize#getMinBatchSize()} and
+ * {@link AdaptiveBatchSize#getMaxBatchSize()}.
+ * <p>
+ * The most recently chosen batch size is exposed as the {@link #BATCH_SIZE_METRIC} gauge.
+ */
+public class AdaptiveBatchSizeController {
+
+    public static final String BATCH_SIZE_METRIC = "broadleaf.bulkoperations.initialize.batch.size";
+
+    @Getter(AccessLevel.PROTECTED)
+    private final InitializeBulkOperationItemsProperties properties;
+
+    private final AtomicInteger lastBatchSize;
+
+    public AdaptiveBatchSizeController(InitializeBulkOperationItemsProperties properties,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.lastBatchSize = new AtomicInteger(properties.getBatchSize());
+        Gauge.builder(BATCH_SIZE_METRIC, lastBatchSize, AtomicInteger::get)
+                .description("The batch size most recently used to initialize bulk operation items")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether the batch size should be adjusted at all.
+     *
+     * @return true if adaptive batch sizing is enabled
+     */
+    public boolean isEnabled() {
+        return properties.getAdaptiveBatchSize().isEnabled();
+    }
+
+    /**
+     * Chooses the batch size to use after a page completed.
+     *
+     * @param currentBatchSize the batch size of the completed page
+     * @param searchLatency how long the search request for the page took
+     * @param initializeLatency how long the initialize request for the page took
+     * @return the batch size to use for the following page
+     */
+    public int pageCompleted(int currentBatchSize,
+            Duration searchLatency,
+            Duration initializeLatency) {
+        if (!isEnabled()) {
+            return record(currentBatchSize);
+        }
+
+        Duration targetLatency = properties.getAdaptiveBatchSize().getTargetLatency();
+        Duration slowest =
+                searchLatency.compareTo(initializeLatency) >= 0 ? searchLatency : initializeLatency;
+
+        if (slowest.compareTo(targetLatency) > 0) {
+            return record(bound(currentBatchSize / 2));
+        }
+        if (slowest.compareTo(targetLatency.dividedBy(2)) < 0) {
+            return record(bound(currentBatchSize * 2));
+        }
+        return record(bound(currentBatchSize));
+    }
+
+    /**
+     * Chooses the batch size to use after a page failed.
+     *
+     * @param currentBatchSize the batch size of the failed page
+     * @return the batch size to retry the page with
+     */
+    public int pageFailed(int currentBatchSize) {
+        if (!isEnabled()) {
+            return currentBatchSize;
+        }
+
+        return record(bound(currentBatchSize / 2));
+    }
+
+    /**
+     * The smallest batch size that may be chosen.
+     *
+     * @return the minimum batch size
+     */
+    public int getMinBatchSize() {
+        return Math.max(1, properties.getAdaptiveBatchSize().getMinBatchSize());
+    }
+
+    protected int bound(int batchSize) {
+        int maxBatchSize =
+                Math.max(getMinBatchSize(), properties.getAdaptiveBatchSize().getMaxBatchSize());
+        return Math.min(maxBatchSize, Math.max(getMinBatchSize(), batchSize));
+    }
+
+    protected int record(int batchSize) {
+        lastBatchSize.set(batchSize);
+        return batchSize;
+    }
+}
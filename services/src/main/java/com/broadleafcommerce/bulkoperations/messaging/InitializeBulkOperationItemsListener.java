@@ -19,31 +19,70 @@ package com.broadleafcommerce.bulkoperations.messaging;
 import static com.broadleafcommerce.bulkoperations.service.environment.RouteConstants.Persistence.BULK_OPS_ROUTE_KEY;
 import static com.broadleafcommerce.common.messaging.service.DefaultMessageLockService.MESSAGE_IDEMPOTENCY_KEY;
 
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.cloud.stream.annotation.StreamListener;
 import org.springframework.data.domain.Pageable;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 
 import com.broadleafcommerce.bulk.v2.domain.InitializeItemResponse;
 import com.broadleafcommerce.bulk.v2.messaging.BulkOpsInitializeItemsRequest;
+import com.broadleafcommerce.bulk.v2.messaging.BulkOpsInitializeItemsRequestProducer;
 import com.broadleafcommerce.bulk.v2.messaging.BulkOpsProcessRequest;
 import com.broadleafcommerce.bulk.v2.messaging.BulkOpsProcessRequestProducer;
+import com.broadleafcommerce.bulkoperations.domain.BulkOperationStatus;
 import com.broadleafcommerce.bulkoperations.domain.CatalogItem;
+import com.broadleafcommerce.bulkoperations.domain.InitializeItemsCheckpoint;
+import com.broadleafcommerce.bulkoperations.domain.InitializeItemsShard;
 import com.broadleafcommerce.bulkoperations.domain.SearchResponse;
+import com.broadleafcommerce.bulkoperations.exception.BulkOperationCanceledException;
+import com.broadleafcommerce.bulkoperations.service.BulkOperationsMetrics;
+import com.broadleafcommerce.bulkoperations.service.InitializeItemsCheckpointService;
+import com.broadleafcommerce.bulkoperations.service.InitializeItemsShardService;
 import com.broadleafcommerce.bulkoperations.service.environment.BulkOperationsProviderProperties;
 import com.broadleafcommerce.bulkoperations.service.environment.RouteConstants;
 import com.broadleafcommerce.bulkoperations.service.provider.CatalogProvider;
+import com.broadleafcommerce.bulkoperations.service.provider.CatalogProvider.PreparedItemInitialization;
+import com.broadleafcommerce.bulkoperations.service.provider.ReactiveCatalogProvider;
+import com.broadleafcommerce.bulkoperations.service.provider.ReactiveCatalogProvider.PreparedReactiveItemInitialization;
+import com.broadleafcommerce.bulkoperations.service.provider.ReactiveSearchProvider;
+import com.broadleafcommerce.bulkoperations.service.provider.ReactiveSearchProvider.PreparedReactiveSearch;
 import com.broadleafcommerce.bulkoperations.service.provider.SearchProvider;
+import com.broadleafcommerce.bulkoperations.service.provider.SearchProvider.PreparedSearch;
 import com.broadleafcommerce.common.extension.TypeFactory;
 import com.broadleafcommerce.common.extension.data.DataRouteByKey;
 import com.broadleafcommerce.common.messaging.notification.DetachedDurableMessageSender;
 import com.broadleafcommerce.common.messaging.service.IdempotentMessageConsumptionService;
 import com.broadleafcommerce.data.tracking.core.filtering.DefaultPageRequest;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuple3;
+import reactor.util.function.Tuples;
 
 /**
  * A listener that accepts a {@link BulkOpsInitializeItemsRequest} in order to initialize bulk
@@ -54,6 +93,41 @@ import lombok.extern.slf4j.Slf4j;
 @DataRouteByKey(RouteConstants.Persistence.BULK_OPS_ROUTE_KEY)
 public class InitializeBulkOperationItemsListener<CI extends CatalogItem> {
 
+    /**
+     * Header identifying the {@link InitializeItemsShard#getShardIndex() index} of the shard an
+     * initialize items message covers. Messages without it cover the whole bulk operation.
+     */
+    public static final String SHARD_INDEX_HEADER = "bulkOpsInitializeShardIndex";
+
+    /**
+     * Header holding the {@link InitializeItemsShard#getShardCount() number of shards} of the bulk
+     * operation.
+     */
+    public static final String SHARD_COUNT_HEADER = "bulkOpsInitializeShardCount";
+
+    /**
+     * Header holding the {@link InitializeItemsShard#getFirstPage() first page} of the shard.
+     */
+    public static final String SHARD_FIRST_PAGE_HEADER = "bulkOpsInitializeShardFirstPage";
+
+    /**
+     * Header holding the {@link InitializeItemsShard#getEndPage() end page} of the shard.
+     */
+    public static final String SHARD_END_PAGE_HEADER = "bulkOpsInitializeShardEndPage";
+
+    /**
+     * Header holding the {@link InitializeItemsShard#getBatchSize() batch size} of the shard.
+     */
+    public static final String SHARD_BATCH_SIZE_HEADER = "bulkOpsInitializeShardBatchSize";
+
+    /**
+     * Separates the bulk operation ID from the shard index in the idempotency key of a shard
+     * message. Shard messages sent durably only carry the request and their idempotency key, so
+     * the shard is identified from the key and read from the {@link #getShardService() shard
+     * service}.
+     */
+    public static final String SHARD_IDEMPOTENCY_KEY_SEPARATOR = "_shard_";
+
     @Getter(value = AccessLevel.PROTECTED)
     private final InitializeBulkOperationItemsProperties initializeBulkOperationItemsProperties;
 
@@ -78,60 +152,1221 @@ public class InitializeBulkOperationItemsListener<CI extends CatalogItem> {
     @Getter(AccessLevel.PROTECTED)
     private final TypeFactory typeFactory;
 
+    @Getter(AccessLevel.PROTECTED)
+    private final Executor initializeItemsExecutor;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final InitializeItemsCheckpointService checkpointService;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final AdaptiveBatchSizeController batchSizeController;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final BulkOpsInitializeItemsRequestProducer initializeItemsRequestProducer;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final InitializeItemsShardService shardService;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final BulkOperationsMetrics bulkOperationsMetrics;
+
+    /**
+     * Runs the checkpoints of {@link #initializeItemsReactively reactively} initialized pages on
+     * the {@link #getInitializeItemsExecutor() executor}. Created once, on first use.
+     */
+    @Getter(value = AccessLevel.PROTECTED, lazy = true)
+    private final Scheduler checkpointScheduler = Schedulers.fromExecutor(initializeItemsExecutor);
+
     @StreamListener(BulkOpsInitializeItemsConsumer.CHANNEL)
     public void listen(Message<BulkOpsInitializeItemsRequest> message) {
         idempotentConsumptionService.consumeMessage(message,
-                InitializeBulkOperationItemsListener.class.getSimpleName(), this::processMessage);
+                InitializeBulkOperationItemsListener.class.getSimpleName(), this::dispatchMessage);
+    }
+
+    /**
+     * Processes the message on its own virtual thread if
+     * {@link InitializeBulkOperationItemsProperties#isVirtualThreads() virtual threads} are
+     * enabled and supported, and on the calling thread otherwise. Either way, the calling thread
+     * waits for the processing to finish, so that the message is not acknowledged before the items
+     * are initialized.
+     * <p>
+     * The message is never dispatched to a pool of platform threads, as the processing itself
+     * hands work off to the {@link #getInitializeItemsExecutor() executor} and waits on it.
+     *
+     * @param message the initialize items message
+     */
+    protected void dispatchMessage(@lombok.NonNull Message<BulkOpsInitializeItemsRequest> message) {
+        if (!initializeBulkOperationItemsProperties.isVirtualThreads()
+                || !VirtualThreads.isSupported()) {
+            processMessage(message);
+            return;
+        }
+
+        try {
+            CompletableFuture.runAsync(() -> processMessage(message), initializeItemsExecutor)
+                    .join();
+        } catch (CompletionException e) {
+            throw toRuntimeException(e);
+        }
     }
 
     protected void processMessage(@lombok.NonNull Message<BulkOpsInitializeItemsRequest> message) {
+        BulkOpsInitializeItemsRequest request = message.getPayload();
+        InitializeItemsShard shard = readShard(message);
+        if (shard != null) {
+            processShard(request, shard);
+            return;
+        }
+        if (getShardIndex(message) != null) {
+            log.debug("Ignoring the shard message {} of bulk operation {}, as its shard is no "
+                    + "longer registered.", message.getHeaders().get(MESSAGE_IDEMPOTENCY_KEY),
+                    request.getBulkOperationResponse().getId());
+            return;
+        }
+
+        InitializeItemsProgress progress = startProgress(request);
+        PreparedOperation operation = prepareOperation(request);
+
+        try {
+            switch (initializeBulkOperationItemsProperties.getMode()) {
+                case PIPELINED:
+                    initializeItemsPipelined(request, operation, progress);
+                    break;
+                case PARALLEL:
+                    initializeItemsInParallel(request, operation, progress);
+                    break;
+                case REACTIVE:
+                    initializeItemsReactively(request, operation, progress);
+                    break;
+                case SHARDED:
+                    if (initializeItemsSharded(request, operation, progress)) {
+                        // the last shard to complete finishes the bulk operation
+                        return;
+                    }
+                    break;
+                default:
+                    initializeItemsSequentially(request, operation, progress);
+            }
+        } catch (BulkOperationCanceledException e) {
+            log.info("Stopped initializing the items of bulk operation {}, as it has been "
+                    + "canceled.", progress.getBulkOperationId());
+            checkpointService.deleteCheckpoint(progress.getBulkOperationId());
+            return;
+        } catch (RuntimeException e) {
+            initializationFailed(progress);
+            throw e;
+        }
+
+        catalogProvider.updateBulkOperationTotalRecordCount(progress.getTotalItemRecords(),
+                request.getBulkOperationResponse(), request.getContextInfo());
+
+        // finally, send process message
+        sendProcessBulkOperationRequest(request);
+
+        checkpointService.deleteCheckpoint(progress.getBulkOperationId());
+    }
+
+    /**
+     * Starts tracking the progress of the item initialization, resuming from the latest
+     * {@link InitializeItemsCheckpoint checkpoint} if a previous attempt at this request was
+     * interrupted.
+     *
+     * @param request the request to initialize items for
+     * @return the progress to continue the initialization from
+     */
+    protected InitializeItemsProgress startProgress(
+            @lombok.NonNull BulkOpsInitializeItemsRequest request) {
+        String bulkOperationId = request.getBulkOperationResponse().getId();
         int batchSize = initializeBulkOperationItemsProperties.getBatchSize();
-        int currentBatchCount;
-        int currentPageNumber = 0;
-        long totalItemRecords = 0;
 
-        BulkOpsInitializeItemsRequest request = message.getPayload();
+        return checkpointService.readCheckpoint(bulkOperationId)
+                .map(checkpoint -> {
+                    log.info("Resuming the item initialization of bulk operation {} from "
+                            + "offset {} with {} items already initialized.",
+                            bulkOperationId,
+                            checkpoint.getNextOffset(),
+                            checkpoint.getTotalItemRecords());
+                    // keep the batch size that was adapted to by the previous attempt
+                    return InitializeItemsProgress.resume(checkpoint,
+                            batchSizeController.isEnabled() ? checkpoint.getBatchSize()
+                                    : batchSize);
+                })
+                .orElseGet(() -> new InitializeItemsProgress(bulkOperationId, batchSize));
+    }
+
+    /**
+     * Walks the search results one page at a time, initializing the items of each page before the
+     * next page is searched. If the {@link SearchProvider} pages by cursor, the cursor of each page
+     * is threaded through to the request for the next one.
+     *
+     * @param request the request to initialize items for
+     * @param operation the provider requests prepared for the bulk operation
+     * @param progress the progress to continue the initialization from
+     */
+    protected void initializeItemsSequentially(
+            @lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull PreparedOperation operation,
+            @lombok.NonNull InitializeItemsProgress progress) {
+        Pageable pageable;
+        SearchResponse<CI> searchResponse;
 
         do {
-            Pageable pageable = new DefaultPageRequest(currentPageNumber, batchSize);
+            pageable = progress.getNextPageable();
+
+            long searchStart = System.nanoTime();
+            searchResponse = searchPage(request, operation, pageable, progress.getCursor());
+            Duration searchLatency = Duration.ofNanos(System.nanoTime() - searchStart);
+
+            long initializeStart = System.nanoTime();
+            long itemCount = initializePage(request, operation, searchResponse, pageable);
+            Duration initializeLatency = Duration.ofNanos(System.nanoTime() - initializeStart);
+
+            pageInitialized(request, progress, pageable, searchResponse, itemCount);
+            progress.resize(batchSizeController.pageCompleted(pageable.getPageSize(),
+                    searchLatency, initializeLatency), batchSizeController.getMinBatchSize());
+        } while (searchResponse.getContent().size() == pageable.getPageSize());
+    }
+
+    /**
+     * Walks the search results while keeping up to
+     * {@link InitializeBulkOperationItemsProperties#getPrefetchDepth()} upcoming search pages in
+     * flight on the {@link #getInitializeItemsExecutor() executor}. This lets the search request
+     * for the next page overlap with the catalog request initializing the current page, so the
+     * throughput approaches that of the slower of the two services.
+     * <p>
+     * Items are still initialized in page order on the calling thread. Once the
+     * {@link SearchProvider#getTotalResults(SearchResponse) total number of results} is known from
+     * the first page, no page past the end of the results is prefetched. If the last page is full
+     * regardless, because results were added since the first page was searched, the pages after
+     * it are searched one at a time until a partial page is found. Pages prefetched past the end
+     * of the results when the total is unknown are discarded. When the {@link SearchProvider}
+     * pages by cursor, each prefetched page waits on the search of the page before it for its
+     * cursor, so the searches themselves are serialized but still overlap with item
+     * initialization.
+     *
+     * @param request the request to initialize items for
+     * @param operation the provider requests prepared for the bulk operation
+     * @param progress the progress to continue the initialization from
+     */
+    protected void initializeItemsPipelined(@lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull PreparedOperation operation,
+            @lombok.NonNull InitializeItemsProgress progress) {
+        int prefetchDepth = Math.max(1, initializeBulkOperationItemsProperties.getPrefetchDepth());
+        Deque<PrefetchedPage<CI>> prefetchedPages = new ArrayDeque<>();
+        PrefetchedPage<CI> lastPrefetchedPage = null;
+        Pageable nextPageable = progress.getNextPageable();
+        int requestedBatchSize = nextPageable.getPageSize();
+        Long totalResults = null;
+        PrefetchedPage<CI> page;
+        SearchResponse<CI> searchResponse;
+
+        try {
+            do {
+                if (prefetchedPages.isEmpty()) {
+                    lastPrefetchedPage = prefetchPage(request, operation, lastPrefetchedPage,
+                            nextPageable, progress.getCursor());
+                    prefetchedPages.add(lastPrefetchedPage);
+                    nextPageable = getFollowingPageable(nextPageable, requestedBatchSize);
+                }
+
+                page = prefetchedPages.poll();
+                searchResponse = awaitPage(page.getSearchResponse());
+                if (totalResults == null) {
+                    totalResults = searchProvider.getTotalResults(searchResponse);
+                }
+
+                // keep the configured number of upcoming pages in flight while this page is
+                // initialized, but none past the end of the results if it is known
+                while (prefetchedPages.size() < prefetchDepth
+                        && (totalResults == null || nextPageable.getOffset() < totalResults)) {
+                    lastPrefetchedPage = prefetchPage(request, operation, lastPrefetchedPage,
+                            nextPageable, progress.getCursor());
+                    prefetchedPages.add(lastPrefetchedPage);
+                    nextPageable = getFollowingPageable(nextPageable, requestedBatchSize);
+                }
+
+                long initializeStart = System.nanoTime();
+                long itemCount =
+                        initializePage(request, operation, searchResponse, page.getPageable());
+                Duration initializeLatency = Duration.ofNanos(System.nanoTime() - initializeStart);
+
+                pageInitialized(request, progress, page.getPageable(), searchResponse, itemCount);
+                // only pages that have not been prefetched yet pick up the new batch size
+                requestedBatchSize =
+                        batchSizeController.pageCompleted(page.getPageable().getPageSize(),
+                                page.getSearchLatency(), initializeLatency);
+            } while (searchResponse.getContent().size() == page.getPageable().getPageSize());
+        } finally {
+            prefetchedPages.forEach(prefetchedPage -> prefetchedPage.getSearchResponse()
+                    .cancel(true));
+        }
+    }
+
+    /**
+     * Streams the search results through the non-blocking {@link ReactiveSearchProvider} and
+     * {@link ReactiveCatalogProvider}. Each page's search is issued once the page before it has
+     * been retrieved, and demand is bounded so that at most
+     * {@link InitializeBulkOperationItemsProperties#getPrefetchDepth()} searched pages wait on
+     * the catalog at any time. Items are initialized in page order, and the progress of each page
+     * is checkpointed on the {@link #getInitializeItemsExecutor() executor} to keep blocking
+     * persistence off the event loop.
+     * <p>
+     * This is the bridge between the blocking message listener and the reactive providers: the
+     * calling thread blocks until the stream completes, so that the message is not acknowledged
+     * before the items are initialized. It must therefore be called from a thread that may block,
+     * such as the binder's consumer thread, and never from a Reactor non-blocking thread. If
+     * either provider is not reactive, the items are initialized in
+     * {@link InitializeBulkOperationItemsProperties.Mode#PIPELINED} mode instead.
+     *
+     * @param request the request to initialize items for
+     * @param operation the provider requests prepared for the bulk operation
+     * @param progress the progress to continue the initialization from
+     * @throws IllegalStateException if called from a Reactor non-blocking thread
+     */
+    protected void initializeItemsReactively(
+            @lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull PreparedOperation operation,
+            @lombok.NonNull InitializeItemsProgress progress) {
+        if (!(searchProvider instanceof ReactiveSearchProvider)
+                || !(catalogProvider instanceof ReactiveCatalogProvider)) {
+            log.debug("The search or catalog provider is not reactive, initializing the items of "
+                    + "bulk operation {} in pipelined mode instead.",
+                    progress.getBulkOperationId());
+            initializeItemsPipelined(request, operation, progress);
+            return;
+        }
+
+        if (Schedulers.isInNonBlockingThread()) {
+            throw new IllegalStateException(String.format(
+                    "Items of bulk operation %s cannot be initialized reactively from the "
+                            + "non-blocking thread %s, as it waits for the initialization to "
+                            + "complete.",
+                    progress.getBulkOperationId(), Thread.currentThread().getName()));
+        }
 
-            SearchResponse<CI> searchResponse =
-                    searchProvider.getSearchResults(request.getBulkOperationRequest(),
-                            request.getBulkOperationResponse(),
-                            pageable,
-                            request.getContextInfo());
+        int prefetchDepth = Math.max(1, initializeBulkOperationItemsProperties.getPrefetchDepth());
+        Pageable firstPageable = progress.getNextPageable();
+        AtomicInteger requestedBatchSize = new AtomicInteger(firstPageable.getPageSize());
 
-            if (!searchResponse.getContent().isEmpty()) {
-                InitializeItemResponse response = catalogProvider.initializeItems(searchResponse,
+        timeSearchReactive(request, operation, firstPageable, progress.getCursor())
+                .expand(page -> isFullPage(page)
+                        ? timeSearchReactive(request, operation,
+                                getFollowingPageable(page.getT1(), requestedBatchSize.get()),
+                                searchProvider.getNextCursor(page.getT2()))
+                        : Mono.empty())
+                .concatMap(page -> initializePageReactive(request, operation, page.getT2(),
+                        page.getT1())
+                                .elapsed()
+                                .publishOn(getCheckpointScheduler())
+                                .doOnNext(initialized -> {
+                                    pageInitialized(request, progress, page.getT1(),
+                                            page.getT2(), initialized.getT2());
+                                    // only pages that have not been searched yet pick up the
+                                    // new batch size
+                                    requestedBatchSize.set(batchSizeController.pageCompleted(
+                                            page.getT1().getPageSize(), page.getT3(),
+                                            Duration.ofMillis(initialized.getT1())));
+                                }),
+                        prefetchDepth)
+                .then()
+                .block();
+    }
+
+    /**
+     * Retrieves a single page of search results like {@link #searchPageReactive}, adding how long
+     * the search took so that the batch size of the pages after it can be adapted.
+     *
+     * @param request the request to initialize items for
+     * @param operation the provider requests prepared for the bulk operation
+     * @param pageable the page to retrieve
+     * @param cursor the cursor returned for the previous page, if any
+     * @return the page paired with its search results and search latency
+     */
+    protected Mono<Tuple3<Pageable, SearchResponse<CI>, Duration>> timeSearchReactive(
+            @lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull PreparedOperation operation,
+            @lombok.NonNull Pageable pageable,
+            @Nullable String cursor) {
+        return searchPageReactive(request, operation, pageable, cursor)
+                .elapsed()
+                .map(page -> Tuples.of(page.getT2().getT1(), page.getT2().getT2(),
+                        Duration.ofMillis(page.getT1())));
+    }
+
+    /**
+     * Retrieves a single page of search results for the bulk operation without blocking.
+     *
+     * @param request the request to initialize items for
+     * @param operation the provider requests prepared for the bulk operation
+     * @param pageable the page to retrieve
+     * @param cursor the cursor returned for the previous page, if any
+     * @return the page paired with its search results
+     */
+    protected Mono<Tuple2<Pageable, SearchResponse<CI>>> searchPageReactive(
+            @lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull PreparedOperation operation,
+            @lombok.NonNull Pageable pageable,
+            @Nullable String cursor) {
+        Mono<SearchResponse<CI>> searchResults =
+                operation.getReactiveSearch().search(pageable, cursor);
+        return bulkOperationsMetrics.recordReactive(BulkOperationsMetrics.SEARCH_PAGE_STAGE,
+                request.getBulkOperationRequest(),
+                request.getContextInfo(),
+                searchResults)
+                .doOnNext(searchResponse -> recordPageItems(request, searchResponse))
+                .map(searchResponse -> Tuples.of(pageable, searchResponse));
+    }
+
+    /**
+     * Initializes the bulk operation items for a single page of search results without blocking.
+     *
+     * @param request the request to initialize items for
+     * @param operation the provider requests prepared for the bulk operation
+     * @param searchResponse the search results for the page
+     * @param pageable the page the search results belong to
+     * @return the number of bulk operation items initialized for the page
+     */
+    protected Mono<Long> initializePageReactive(
+            @lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull PreparedOperation operation,
+            @lombok.NonNull SearchResponse<CI> searchResponse,
+            @lombok.NonNull Pageable pageable) {
+        if (searchResponse.getContent().isEmpty()) {
+            return Mono.just(0L);
+        }
+
+        return bulkOperationsMetrics.recordReactive(BulkOperationsMetrics.INITIALIZE_ITEMS_STAGE,
+                request.getBulkOperationRequest(),
+                request.getContextInfo(),
+                operation.getReactiveItemInitialization().initializeItems(searchResponse,
+                        pageable))
+                .map(response -> (long) response.getItemResponses().size())
+                .doOnNext(initialized -> bulkOperationsMetrics.recordInitializedItems(
+                        request.getBulkOperationRequest(), request.getContextInfo(), initialized))
+                .defaultIfEmpty(0L);
+    }
+
+    protected boolean isFullPage(@lombok.NonNull Tuple2<Pageable, SearchResponse<CI>> page) {
+        return page.getT2().getContent().size() == page.getT1().getPageSize();
+    }
+
+    /**
+     * Searches the first page to determine the total number of results, and then searches and
+     * initializes the remaining pages concurrently on the
+     * {@link #getInitializeItemsExecutor() executor}, keeping at most
+     * {@link InitializeBulkOperationItemsProperties#getMaxConcurrency()} pages in flight. The
+     * number of items initialized by each page is aggregated in the {@link InitializeItemsProgress}
+     * as pages complete.
+     * <p>
+     * If the total number of results is unknown or the {@link SearchProvider} pages by cursor,
+     * the pages cannot be computed up front and the remaining pages are walked sequentially
+     * instead. Likewise, if the last computed page is full, because results were added since the
+     * first page was searched, the pages after it are walked sequentially.
+     *
+     * @param request the request to initialize items for
+     * @param operation the provider requests prepared for the bulk operation
+     * @param progress the progress to continue the initialization from
+     */
+    protected void initializeItemsInParallel(
+            @lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull PreparedOperation operation,
+            @lombok.NonNull InitializeItemsProgress progress) {
+        Pageable firstPageable = progress.getNextPageable();
+        SearchResponse<CI> firstPage =
+                searchPage(request, operation, firstPageable, progress.getCursor());
+        Long totalResults = searchProvider.getTotalResults(firstPage);
+
+        if (totalResults == null || searchProvider.isCursorPagingEnabled()) {
+            log.debug("Unable to partition the search results for bulk operation {}, "
+                    + "initializing the items sequentially instead.",
+                    progress.getBulkOperationId());
+            long itemCount = initializePage(request, operation, firstPage, firstPageable);
+            pageInitialized(request, progress, firstPageable, firstPage, itemCount);
+            if (firstPage.getContent().size() == firstPageable.getPageSize()) {
+                initializeItemsSequentially(request, operation, progress);
+            }
+            return;
+        }
+
+        int batchSize = firstPageable.getPageSize();
+        int pageCount = (int) Math.max(1, (totalResults + batchSize - 1) / batchSize);
+        Semaphore permits = new Semaphore(
+                Math.max(1, initializeBulkOperationItemsProperties.getMaxConcurrency()));
+        AtomicBoolean lastPageFull = new AtomicBoolean();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        List<CompletableFuture<Void>> pages = new ArrayList<>();
+
+        for (int pageNumber = firstPageable.getPageNumber(); pageNumber < pageCount;
+                pageNumber++) {
+            acquire(permits);
+            if (failure.get() != null) {
+                // a page failed while waiting for the permit, so start no further pages
+                permits.release();
+                break;
+            }
+
+            Pageable pageable = new DefaultPageRequest(pageNumber, batchSize);
+            boolean lastPage = pageNumber == pageCount - 1;
+            CompletableFuture<Void> page = CompletableFuture.runAsync(() -> {
+                SearchResponse<CI> searchResponse =
+                        pageable.getPageNumber() == firstPageable.getPageNumber() ? firstPage
+                                : searchPage(request, operation, pageable, null);
+                long itemCount = initializePage(request, operation, searchResponse, pageable);
+                pageInitialized(request, progress, pageable, searchResponse, itemCount);
+                if (lastPage && searchResponse.getContent().size() == batchSize) {
+                    lastPageFull.set(true);
+                }
+            }, initializeItemsExecutor).whenComplete((result, throwable) -> {
+                // record the failure before releasing the permit, so that no page is started
+                // after it
+                if (throwable != null) {
+                    failure.compareAndSet(null, toRuntimeException(throwable));
+                }
+                permits.release();
+            });
+            pages.add(page);
+        }
+
+        try {
+            CompletableFuture.allOf(pages.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException ignored) {
+            // the first failure is captured and rethrown below
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        if (lastPageFull.get()) {
+            initializeItemsSequentially(request, operation, progress);
+        }
+    }
+
+    /**
+     * Searches the first page to determine the total number of results, splits the pages into
+     * shards of {@link InitializeBulkOperationItemsProperties#getPagesPerShard()} pages and
+     * publishes a message for each shard, so that the shards are initialized by whichever nodes
+     * consume them. The shards are registered with the {@link #getShardService() shard service}
+     * beforehand, so that the last shard to complete can finish the bulk operation.
+     * <p>
+     * The first page is initialized by this node from the search that determined the total, and
+     * is registered as the already completed shard 0, so that it is not searched twice. The
+     * remaining pages make up shards 1 onwards.
+     * <p>
+     * If the initialization is being resumed from a checkpoint, the {@link SearchProvider} pages by
+     * cursor, the total number of results is unknown, or there would only be a single shard, the
+     * items are initialized sequentially by this node instead.
+     *
+     * @param request the request to initialize items for
+     * @param operation the provider requests prepared for the bulk operation
+     * @param progress the progress to continue the initialization from
+     * @return true if the shards were published, false if the items were initialized by this node
+     */
+    protected boolean initializeItemsSharded(@lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull PreparedOperation operation,
+            @lombok.NonNull InitializeItemsProgress progress) {
+        if (progress.getNextOffset() > 0 || searchProvider.isCursorPagingEnabled()) {
+            initializeItemsSequentially(request, operation, progress);
+            return false;
+        }
+
+        Pageable firstPageable = progress.getNextPageable();
+        SearchResponse<CI> firstPage = searchPage(request, operation, firstPageable, null);
+        Long totalResults = searchProvider.getTotalResults(firstPage);
+        int batchSize = firstPageable.getPageSize();
+        int pagesPerShard = Math.max(1, initializeBulkOperationItemsProperties.getPagesPerShard());
+        long pageCount = totalResults == null ? 0 : (totalResults + batchSize - 1) / batchSize;
+        int shardCount = (int) Math.min(Integer.MAX_VALUE,
+                (pageCount + pagesPerShard - 1) / pagesPerShard);
+
+        if (shardCount <= 1) {
+            long itemCount = initializePage(request, operation, firstPage, firstPageable);
+            pageInitialized(request, progress, firstPageable, firstPage, itemCount);
+            if (firstPage.getContent().size() == batchSize) {
+                initializeItemsSequentially(request, operation, progress);
+            }
+            return false;
+        }
+
+        String bulkOperationId = progress.getBulkOperationId();
+        long firstPageItemCount = initializePage(request, operation, firstPage, firstPageable);
+        int remainingShardCount = (int) Math.min(Integer.MAX_VALUE - 1,
+                (pageCount - 1 + pagesPerShard - 1) / pagesPerShard);
+        int totalShardCount = remainingShardCount + 1;
+        List<InitializeItemsShard> shards = new ArrayList<>(totalShardCount);
+
+        InitializeItemsShard firstShard = new InitializeItemsShard();
+        firstShard.setBulkOperationId(bulkOperationId);
+        firstShard.setShardIndex(0);
+        firstShard.setShardCount(totalShardCount);
+        firstShard.setFirstPage(0);
+        firstShard.setEndPage(1);
+        firstShard.setBatchSize(batchSize);
+        firstShard.setItemCount(firstPageItemCount);
+        firstShard.setCompleted(true);
+        shards.add(firstShard);
+
+        for (int shardIndex = 1; shardIndex < totalShardCount; shardIndex++) {
+            InitializeItemsShard shard = new InitializeItemsShard();
+            shard.setBulkOperationId(bulkOperationId);
+            shard.setShardIndex(shardIndex);
+            shard.setShardCount(totalShardCount);
+            shard.setFirstPage(1 + (shardIndex - 1) * pagesPerShard);
+            shard.setEndPage((int) Math.min(pageCount, 1 + (long) shardIndex * pagesPerShard));
+            shard.setBatchSize(batchSize);
+            shards.add(shard);
+        }
+
+        shardService.registerShards(bulkOperationId, shards);
+        shards.stream()
+                .filter(shard -> !shard.isCompleted())
+                .forEach(shard -> sendShard(request, shard));
+        log.debug("Split the item initialization of bulk operation {} into {} shards.",
+                bulkOperationId, totalShardCount);
+        return true;
+    }
+
+    /**
+     * Initializes the items of a single shard, and finishes the bulk operation if this was the
+     * last shard to complete.
+     * <p>
+     * Shards do not checkpoint their progress, so a redelivered shard message initializes the
+     * shard's pages again from the start, unless the shard is known to have completed.
+     *
+     * @param request the request to initialize items for
+     * @param shard the shard to initialize the items of
+     */
+    protected void processShard(@lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull InitializeItemsShard shard) {
+        if (shard.isCompleted()) {
+            finishShardedInitialization(request);
+            return;
+        }
+
+        PreparedOperation operation = prepareOperation(request);
+        int batchSize = shard.getBatchSize();
+        Pageable pageable = new DefaultPageRequest(shard.getFirstPage(), batchSize);
+        SearchResponse<CI> searchResponse;
+        InitializeBulkOperationItemsProperties.CancellationCheck cancellationCheck =
+                initializeBulkOperationItemsProperties.getCancellationCheck();
+        int pageCount = 0;
+        long itemCount = 0;
+        boolean fullPage;
+
+        do {
+            searchResponse = searchPage(request, operation, pageable, null);
+            itemCount += initializePage(request, operation, searchResponse, pageable);
+            fullPage = searchResponse.getContent().size() == batchSize;
+            pageable = new DefaultPageRequest(pageable.getPageNumber() + 1, batchSize);
+
+            if (cancellationCheck.isEnabled()
+                    && ++pageCount % Math.max(1, cancellationCheck.getPageInterval()) == 0
+                    && isCanceled(request)) {
+                log.info("Stopped initializing shard {} of bulk operation {}, as it has been "
+                        + "canceled.", shard.getShardIndex(), shard.getBulkOperationId());
+                shardService.deleteShards(shard.getBulkOperationId());
+                return;
+            }
+        } while (fullPage
+                && (pageable.getPageNumber() < shard.getEndPage() || shard.isLastShard()));
+
+        shardService.shardCompleted(shard.getBulkOperationId(), shard.getShardIndex(), itemCount);
+        finishShardedInitialization(request);
+    }
+
+    /**
+     * Claims the completion of a sharded item initialization and, if this node claimed it,
+     * updates the total record count of the bulk operation and sends the request to process it.
+     * If either fails, the claim is released so that a redelivered shard message can retry.
+     *
+     * @param request the request to initialize items for
+     */
+    protected void finishShardedInitialization(
+            @lombok.NonNull BulkOpsInitializeItemsRequest request) {
+        String bulkOperationId = request.getBulkOperationResponse().getId();
+        OptionalLong totalItemRecords = shardService.claimCompletion(bulkOperationId);
+        if (totalItemRecords.isEmpty()) {
+            return;
+        }
+
+        try {
+            catalogProvider.updateBulkOperationTotalRecordCount(totalItemRecords.getAsLong(),
+                    request.getBulkOperationResponse(), request.getContextInfo());
+            sendProcessBulkOperationRequest(request);
+        } catch (RuntimeException e) {
+            shardService.releaseCompletion(bulkOperationId);
+            throw e;
+        }
+
+        shardService.deleteShards(bulkOperationId);
+    }
+
+    /**
+     * Sends the initialize items message for a single shard, durably if durable sending is
+     * {@link #isDurableSendingEnabled() enabled}. Durably sent messages only carry the request,
+     * so the shard is read back from the {@link #getShardService() shard service} when they are
+     * consumed.
+     *
+     * @param request the request to initialize items for
+     * @param shard the shard the message covers
+     */
+    protected void sendShard(@lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull InitializeItemsShard shard) {
+        if (isDurableSendingEnabled()) {
+            sender.send(request, BulkOpsInitializeItemsRequestProducer.TYPE,
+                    getShardIdempotencyKey(shard), BULK_OPS_ROUTE_KEY);
+        } else {
+            initializeItemsRequestProducer.initializeItemsRequestOutput()
+                    .send(buildShardMessage(request, shard));
+        }
+    }
+
+    protected String getShardIdempotencyKey(@lombok.NonNull InitializeItemsShard shard) {
+        return shard.getBulkOperationId() + SHARD_IDEMPOTENCY_KEY_SEPARATOR
+                + shard.getShardIndex();
+    }
+
+    /**
+     * Builds the initialize items message for a single shard. Each shard has its own idempotency
+     * key, so that the shards are not mistaken for redeliveries of one another.
+     *
+     * @param request the request to initialize items for
+     * @param shard the shard the message covers
+     * @return the message for the shard
+     */
+    protected Message<BulkOpsInitializeItemsRequest> buildShardMessage(
+            @lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull InitializeItemsShard shard) {
+        return MessageBuilder.withPayload(request)
+                .setHeader(MESSAGE_IDEMPOTENCY_KEY, getShardIdempotencyKey(shard))
+                .setHeader(SHARD_INDEX_HEADER, shard.getShardIndex())
+                .setHeader(SHARD_COUNT_HEADER, shard.getShardCount())
+                .setHeader(SHARD_FIRST_PAGE_HEADER, shard.getFirstPage())
+                .setHeader(SHARD_END_PAGE_HEADER, shard.getEndPage())
+                .setHeader(SHARD_BATCH_SIZE_HEADER, shard.getBatchSize())
+                .build();
+    }
+
+    /**
+     * Reads the shard an initialize items message covers from its headers, or from the
+     * {@link #getShardService() shard service} if the message was sent durably and only carries
+     * the shard in its idempotency key.
+     *
+     * @param message the initialize items message
+     * @return the shard, or {@code null} if the message covers the whole bulk operation or its
+     *         shard is no longer registered
+     */
+    @Nullable
+    protected InitializeItemsShard readShard(
+            @lombok.NonNull Message<BulkOpsInitializeItemsRequest> message) {
+        MessageHeaders headers = message.getHeaders();
+        if (!headers.containsKey(SHARD_INDEX_HEADER)) {
+            Integer shardIndex = getShardIndex(message);
+            return shardIndex == null ? null
+                    : shardService.getShard(
+                            message.getPayload().getBulkOperationResponse().getId(), shardIndex)
+                            .orElse(null);
+        }
+
+        InitializeItemsShard shard = new InitializeItemsShard();
+        shard.setBulkOperationId(message.getPayload().getBulkOperationResponse().getId());
+        shard.setShardIndex(getIntHeader(headers, SHARD_INDEX_HEADER));
+        shard.setShardCount(getIntHeader(headers, SHARD_COUNT_HEADER));
+        shard.setFirstPage(getIntHeader(headers, SHARD_FIRST_PAGE_HEADER));
+        shard.setEndPage(getIntHeader(headers, SHARD_END_PAGE_HEADER));
+        shard.setBatchSize(getIntHeader(headers, SHARD_BATCH_SIZE_HEADER));
+        return shard;
+    }
+
+    /**
+     * Gets the index of the shard a durably sent shard message covers from its idempotency key.
+     *
+     * @param message the initialize items message
+     * @return the shard index, or {@code null} if the message is not a shard message
+     */
+    @Nullable
+    protected Integer getShardIndex(
+            @lombok.NonNull Message<BulkOpsInitializeItemsRequest> message) {
+        Object idempotencyKey = message.getHeaders().get(MESSAGE_IDEMPOTENCY_KEY);
+        String prefix = message.getPayload().getBulkOperationResponse().getId()
+                + SHARD_IDEMPOTENCY_KEY_SEPARATOR;
+        if (idempotencyKey == null || !idempotencyKey.toString().startsWith(prefix)) {
+            return null;
+        }
+
+        String shardIndex = idempotencyKey.toString().substring(prefix.length());
+        return StringUtils.isNumeric(shardIndex) ? Integer.valueOf(shardIndex) : null;
+    }
+
+    protected int getIntHeader(@lombok.NonNull MessageHeaders headers,
+            @lombok.NonNull String name) {
+        Object value = headers.get(name);
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Missing shard header " + name);
+        }
+        return Integer.parseInt(value.toString());
+    }
+
+    /**
+     * Records that a page has been initialized, saving a checkpoint of the progress with the
+     * {@link #getCheckpointService() checkpoint service} whenever it advances. Checkpoints are
+     * best effort: failing to save one does not fail the initialization.
+     *
+     * @param request the request to initialize items for
+     * @param progress the progress of the initialization
+     * @param pageable the page that was initialized
+     * @param searchResponse the search results for the page
+     * @param itemCount the number of bulk operation items initialized for the page
+     */
+    protected void pageInitialized(@lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull InitializeItemsProgress progress,
+            @lombok.NonNull Pageable pageable,
+            @lombok.NonNull SearchResponse<CI> searchResponse,
+            long itemCount) {
+        InitializeItemsCheckpoint checkpoint = progress.pageInitialized(pageable, itemCount,
+                searchProvider.getNextCursor(searchResponse));
+
+        if (checkpoint != null) {
+            saveCheckpoint(checkpoint);
+        }
+
+        reportProgress(request, progress, searchResponse);
+        checkCanceled(request, progress);
+    }
+
+    /**
+     * Saves a checkpoint of the progress, logging rather than rethrowing any failure to do so.
+     *
+     * @param checkpoint the checkpoint to save
+     */
+    protected void saveCheckpoint(@lombok.NonNull InitializeItemsCheckpoint checkpoint) {
+        try {
+            checkpointService.saveCheckpoint(checkpoint);
+        } catch (RuntimeException e) {
+            log.warn("Unable to checkpoint the item initialization for bulk operation {}",
+                    checkpoint.getBulkOperationId(), e);
+        }
+    }
+
+    /**
+     * Checks whether the bulk operation has been canceled, if
+     * {@link InitializeBulkOperationItemsProperties#getCancellationCheck() cancellation checks}
+     * are enabled and one is due. Once the bulk operation is found to be canceled, every page
+     * initialized afterwards stops the initialization, without checking again.
+     *
+     * @param request the request to initialize items for
+     * @param progress the progress of the initialization
+     * @throws BulkOperationCanceledException if the bulk operation has been canceled
+     */
+    protected void checkCanceled(@lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull InitializeItemsProgress progress) {
+        InitializeBulkOperationItemsProperties.CancellationCheck cancellationCheck =
+                initializeBulkOperationItemsProperties.getCancellationCheck();
+        if (!cancellationCheck.isEnabled()) {
+            return;
+        }
+
+        if (!progress.isCanceled()
+                && progress.claimCancellationCheck(Math.max(1, cancellationCheck.getPageInterval()),
+                        cancellationCheck.getTimeInterval())
+                && isCanceled(request)) {
+            progress.markCanceled();
+        }
+
+        if (progress.isCanceled()) {
+            throw new BulkOperationCanceledException(progress.getBulkOperationId());
+        }
+    }
+
+    /**
+     * Retrieves the status of the bulk operation from the {@link #getCatalogProvider() catalog
+     * provider} to determine whether it has been canceled. If the status cannot be retrieved, the
+     * bulk operation is assumed to still be running.
+     *
+     * @param request the request to initialize items for
+     * @return true if the bulk operation has been canceled
+     */
+    protected boolean isCanceled(@lombok.NonNull BulkOpsInitializeItemsRequest request) {
+        try {
+            BulkOperationStatus status = catalogProvider.getBulkOperationStatus(
+                    request.getBulkOperationResponse(), request.getContextInfo());
+            return status != null && status.isCanceled();
+        } catch (RuntimeException e) {
+            log.warn("Unable to check whether bulk operation {} has been canceled",
+                    request.getBulkOperationResponse().getId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Reports the progress of the item initialization to the {@link #getCatalogProvider() catalog
+     * provider} if {@link InitializeBulkOperationItemsProperties#getProgressUpdates() progress
+     * updates} are enabled. The total number of search results is reported once, as the bulk
+     * operation's total record count, and the running number of initialized items is reported
+     * every so many pages or so much time. Failing to report progress does not fail the
+     * initialization.
+     *
+     * @param request the request to initialize items for
+     * @param progress the progress of the initialization
+     * @param searchResponse the search results for the page that was just initialized
+     */
+    protected void reportProgress(@lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull InitializeItemsProgress progress,
+            @lombok.NonNull SearchResponse<CI> searchResponse) {
+        InitializeBulkOperationItemsProperties.ProgressUpdates progressUpdates =
+                initializeBulkOperationItemsProperties.getProgressUpdates();
+        if (!progressUpdates.isEnabled()) {
+            return;
+        }
+
+        try {
+            if (progress.claimSearchTotalReport()) {
+                Long totalResults = searchProvider.getTotalResults(searchResponse);
+                if (totalResults != null) {
+                    catalogProvider.updateBulkOperationTotalRecordCount(totalResults,
+                            request.getBulkOperationResponse(), request.getContextInfo());
+                }
+            }
+
+            if (progress.claimProgressReport(Math.max(1, progressUpdates.getPageInterval()),
+                    progressUpdates.getTimeInterval())) {
+                catalogProvider.updateBulkOperationInitializedRecordCount(
+                        progress.getTotalItemRecords(),
+                        request.getBulkOperationResponse(),
+                        request.getContextInfo());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to report the progress of the item initialization for bulk "
+                    + "operation {}", progress.getBulkOperationId(), e);
+        }
+    }
+
+    /**
+     * Records that initializing the items failed. If the batch size is being adapted, the batch
+     * size is shrunk and checkpointed, so that the redelivered request retries with smaller pages.
+     *
+     * @param progress the progress of the initialization
+     */
+    protected void initializationFailed(@lombok.NonNull InitializeItemsProgress progress) {
+        if (!batchSizeController.isEnabled()) {
+            return;
+        }
+
+        try {
+            progress.resize(batchSizeController.pageFailed(progress.getBatchSize()),
+                    batchSizeController.getMinBatchSize());
+            checkpointService.saveCheckpoint(progress.toCheckpoint());
+        } catch (RuntimeException e) {
+            log.warn("Unable to checkpoint the reduced batch size for bulk operation {}",
+                    progress.getBulkOperationId(), e);
+        }
+    }
+
+    /**
+     * Determines the page following the given one, using the requested batch size if it can be
+     * aligned with the page's end.
+     *
+     * @param pageable the current page
+     * @param requestedBatchSize the batch size requested for the following page
+     * @return the following page
+     * @see InitializeItemsProgress#alignBatchSize(long, int, int, int)
+     */
+    protected Pageable getFollowingPageable(@lombok.NonNull Pageable pageable,
+            int requestedBatchSize) {
+        long offset = pageable.getOffset() + pageable.getPageSize();
+        int batchSize = InitializeItemsProgress.alignBatchSize(offset, pageable.getPageSize(),
+                requestedBatchSize, batchSizeController.getMinBatchSize());
+        return new DefaultPageRequest((int) (offset / batchSize), batchSize);
+    }
+
+    /**
+     * Requests a page of search results on the {@link #getInitializeItemsExecutor() executor}.
+     * <p>
+     * If the {@link SearchProvider} pages by cursor, the search is chained onto the previously
+     * requested page so that its cursor can be used. A page following a partial page is not
+     * searched at all, as the end of the results has already been reached.
+     *
+     * @param request the request to initialize items for
+     * @param operation the provider requests prepared for the bulk operation
+     * @param previousPage the previously requested page, or {@code null} if this is the first
+     * @param pageable the page to request
+     * @param startCursor the cursor to search the first page with, if any
+     * @return the pending search results for the page
+     */
+    protected PrefetchedPage<CI> prefetchPage(
+            @lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull PreparedOperation operation,
+            @Nullable PrefetchedPage<CI> previousPage,
+            @lombok.NonNull Pageable pageable,
+            @Nullable String startCursor) {
+        PrefetchedPage<CI> page = new PrefetchedPage<>(pageable);
+
+        if (previousPage == null || !searchProvider.isCursorPagingEnabled()) {
+            String cursor = previousPage == null ? startCursor : null;
+            page.setSearchResponse(CompletableFuture.supplyAsync(
+                    () -> page.timeSearch(() -> searchPage(request, operation, pageable, cursor)),
+                    initializeItemsExecutor));
+            return page;
+        }
+
+        page.setSearchResponse(previousPage.getSearchResponse().thenApplyAsync(previous -> {
+            if (previous.getContent().size() < previousPage.getPageable().getPageSize()) {
+                return new SearchResponse<>();
+            }
+            return page.timeSearch(() -> searchPage(request, operation, pageable,
+                    searchProvider.getNextCursor(previous)));
+        }, initializeItemsExecutor));
+        return page;
+    }
+
+    /**
+     * Retrieves a single page of search results for the bulk operation.
+     *
+     * @param request the request to initialize items for
+     * @param operation the provider requests prepared for the bulk operation
+     * @param pageable the page to retrieve
+     * @param cursor the cursor returned for the previous page, if any
+     * @return the search results for the page
+     */
+    protected SearchResponse<CI> searchPage(@lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull PreparedOperation operation,
+            @lombok.NonNull Pageable pageable,
+            @Nullable String cursor) {
+        SearchResponse<CI> searchResponse = bulkOperationsMetrics.record(
+                BulkOperationsMetrics.SEARCH_PAGE_STAGE,
+                request.getBulkOperationRequest(),
+                request.getContextInfo(),
+                () -> operation.getSearch().search(pageable, cursor));
+        recordPageItems(request, searchResponse);
+        return searchResponse;
+    }
+
+    /**
+     * Records the number of items in a page of search results.
+     *
+     * @param request the request the page was retrieved for
+     * @param searchResponse the search results for the page
+     */
+    protected void recordPageItems(@lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @Nullable SearchResponse<CI> searchResponse) {
+        if (searchResponse != null && searchResponse.getContent() != null) {
+            bulkOperationsMetrics.recordPageItems(request.getBulkOperationRequest(),
+                    request.getContextInfo(),
+                    searchResponse.getContent().size());
+        }
+    }
+
+    /**
+     * Initializes the bulk operation items for a single page of search results.
+     *
+     * @param request the request to initialize items for
+     * @param operation the provider requests prepared for the bulk operation
+     * @param searchResponse the search results for the page
+     * @param pageable the page the search results belong to
+     * @return the number of bulk operation items initialized for the page
+     */
+    protected long initializePage(@lombok.NonNull BulkOpsInitializeItemsRequest request,
+            @lombok.NonNull PreparedOperation operation,
+            @lombok.NonNull SearchResponse<CI> searchResponse,
+            @lombok.NonNull Pageable pageable) {
+        if (searchResponse.getContent().isEmpty()) {
+            return 0;
+        }
+
+        InitializeItemResponse response = bulkOperationsMetrics.record(
+                BulkOperationsMetrics.INITIALIZE_ITEMS_STAGE,
+                request.getBulkOperationRequest(),
+                request.getContextInfo(),
+                () -> operation.getItemInitialization().initializeItems(searchResponse,
+                        pageable));
+        int initialized = response.getItemResponses().size();
+        bulkOperationsMetrics.recordInitializedItems(request.getBulkOperationRequest(),
+                request.getContextInfo(),
+                initialized);
+        return initialized;
+    }
+
+    /**
+     * Waits for a page requested on the {@link #getInitializeItemsExecutor() executor}, rethrowing
+     * any runtime exception raised while retrieving it as-is.
+     *
+     * @param page the pending page
+     * @return the retrieved page
+     */
+    protected <T> T awaitPage(@lombok.NonNull CompletableFuture<T> page) {
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            throw toRuntimeException(e);
+        }
+    }
+
+    /**
+     * Unwraps the exception raised by work completed on the
+     * {@link #getInitializeItemsExecutor() executor} so that it can be rethrown as-is.
+     *
+     * @param throwable the exception raised
+     * @return the underlying runtime exception
+     */
+    protected RuntimeException toRuntimeException(@lombok.NonNull Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new CompletionException(cause);
+    }
+
+    /**
+     * Acquires a permit, restoring the interrupt flag and failing if the thread is interrupted
+     * while waiting.
+     *
+     * @param permits the semaphore to acquire a permit from
+     */
+    protected void acquire(@lombok.NonNull Semaphore permits) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to initialize items", e);
+        }
+    }
+
+    /**
+     * Prepares the provider requests of an item initialization once, so that whatever is the same
+     * for every page, such as the request headers, is not built again for each page.
+     *
+     * @param request the request to initialize items for
+     * @return the provider requests for the bulk operation
+     */
+    protected PreparedOperation prepareOperation(
+            @lombok.NonNull BulkOpsInitializeItemsRequest request) {
+        return new PreparedOperation(request);
+    }
+
+    /**
+     * The provider requests of a single item initialization. Each is prepared with the
+     * {@link SearchProvider} or {@link CatalogProvider}, or their reactive counterparts, the first
+     * time it is needed, and reused for the remaining pages.
+     */
+    protected class PreparedOperation {
+
+        private final BulkOpsInitializeItemsRequest request;
+
+        private PreparedSearch<CI> search;
+
+        private PreparedItemInitialization<CI> itemInitialization;
+
+        private PreparedReactiveSearch<CI> reactiveSearch;
+
+        private PreparedReactiveItemInitialization<CI> reactiveItemInitialization;
+
+        protected PreparedOperation(BulkOpsInitializeItemsRequest request) {
+            this.request = request;
+        }
+
+        protected synchronized PreparedSearch<CI> getSearch() {
+            if (search == null) {
+                search = searchProvider.prepareSearch(request.getBulkOperationRequest(),
+                        request.getBulkOperationResponse(),
+                        request.getContextInfo());
+            }
+            return search;
+        }
+
+        protected synchronized PreparedItemInitialization<CI> getItemInitialization() {
+            if (itemInitialization == null) {
+                itemInitialization = catalogProvider.prepareItemInitialization(
                         request.getBulkOperationRequest(),
                         request.getBulkOperationResponse(),
-                        pageable,
                         request.getContextInfo());
-                totalItemRecords += response.getItemResponses().size();
             }
+            return itemInitialization;
+        }
 
-            currentPageNumber++;
-            currentBatchCount = searchResponse.getContent().size();
-        } while (currentBatchCount == batchSize);
+        @SuppressWarnings("unchecked")
+        protected synchronized PreparedReactiveSearch<CI> getReactiveSearch() {
+            if (reactiveSearch == null) {
+                reactiveSearch = ((ReactiveSearchProvider<CI>) searchProvider)
+                        .prepareSearchReactive(request.getBulkOperationRequest(),
+                                request.getBulkOperationResponse(),
+                                request.getContextInfo());
+            }
+            return reactiveSearch;
+        }
 
-        catalogProvider.updateBulkOperationTotalRecordCount(totalItemRecords,
-                request.getBulkOperationResponse(), request.getContextInfo());
+        @SuppressWarnings("unchecked")
+        protected synchronized PreparedReactiveItemInitialization<CI>
+                getReactiveItemInitialization() {
+            if (reactiveItemInitialization == null) {
+                reactiveItemInitialization = ((ReactiveCatalogProvider<CI>) catalogProvider)
+                        .prepareItemInitializationReactive(request.getBulkOperationRequest(),
+                                request.getBulkOperationResponse(),
+                                request.getContextInfo());
+            }
+            return reactiveItemInitialization;
+        }
+    }
 
-        // finally, send process message
-        sendProcessBulkOperationRequest(request);
+    /**
+     * A page of search results requested ahead of time by
+     * {@link #initializeItemsPipelined(BulkOpsInitializeItemsRequest, PreparedOperation,
+     * InitializeItemsProgress)}.
+     *
+     * @param <I> the type of the search results
+     */
+    protected static class PrefetchedPage<I> {
+
+        @Getter
+        private final Pageable pageable;
+
+        @Getter
+        @Setter(AccessLevel.PROTECTED)
+        private CompletableFuture<SearchResponse<I>> searchResponse;
+
+        /**
+         * How long the search request took, once it has completed.
+         */
+        @Getter
+        private volatile Duration searchLatency = Duration.ZERO;
+
+        protected PrefetchedPage(Pageable pageable) {
+            this.pageable = pageable;
+        }
+
+        protected SearchResponse<I> timeSearch(Supplier<SearchResponse<I>> search) {
+            long searchStart = System.nanoTime();
+            try {
+                return search.get();
+            } finally {
+                searchLatency = Duration.ofNanos(System.nanoTime() - searchStart);
+            }
+        }
     }
 
     protected void sendProcessBulkOperationRequest(
             @lombok.NonNull BulkOpsInitializeItemsRequest request) {
+        bulkOperationsMetrics.record(BulkOperationsMetrics.SEND_PROCESS_STAGE,
+                request.getBulkOperationRequest(),
+                request.getContextInfo(),
+                () -> doSendProcessBulkOperationRequest(request));
+    }
+
+    protected void doSendProcessBulkOperationRequest(
+            @lombok.NonNull BulkOpsInitializeItemsRequest request) {
         String bulkOpsId = request.getBulkOperationResponse().getId();
         BulkOpsProcessRequest processRequest = typeFactory.get(BulkOpsProcessRequest.class);
         processRequest.setBulkOperationId(bulkOpsId);
         processRequest.setOperationType(request.getBulkOperationRequest().getOperationType());
         processRequest.setEntityType(request.getBulkOperationRequest().getEntityType());
 
-        if (bulkOperationsProviderProperties != null
-                && !"none".equals(bulkOperationsProviderProperties.getProvider())
-                && sender != null) {
+        if (isDurableSendingEnabled()) {
             sender.send(processRequest, BulkOpsProcessRequestProducer.TYPE,
                     bulkOpsId, BULK_OPS_ROUTE_KEY);
         } else {
@@ -146,4 +1381,16 @@ public class InitializeBulkOperationItemsListener<CI extends CatalogItem> {
             processRequestProducer.processBulkOperationRequestOutput().send(processRequestMessage);
         }
     }
+
+    /**
+     * Whether messages are sent through the {@link #getSender() durable sender}, which requires a
+     * database provider.
+     *
+     * @return whether durable sending is enabled
+     */
+    protected boolean isDurableSendingEnabled() {
+        return bulkOperationsProviderProperties != null
+                && !"none".equals(bulkOperationsProviderProperties.getProvider())
+                && sender != null;
+    }
 }
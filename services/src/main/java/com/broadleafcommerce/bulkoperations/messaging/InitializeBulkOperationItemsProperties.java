@@ -18,6 +18,9 @@ package com.broadleafcommerce.bulkoperations.messaging;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
+import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -30,4 +33,219 @@ public class InitializeBulkOperationItemsProperties {
     @Getter
     @Setter
     private int batchSize = 50;
+
+    /**
+     * The strategy used to walk the search results and initialize the bulk operation items. Default
+     * is {@link Mode#SEQUENTIAL}.
+     */
+    @Getter
+    @Setter
+    private Mode mode = Mode.SEQUENTIAL;
+
+    /**
+     * When running in {@link Mode#PIPELINED} or {@link Mode#REACTIVE}, the number of search pages
+     * that are requested ahead of the page currently being initialized in catalog. Values below 1
+     * are treated as 1.
+     */
+    @Getter
+    @Setter
+    private int prefetchDepth = 1;
+
+    /**
+     * When running in {@link Mode#PARALLEL}, the maximum number of pages that are searched and
+     * initialized concurrently for a single bulk operation. Values below 1 are treated as 1.
+     */
+    @Getter
+    @Setter
+    private int maxConcurrency = 4;
+
+    /**
+     * When running in {@link Mode#SHARDED}, the number of search pages initialized by each shard
+     * message. Values below 1 are treated as 1.
+     */
+    @Getter
+    @Setter
+    private int pagesPerShard = 20;
+
+    /**
+     * Settings for reporting the progress of the item initialization to catalog while it is still
+     * running.
+     */
+    @Getter
+    @Setter
+    private ProgressUpdates progressUpdates = new ProgressUpdates();
+
+    /**
+     * Settings for checking whether a bulk operation has been canceled while its items are being
+     * initialized.
+     */
+    @Getter
+    @Setter
+    private CancellationCheck cancellationCheck = new CancellationCheck();
+
+    /**
+     * Whether the initialization of each bulk operation, and the work it hands off to the
+     * executor, such as prefetched search pages in {@link Mode#PIPELINED} and page tasks in
+     * {@link Mode#PARALLEL}, runs on its own virtual thread rather than on a pool of platform
+     * threads. The load on the providers stays bounded by {@link #getPrefetchDepth()} and
+     * {@link #getMaxConcurrency()} rather than by a number of threads. Requires Java 21 or later,
+     * and is ignored with a warning otherwise. Default is {@code false}.
+     */
+    @Getter
+    @Setter
+    private boolean virtualThreads = false;
+
+    /**
+     * Settings for the pool of platform threads shared by all bulk operations initialized on this
+     * node. Not used when {@link #isVirtualThreads() virtual threads} are enabled.
+     */
+    @Getter
+    @Setter
+    private ExecutorPool executor = new ExecutorPool();
+
+    /**
+     * Settings for adjusting the batch size of each bulk operation based on the observed latency
+     * of the search and catalog requests.
+     */
+    @Getter
+    @Setter
+    private AdaptiveBatchSize adaptiveBatchSize = new AdaptiveBatchSize();
+
+    @Data
+    public static class AdaptiveBatchSize {
+
+        /**
+         * Whether the batch size should be adjusted while the items are initialized. When enabled,
+         * {@link InitializeBulkOperationItemsProperties#getBatchSize()} is the starting batch
+         * size. Not applied in {@link Mode#PARALLEL}, where the pages are computed up front.
+         * Default is {@code false}.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The smallest batch size to shrink to. Default is 10.
+         */
+        private int minBatchSize = 10;
+
+        /**
+         * The largest batch size to grow to. Default is 500.
+         */
+        private int maxBatchSize = 500;
+
+        /**
+         * The latency the slower of the search and initialize requests for a page should stay
+         * under. The batch size is halved when a page exceeds it, and doubled while pages take
+         * less than half of it. Default is 2 seconds.
+         */
+        private Duration targetLatency = Duration.ofSeconds(2);
+    }
+
+    @Data
+    public static class ExecutorPool {
+
+        /**
+         * The most threads that run the work handed off by the listener at the same time, across
+         * all bulk operations. Work submitted while all threads are busy is queued. The queue
+         * stays bounded since the work of each bulk operation is bounded by
+         * {@link InitializeBulkOperationItemsProperties#getPrefetchDepth()} or
+         * {@link InitializeBulkOperationItemsProperties#getMaxConcurrency()}. Default is 16.
+         */
+        private int poolSize = 16;
+
+        /**
+         * How long a thread may stay idle before it is stopped. Default is 60 seconds.
+         */
+        private Duration keepAlive = Duration.ofSeconds(60);
+    }
+
+    @Data
+    public static class ProgressUpdates {
+
+        /**
+         * Whether the total number of search results is reported as the bulk operation's total
+         * record count as soon as the first page is initialized, and the running number of
+         * initialized items is reported periodically afterwards. Shards in {@link Mode#SHARDED}
+         * do not report progress. Default is {@code false}.
+         * <p>
+         * The running count is only sent by the external catalog provider if
+         * {@code broadleaf.bulkoperations.catalogprovider.bulk-operation-initialized-records-uri}
+         * is set, which requires a matching endpoint to be added to the catalog service.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The number of initialized pages after which the running count is reported. Default is
+         * 10.
+         */
+        private int pageInterval = 10;
+
+        /**
+         * The time after which the running count is reported when pages are initialized slower
+         * than {@link #getPageInterval()}. Default is 30 seconds.
+         */
+        private Duration timeInterval = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class CancellationCheck {
+
+        /**
+         * Whether the status of the bulk operation is checked while its items are being
+         * initialized, so that the initialization stops, and the bulk operation is not processed,
+         * once it has been canceled. Default is {@code false}.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The number of initialized pages after which the status is checked again. This bounds
+         * the number of pages initialized after a bulk operation is canceled. Default is 10.
+         */
+        private int pageInterval = 10;
+
+        /**
+         * The time after which the status is checked again when pages are initialized slower
+         * than {@link #getPageInterval()}. Default is 30 seconds.
+         */
+        private Duration timeInterval = Duration.ofSeconds(30);
+    }
+
+    public enum Mode {
+        /**
+         * Each page is searched and then initialized before the next page is searched.
+         */
+        SEQUENTIAL,
+
+        /**
+         * Upcoming search pages are fetched while the current page is being initialized, so that
+         * the search and catalog requests overlap.
+         */
+        PIPELINED,
+
+        /**
+         * The page ranges are computed from the total number of search results reported by the
+         * first page, and the remaining pages are searched and initialized concurrently, bounded
+         * by {@link InitializeBulkOperationItemsProperties#getMaxConcurrency()}. Falls back to
+         * {@link #SEQUENTIAL} if the total is unknown or results are paged by cursor.
+         */
+        PARALLEL,
+
+        /**
+         * Like {@link #PIPELINED}, but the pages are streamed through non-blocking search and
+         * catalog requests, so no thread is held while they are in flight. Requires the providers
+         * to implement {@code ReactiveSearchProvider} and {@code ReactiveCatalogProvider}, and
+         * falls back to {@link #PIPELINED} otherwise.
+         */
+        REACTIVE,
+
+        /**
+         * The total number of search results reported by the first page is used to split the
+         * pages into shards of {@link InitializeBulkOperationItemsProperties#getPagesPerShard()}
+         * pages, which are published as separate initialize items messages so that they are
+         * consumed across the cluster. The bulk operation is processed once the last shard
+         * completes. Falls back to {@link #SEQUENTIAL} if the total is unknown, results are paged
+         * by cursor, or there is only a single shard. Requires a shard service that is shared by
+         * the cluster, such as the one of the JPA provider, and fails at startup otherwise.
+         */
+        SHARDED
+    }
 }
@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.messaging;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.lang.Nullable;
+
+import com.broadleafcommerce.bulkoperations.domain.InitializeItemsCheckpoint;
+import com.broadleafcommerce.data.tracking.core.filtering.DefaultPageRequest;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+
+import lombok.Getter;
+
+/**
+ * Tracks how far the initialization of a bulk operation's items has progressed. Progress only
+ * advances over a contiguous run of initialized pages, so that a
+ * {@link InitializeItemsCheckpoint checkpoint} taken from it never skips a page, even when pages
+ * complete out of order.
+ */
+public class InitializeItemsProgress {
+
+    @Getter
+    private final String bulkOperationId;
+
+    /**
+     * The offset of the first search result that has not been initialized yet.
+     */
+    @Getter
+    private volatile long nextOffset;
+
+    /**
+     * The batch size the search results are paged through with.
+     */
+    @Getter
+    private volatile int batchSize;
+
+    /**
+     * The cursor to search the page at {@link #getNextOffset()} with, if any.
+     */
+    @Getter
+    @Nullable
+    private volatile String cursor;
+
+    /**
+     * The number of bulk operation items initialized for the search results before
+     * {@link #getNextOffset()}.
+     */
+    @Getter
+    private volatile long totalItemRecords;
+
+    /**
+     * Pages initialized ahead of {@link #getNextOffset()}, keyed by their offset.
+     */
+    private final Map<Long, InitializedPage> initializedPagesAhead = new TreeMap<>();
+
+    private boolean searchTotalReported;
+
+    private final IntervalClaim progressReportClaim = new IntervalClaim();
+
+    private long lastReportedItemRecords = -1;
+
+    private final IntervalClaim cancellationCheckClaim = new IntervalClaim();
+
+    /**
+     * Whether the bulk operation has been found to be canceled.
+     */
+    @Getter
+    private volatile boolean canceled;
+
+    public InitializeItemsProgress(String bulkOperationId, int batchSize) {
+        this.bulkOperationId = bulkOperationId;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Resumes the progress from a checkpoint. The configured batch size is used if the
+     * checkpoint's offset falls on a page boundary for it, otherwise the checkpoint's batch size
+     * is kept.
+     *
+     * @param checkpoint the checkpoint to resume from
+     * @param configuredBatchSize the currently configured batch size
+     * @return the resumed progress
+     */
+    public static InitializeItemsProgress resume(InitializeItemsCheckpoint checkpoint,
+            int configuredBatchSize) {
+        boolean aligned = configuredBatchSize > 0
+                && checkpoint.getNextOffset() % configuredBatchSize == 0;
+        InitializeItemsProgress progress = new InitializeItemsProgress(
+                checkpoint.getBulkOperationId(),
+                aligned ? configuredBatchSize : checkpoint.getBatchSize());
+        progress.nextOffset = checkpoint.getNextOffset();
+        progress.cursor = checkpoint.getCursor();
+        progress.totalItemRecords = checkpoint.getTotalItemRecords();
+        return progress;
+    }
+
+    /**
+     * The page of search results starting at {@link #getNextOffset()}.
+     *
+     * @return the next page to search
+     */
+    public synchronized Pageable getNextPageable() {
+        return new DefaultPageRequest((int) (nextOffset / batchSize), batchSize);
+    }
+
+    /**
+     * Records that a page of search results has been initialized.
+     *
+     * @param pageable the page that was initialized
+     * @param itemCount the number of bulk operation items initialized for the page
+     * @param nextCursor the cursor for the page following it, if any
+     * @return a checkpoint of the progress if it advanced, or {@code null} if the page was
+     *         initialized ahead of pages that are still outstanding
+     */
+    @Nullable
+    public synchronized InitializeItemsCheckpoint pageInitialized(Pageable pageable,
+            long itemCount,
+            @Nullable String nextCursor) {
+        initializedPagesAhead.put(pageable.getOffset(),
+                new InitializedPage(pageable.getPageSize(), itemCount, nextCursor));
+
+        boolean advanced = false;
+        InitializedPage page;
+        while ((page = initializedPagesAhead.remove(nextOffset)) != null) {
+            nextOffset += page.pageSize;
+            // the next offset is always a multiple of the size of the page that ended at it
+            batchSize = page.pageSize;
+            totalItemRecords += page.itemCount;
+            cursor = page.nextCursor;
+            advanced = true;
+        }
+
+        return advanced ? toCheckpoint() : null;
+    }
+
+    /**
+     * Changes the batch size used to page through the search results from
+     * {@link #getNextOffset()} onwards.
+     *
+     * @param requestedBatchSize the requested batch size
+     * @param minBatchSize the smallest batch size that may be used
+     * @return the batch size now in use
+     * @see #alignBatchSize(long, int, int, int)
+     */
+    public synchronized int resize(int requestedBatchSize, int minBatchSize) {
+        batchSize = alignBatchSize(nextOffset, batchSize, requestedBatchSize, minBatchSize);
+        return batchSize;
+    }
+
+    /**
+     * Determines the batch size to page through the search results with from the given offset.
+     * As pages are requested by page number, the batch size must evenly divide the offset. The
+     * largest batch size up to the requested one that does so is used, as long as it is larger than
+     * the current batch size when growing, or no smaller than the minimum batch size when
+     * shrinking. Otherwise, the current batch size is kept.
+     *
+     * @param offset the offset of the first page to use the batch size for
+     * @param currentBatchSize the batch size of the page ending at the offset
+     * @param requestedBatchSize the requested batch size
+     * @param minBatchSize the smallest batch size that may be used
+     * @return the batch size to use from the offset
+     */
+    public static int alignBatchSize(long offset,
+            int currentBatchSize,
+            int requestedBatchSize,
+            int minBatchSize) {
+        int lowerBound = requestedBatchSize > currentBatchSize ? currentBatchSize + 1
+                : Math.max(1, minBatchSize);
+
+        for (int candidate = requestedBatchSize; candidate >= lowerBound; candidate--) {
+            if (offset % candidate == 0) {
+                return candidate;
+            }
+        }
+        return currentBatchSize;
+    }
+
+    /**
+     * Claims reporting the total number of search results. Only the first call claims it, so the
+     * total is reported once per attempt at initializing the items.
+     *
+     * @return true if the caller should report the total
+     */
+    public synchronized boolean claimSearchTotalReport() {
+        if (searchTotalReported) {
+            return false;
+        }
+        searchTotalReported = true;
+        return true;
+    }
+
+    /**
+     * Records that a page has been initialized and claims reporting the
+     * {@link #getTotalItemRecords() initialized items} if at least {@code pageInterval} pages or
+     * {@code timeInterval} have passed since the last report. Reports are coalesced, so a report is
+     * never claimed when the count has not changed since the last one.
+     *
+     * @param pageInterval the number of pages between reports
+     * @param timeInterval the time between reports
+     * @return true if the caller should report the initialized items
+     */
+    public synchronized boolean claimProgressReport(int pageInterval, Duration timeInterval) {
+        if (!progressReportClaim.claim(pageInterval, timeInterval)
+                || totalItemRecords == lastReportedItemRecords) {
+            return false;
+        }
+
+        lastReportedItemRecords = totalItemRecords;
+        return true;
+    }
+
+    /**
+     * Records that a page has been initialized and claims checking whether the bulk operation has
+     * been canceled if at least {@code pageInterval} pages or {@code timeInterval} have passed
+     * since the last check.
+     *
+     * @param pageInterval the number of pages between checks
+     * @param timeInterval the time between checks
+     * @return true if the caller should check whether the bulk operation has been canceled
+     */
+    public synchronized boolean claimCancellationCheck(int pageInterval, Duration timeInterval) {
+        return cancellationCheckClaim.claim(pageInterval, timeInterval);
+    }
+
+    /**
+     * Records that the bulk operation has been canceled, so that every page still being
+     * initialized stops.
+     */
+    public void markCanceled() {
+        canceled = true;
+    }
+
+    /**
+     * Takes a checkpoint of the current progress.
+     *
+     * @return the checkpoint
+     */
+    public synchronized InitializeItemsCheckpoint toCheckpoint() {
+        InitializeItemsCheckpoint checkpoint = new InitializeItemsCheckpoint();
+        checkpoint.setBulkOperationId(bulkOperationId);
+        checkpoint.setNextOffset(nextOffset);
+        checkpoint.setBatchSize(batchSize);
+        checkpoint.setCursor(cursor);
+        checkpoint.setTotalItemRecords(totalItemRecords);
+        return checkpoint;
+    }
+
+    /**
+     * Claims doing something once every so many pages or so much time, whichever comes first.
+     */
+    private static class IntervalClaim {
+
+        private int pagesSinceClaim;
+
+        private long lastClaimNanos = System.nanoTime();
+
+        private boolean claim(int pageInterval, Duration timeInterval) {
+            pagesSinceClaim++;
+            long now = System.nanoTime();
+            if (pagesSinceClaim < pageInterval && now - lastClaimNanos < timeInterval.toNanos()) {
+                return false;
+            }
+
+            pagesSinceClaim = 0;
+            lastClaimNanos = now;
+            return true;
+        }
+    }
+
+    private static class InitializedPage {
+        private final int pageSize;
+        private final long itemCount;
+        private final String nextCursor;
+
+        private InitializedPage(int pageSize, long itemCount, @Nullable String nextCursor) {
+            this.pageSize = pageSize;
+            this.itemCount = itemCount;
+            this.nextCursor = nextCursor;
+        }
+    }
+}
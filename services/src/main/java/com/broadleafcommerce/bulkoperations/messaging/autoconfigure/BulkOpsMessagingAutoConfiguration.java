@@ -16,17 +16,29 @@
  */
 package com.broadleafcommerce.bulkoperations.messaging.autoconfigure;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.stream.annotation.EnableBinding;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
+import com.broadleafcommerce.bulk.v2.messaging.BulkOpsInitializeItemsRequestProducer;
 import com.broadleafcommerce.bulk.v2.messaging.BulkOpsProcessRequestProducer;
 import com.broadleafcommerce.bulkoperations.domain.CatalogItem;
+import com.broadleafcommerce.bulkoperations.messaging.AdaptiveBatchSizeController;
 import com.broadleafcommerce.bulkoperations.messaging.BulkOpsInitializeItemsConsumer;
 import com.broadleafcommerce.bulkoperations.messaging.InitializeBulkOperationItemsListener;
 import com.broadleafcommerce.bulkoperations.messaging.InitializeBulkOperationItemsProperties;
+import com.broadleafcommerce.bulkoperations.messaging.VirtualThreads;
+import com.broadleafcommerce.bulkoperations.provider.jpa.autoconfigure.BulkOperationsJpaAutoConfiguration;
+import com.broadleafcommerce.bulkoperations.service.BulkOperationsMetrics;
+import com.broadleafcommerce.bulkoperations.service.InMemoryInitializeItemsShardService;
+import com.broadleafcommerce.bulkoperations.service.InitializeItemsCheckpointService;
+import com.broadleafcommerce.bulkoperations.service.InitializeItemsShardService;
+import com.broadleafcommerce.bulkoperations.service.NoOpInitializeItemsCheckpointService;
 import com.broadleafcommerce.bulkoperations.service.environment.BulkOperationsProviderProperties;
 import com.broadleafcommerce.bulkoperations.service.provider.CatalogProvider;
 import com.broadleafcommerce.bulkoperations.service.provider.SearchProvider;
@@ -35,11 +47,23 @@ import com.broadleafcommerce.common.extension.TypeFactory;
 import com.broadleafcommerce.common.messaging.notification.DetachedDurableMessageSender;
 import com.broadleafcommerce.common.messaging.service.IdempotentMessageConsumptionService;
 
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 @Configuration
 @ConditionalOnPropertyOrGroup(
         name = "broadleaf.bulkoperations.messaging.active",
         group = "broadleaf.basic.messaging.enabled",
         matchIfMissing = true)
+@AutoConfigureAfter(BulkOperationsJpaAutoConfiguration.class)
 @EnableConfigurationProperties(InitializeBulkOperationItemsProperties.class)
 @EnableBinding({BulkOpsInitializeItemsConsumer.class})
 public class BulkOpsMessagingAutoConfiguration {
@@ -54,7 +78,20 @@ public class BulkOpsMessagingAutoConfiguration {
             DetachedDurableMessageSender sender,
             BulkOpsProcessRequestProducer processRequestProducer,
             BulkOperationsProviderProperties bulkOperationsProviderProperties,
-            TypeFactory typeFactory) {
+            TypeFactory typeFactory,
+            @Qualifier("bulkOpsInitializeItemsExecutor") ExecutorService initializeItemsExecutor,
+            InitializeItemsCheckpointService checkpointService,
+            AdaptiveBatchSizeController batchSizeController,
+            BulkOpsInitializeItemsRequestProducer initializeItemsRequestProducer,
+            InitializeItemsShardService shardService,
+            BulkOperationsMetrics bulkOperationsMetrics) {
+        if (initializeBulkOperationItemsProperties
+                .getMode() == InitializeBulkOperationItemsProperties.Mode.SHARDED
+                && !shardService.isShared()) {
+            throw new IllegalStateException("The SHARDED initialize items mode requires a shard"
+                    + " service shared by the cluster, such as the one of the JPA provider, as"
+                    + " shards are consumed by any node.");
+        }
         return new InitializeBulkOperationItemsListener(initializeBulkOperationItemsProperties,
                 catalogProvider,
                 searchProvider,
@@ -62,6 +99,74 @@ public class BulkOpsMessagingAutoConfiguration {
                 sender,
                 processRequestProducer,
                 bulkOperationsProviderProperties,
-                typeFactory);
+                typeFactory,
+                initializeItemsExecutor,
+                checkpointService,
+                batchSizeController,
+                initializeItemsRequestProducer,
+                shardService,
+                bulkOperationsMetrics);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    AdaptiveBatchSizeController bulkOpsAdaptiveBatchSizeController(
+            InitializeBulkOperationItemsProperties initializeBulkOperationItemsProperties,
+            Optional<MeterRegistry> meterRegistry) {
+        return new AdaptiveBatchSizeController(initializeBulkOperationItemsProperties,
+                meterRegistry.orElse(Metrics.globalRegistry));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    InitializeItemsCheckpointService bulkOpsInitializeItemsCheckpointService() {
+        return new NoOpInitializeItemsCheckpointService();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    InitializeItemsShardService bulkOpsInitializeItemsShardService() {
+        return new InMemoryInitializeItemsShardService();
+    }
+
+    /**
+     * Executor used by {@link InitializeBulkOperationItemsListener} to request search pages ahead
+     * of the page currently being initialized, or to initialize pages concurrently. The amount of
+     * work submitted per bulk operation is bounded by
+     * {@link InitializeBulkOperationItemsProperties#getPrefetchDepth()} and
+     * {@link InitializeBulkOperationItemsProperties#getMaxConcurrency()} respectively.
+     * <p>
+     * If {@link InitializeBulkOperationItemsProperties#isVirtualThreads()} is enabled and the
+     * runtime supports it, each task, including the initialization of each bulk operation, runs
+     * on its own virtual thread. Otherwise, the number of platform threads shared by all bulk
+     * operations is bounded by
+     * {@link InitializeBulkOperationItemsProperties.ExecutorPool#getPoolSize()}, so that
+     * concurrent bulk operations cannot exhaust the node.
+     */
+    @Bean(name = "bulkOpsInitializeItemsExecutor", destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(name = "bulkOpsInitializeItemsExecutor")
+    ExecutorService bulkOpsInitializeItemsExecutor(
+            InitializeBulkOperationItemsProperties initializeBulkOperationItemsProperties) {
+        if (initializeBulkOperationItemsProperties.isVirtualThreads()) {
+            ExecutorService virtualThreadExecutor =
+                    VirtualThreads.newVirtualThreadPerTaskExecutor();
+            if (virtualThreadExecutor != null) {
+                return virtualThreadExecutor;
+            }
+            log.warn("Virtual threads are not supported by this Java runtime, falling back to "
+                    + "platform threads for initializing bulk operation items.");
+        }
+
+        InitializeBulkOperationItemsProperties.ExecutorPool pool =
+                initializeBulkOperationItemsProperties.getExecutor();
+        int poolSize = Math.max(1, pool.getPoolSize());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize,
+                poolSize,
+                pool.getKeepAlive().toMillis(),
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("bulk-ops-initialize-items-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 }
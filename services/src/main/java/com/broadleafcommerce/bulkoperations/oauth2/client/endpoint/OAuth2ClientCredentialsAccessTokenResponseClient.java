@@ -16,32 +16,20 @@
  */
 package com.broadleafcommerce.bulkoperations.oauth2.client.endpoint;
 
-import static org.springframework.security.oauth2.core.web.reactive.function.OAuth2BodyExtractors.oauth2AccessTokenResponse;
-
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.security.oauth2.client.endpoint.DefaultClientCredentialsTokenResponseClient;
 import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
 import org.springframework.security.oauth2.client.endpoint.OAuth2ClientCredentialsGrantRequest;
 import org.springframework.security.oauth2.client.endpoint.WebClientReactiveClientCredentialsTokenResponseClient;
-import org.springframework.security.oauth2.client.registration.ClientRegistration;
-import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
 import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
-import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
 import org.springframework.security.oauth2.core.http.converter.OAuth2AccessTokenResponseHttpMessageConverter;
 import org.springframework.util.Assert;
-import org.springframework.util.CollectionUtils;
-import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import java.util.Map;
-import java.util.Set;
-import java.util.function.Consumer;
 
-import lombok.RequiredArgsConstructor;
+import lombok.AccessLevel;
+import lombok.Getter;
 
 /**
  * Alternative to {@link DefaultClientCredentialsTokenResponseClient} that uses {@link WebClient}
@@ -60,84 +48,31 @@ import lombok.RequiredArgsConstructor;
  *
  * <p>
  * This implementation also takes a lot of inspiration from
- * {@link WebClientReactiveClientCredentialsTokenResponseClient}, which is the reactive version of
- * this component.
+ * {@link WebClientReactiveClientCredentialsTokenResponseClient}. The request itself is made by
+ * {@link ReactiveOAuth2ClientCredentialsAccessTokenResponseClient}, which callers that must not
+ * block should use directly, and whose timeout and retry policy apply here as well.
  *
  * @author Marie Standeven (marieStandeven)
  */
-@RequiredArgsConstructor
 public class OAuth2ClientCredentialsAccessTokenResponseClient implements
         OAuth2AccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> {
-    private final WebClient webClient;
-
-    @Override
-    public OAuth2AccessTokenResponse getTokenResponse(
-            OAuth2ClientCredentialsGrantRequest clientCredentialsGrantRequest) {
-        Assert.notNull(clientCredentialsGrantRequest,
-                "clientCredentialsGrantRequest cannot be null");
 
-        BodyInserters.FormInserter<String> body = body(clientCredentialsGrantRequest);
+    @Getter(AccessLevel.PROTECTED)
+    private final ReactiveOAuth2ClientCredentialsAccessTokenResponseClient reactiveClient;
 
-        ClientRegistration clientRegistration =
-                clientCredentialsGrantRequest.getClientRegistration();
-        String tokenUri = clientRegistration.getProviderDetails().getTokenUri();
-        return webClient.post()
-                .uri(tokenUri)
-                .accept(MediaType.APPLICATION_JSON)
-                .headers(headers(clientRegistration))
-                .body(body)
-                .exchange()
-                .flatMap(response -> {
-                    if (!response.statusCode().is2xxSuccessful()) {
-                        // extract the contents of this into a method named
-                        // oauth2AccessTokenResponse but has an argument for the response
-                        throw WebClientResponseException.create(response.rawStatusCode(),
-                                "Cannot get token, expected 2xx HTTP Status code",
-                                null,
-                                null,
-                                null);
-                    }
-                    return response.body(oauth2AccessTokenResponse());
-                })
-                .map(response -> {
-                    if (response.getAccessToken().getScopes().isEmpty()) {
-                        response = OAuth2AccessTokenResponse.withResponse(response)
-                                .scopes(clientRegistration.getScopes())
-                                .build();
-                    }
-                    return response;
-                })
-                .block();
+    public OAuth2ClientCredentialsAccessTokenResponseClient(WebClient webClient) {
+        this(new ReactiveOAuth2ClientCredentialsAccessTokenResponseClient(webClient));
     }
 
-    private Consumer<HttpHeaders> headers(ClientRegistration clientRegistration) {
-        return headers -> {
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-            if (ClientAuthenticationMethod.CLIENT_SECRET_BASIC
-                    .equals(clientRegistration.getClientAuthenticationMethod())) {
-                headers.setBasicAuth(clientRegistration.getClientId(),
-                        clientRegistration.getClientSecret());
-            }
-        };
+    public OAuth2ClientCredentialsAccessTokenResponseClient(
+            ReactiveOAuth2ClientCredentialsAccessTokenResponseClient reactiveClient) {
+        Assert.notNull(reactiveClient, "reactiveClient cannot be null");
+        this.reactiveClient = reactiveClient;
     }
 
-    private static BodyInserters.FormInserter<String> body(
-            OAuth2ClientCredentialsGrantRequest authorizationGrantRequest) {
-        ClientRegistration clientRegistration = authorizationGrantRequest.getClientRegistration();
-        BodyInserters.FormInserter<String> body = BodyInserters
-                .fromFormData(
-                        OAuth2ParameterNames.GRANT_TYPE,
-                        authorizationGrantRequest.getGrantType().getValue());
-        Set<String> scopes = clientRegistration.getScopes();
-        if (!CollectionUtils.isEmpty(scopes)) {
-            String scope = StringUtils.collectionToDelimitedString(scopes, " ");
-            body.with(OAuth2ParameterNames.SCOPE, scope);
-        }
-        if (ClientAuthenticationMethod.CLIENT_SECRET_POST
-                .equals(clientRegistration.getClientAuthenticationMethod())) {
-            body.with(OAuth2ParameterNames.CLIENT_ID, clientRegistration.getClientId());
-            body.with(OAuth2ParameterNames.CLIENT_SECRET, clientRegistration.getClientSecret());
-        }
-        return body;
+    @Override
+    public OAuth2AccessTokenResponse getTokenResponse(
+            OAuth2ClientCredentialsGrantRequest clientCredentialsGrantRequest) {
+        return reactiveClient.getTokenResponse(clientCredentialsGrantRequest).block();
     }
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.oauth2.client.endpoint;
+
+import static org.springframework.security.oauth2.core.web.reactive.function.OAuth2BodyExtractors.oauth2AccessTokenResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.client.endpoint.OAuth2ClientCredentialsGrantRequest;
+import org.springframework.security.oauth2.client.endpoint.ReactiveOAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.WebClientReactiveClientCredentialsTokenResponseClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Reactive counterpart of {@link OAuth2ClientCredentialsAccessTokenResponseClient}, allowing for
+ * access token responses that contain additional non-String parameters.
+ *
+ * <p>
+ * Unlike {@link WebClientReactiveClientCredentialsTokenResponseClient}, each attempt is bounded by
+ * a {@link #setTimeout(Duration) timeout}, and attempts that fail without a response, time out, or
+ * are answered with {@code 429} or a {@code 5xx} status are retried with exponential backoff, so
+ * that a slow or briefly unavailable auth server does not stall the requests waiting on a token.
+ */
+public class ReactiveOAuth2ClientCredentialsAccessTokenResponseClient implements
+        ReactiveOAuth2AccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> {
+
+    private final WebClient webClient;
+    private Duration timeout = Duration.ofSeconds(10);
+    private int maxAttempts = 3;
+    private Duration initialBackoff = Duration.ofMillis(200);
+    private Duration maxBackoff = Duration.ofSeconds(2);
+
+    public ReactiveOAuth2ClientCredentialsAccessTokenResponseClient(WebClient webClient) {
+        Assert.notNull(webClient, "webClient cannot be null");
+        this.webClient = webClient;
+    }
+
+    @Override
+    public Mono<OAuth2AccessTokenResponse> getTokenResponse(
+            OAuth2ClientCredentialsGrantRequest clientCredentialsGrantRequest) {
+        Assert.notNull(clientCredentialsGrantRequest,
+                "clientCredentialsGrantRequest cannot be null");
+
+        ClientRegistration clientRegistration =
+                clientCredentialsGrantRequest.getClientRegistration();
+        String tokenUri = clientRegistration.getProviderDetails().getTokenUri();
+        Mono<OAuth2AccessTokenResponse> tokenResponse = Mono.defer(() -> webClient.post()
+                .uri(tokenUri)
+                .accept(MediaType.APPLICATION_JSON)
+                .headers(headers(clientRegistration))
+                .body(body(clientCredentialsGrantRequest))
+                .exchangeToMono(response -> {
+                    if (!response.statusCode().is2xxSuccessful()) {
+                        WebClientResponseException exception = WebClientResponseException.create(
+                                response.statusCode().value(),
+                                "Cannot get token, expected 2xx HTTP Status code",
+                                response.headers().asHttpHeaders(),
+                                null,
+                                null);
+                        return response.releaseBody().then(Mono.error(exception));
+                    }
+                    return response.body(oauth2AccessTokenResponse());
+                }))
+                .timeout(timeout);
+
+        if (maxAttempts > 1) {
+            tokenResponse = tokenResponse.retryWhen(Retry.backoff(maxAttempts - 1, initialBackoff)
+                    .maxBackoff(maxBackoff)
+                    .filter(this::isRetryable)
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        }
+
+        return tokenResponse.map(response -> {
+            if (response.getAccessToken().getScopes().isEmpty()) {
+                response = OAuth2AccessTokenResponse.withResponse(response)
+                        .scopes(clientRegistration.getScopes())
+                        .build();
+            }
+            return response;
+        });
+    }
+
+    /**
+     * Whether a failed attempt to get a token should be retried.
+     *
+     * @param throwable the failure
+     * @return whether the attempt should be retried
+     */
+    protected boolean isRetryable(Throwable throwable) {
+        if (throwable instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is5xxServerError()
+                    || responseException.getStatusCode()
+                            .isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS);
+        }
+        return throwable instanceof WebClientRequestException
+                || throwable instanceof TimeoutException;
+    }
+
+    /**
+     * Sets how long a single attempt to get a token may take. Defaults to 10 seconds.
+     *
+     * @param timeout the timeout of a single attempt
+     */
+    public void setTimeout(Duration timeout) {
+        Assert.notNull(timeout, "timeout cannot be null");
+        Assert.isTrue(timeout.isPositive(), "timeout must be > 0");
+        this.timeout = timeout;
+    }
+
+    /**
+     * Sets the maximum number of attempts, including the first one. Defaults to 3.
+     *
+     * @param maxAttempts the maximum number of attempts
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        Assert.isTrue(maxAttempts > 0, "maxAttempts must be > 0");
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Sets the backoff before the first retry. Defaults to 200 milliseconds.
+     *
+     * @param initialBackoff the backoff before the first retry
+     */
+    public void setInitialBackoff(Duration initialBackoff) {
+        Assert.notNull(initialBackoff, "initialBackoff cannot be null");
+        this.initialBackoff = initialBackoff;
+    }
+
+    /**
+     * Sets the longest backoff between attempts. Defaults to 2 seconds.
+     *
+     * @param maxBackoff the longest backoff between attempts
+     */
+    public void setMaxBackoff(Duration maxBackoff) {
+        Assert.notNull(maxBackoff, "maxBackoff cannot be null");
+        this.maxBackoff = maxBackoff;
+    }
+
+    private Consumer<HttpHeaders> headers(ClientRegistration clientRegistration) {
+        return headers -> {
+            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+            if (ClientAuthenticationMethod.CLIENT_SECRET_BASIC
+                    .equals(clientRegistration.getClientAuthenticationMethod())) {
+                headers.setBasicAuth(clientRegistration.getClientId(),
+                        clientRegistration.getClientSecret());
+            }
+        };
+    }
+
+    private static BodyInserters.FormInserter<String> body(
+            OAuth2ClientCredentialsGrantRequest authorizationGrantRequest) {
+        ClientRegistration clientRegistration = authorizationGrantRequest.getClientRegistration();
+        BodyInserters.FormInserter<String> body = BodyInserters
+                .fromFormData(
+                        OAuth2ParameterNames.GRANT_TYPE,
+                        authorizationGrantRequest.getGrantType().getValue());
+        Set<String> scopes = clientRegistration.getScopes();
+        if (!CollectionUtils.isEmpty(scopes)) {
+            String scope = StringUtils.collectionToDelimitedString(scopes, " ");
+            body.with(OAuth2ParameterNames.SCOPE, scope);
+        }
+        if (ClientAuthenticationMethod.CLIENT_SECRET_POST
+                .equals(clientRegistration.getClientAuthenticationMethod())) {
+            body.with(OAuth2ParameterNames.CLIENT_ID, clientRegistration.getClientId());
+            body.with(OAuth2ParameterNames.CLIENT_SECRET, clientRegistration.getClientSecret());
+        }
+        return body;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.oauth2.client.web;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientService;
+import org.springframework.util.Assert;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Exposes a blocking {@link OAuth2AuthorizedClientService}, such as the store that shares tokens
+ * across nodes, as a {@link ReactiveOAuth2AuthorizedClientService}. Every call runs on
+ * {@link Schedulers#boundedElastic()}, so the blocking store never runs on a non-blocking thread.
+ */
+public class BlockingReactiveOAuth2AuthorizedClientService
+        implements ReactiveOAuth2AuthorizedClientService {
+
+    private final OAuth2AuthorizedClientService delegate;
+
+    public BlockingReactiveOAuth2AuthorizedClientService(
+            OAuth2AuthorizedClientService delegate) {
+        Assert.notNull(delegate, "delegate cannot be null");
+        this.delegate = delegate;
+    }
+
+    @Override
+    public <T extends OAuth2AuthorizedClient> Mono<T> loadAuthorizedClient(
+            String clientRegistrationId,
+            String principalName) {
+        return Mono.fromCallable(
+                () -> delegate.<T>loadAuthorizedClient(clientRegistrationId, principalName))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Void> saveAuthorizedClient(OAuth2AuthorizedClient authorizedClient,
+            Authentication principal) {
+        return Mono.<Void>fromRunnable(
+                () -> delegate.saveAuthorizedClient(authorizedClient, principal))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Void> removeAuthorizedClient(String clientRegistrationId, String principalName) {
+        return Mono.<Void>fromRunnable(
+                () -> delegate.removeAuthorizedClient(clientRegistrationId, principalName))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.oauth2.client.web;
+
+import org.springframework.security.oauth2.client.web.reactive.function.client.ServerOAuth2AuthorizedClientExchangeFilterFunction;
+import org.springframework.security.oauth2.client.web.reactive.function.client.ServletOAuth2AuthorizedClientExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Request attributes understood by both OAuth2 exchange filter functions, so that requests work
+ * regardless of whether the {@link WebClient} authorizes them through
+ * {@link ServletOAuth2AuthorizedClientExchangeFilterFunction} or
+ * {@link ServerOAuth2AuthorizedClientExchangeFilterFunction}.
+ */
+public final class OAuth2ClientAttributes {
+
+    private OAuth2ClientAttributes() {}
+
+    /**
+     * Modifies the request attributes to include the client registration id to authorize with.
+     *
+     * @param clientRegistrationId the id of the client registration to use
+     * @return the {@link Consumer} to populate the attributes
+     */
+    public static Consumer<Map<String, Object>> clientRegistrationId(
+            String clientRegistrationId) {
+        return ServletOAuth2AuthorizedClientExchangeFilterFunction
+                .clientRegistrationId(clientRegistrationId)
+                .andThen(ServerOAuth2AuthorizedClientExchangeFilterFunction
+                        .clientRegistrationId(clientRegistrationId));
+    }
+}
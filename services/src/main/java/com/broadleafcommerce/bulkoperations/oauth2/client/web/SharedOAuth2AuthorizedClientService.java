@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.oauth2.client.web;
+
+import org.springframework.lang.Nullable;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+
+/**
+ * {@link OAuth2AuthorizedClientService} whose authorized clients are shared by several nodes and
+ * may be served from a local copy for a while. Lets
+ * {@link SynchronizedDelegatingOAuth2AuthorizedClientManager} check whether another node already
+ * obtained a new token before it calls the auth server itself.
+ */
+public interface SharedOAuth2AuthorizedClientService extends OAuth2AuthorizedClientService {
+
+    /**
+     * Loads the authorized client from the shared store, bypassing any local copy, and replaces
+     * the local copy with it.
+     *
+     * @param clientRegistrationId the identifier of the client registration
+     * @param principalName the name of the principal
+     * @return the stored authorized client, or {@code null} if there is none
+     */
+    @Nullable
+    <T extends OAuth2AuthorizedClient> T loadLatestAuthorizedClient(String clientRegistrationId,
+            String principalName);
+}
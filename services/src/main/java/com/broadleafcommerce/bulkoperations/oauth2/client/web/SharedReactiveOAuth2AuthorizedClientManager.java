@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.oauth2.client.web;
+
+import org.springframework.security.oauth2.client.AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.InMemoryReactiveOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizationFailureHandler;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizationSuccessHandler;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientProvider;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
+import org.springframework.util.Assert;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link SynchronizedDelegatingOAuth2AuthorizedClientManager}, delegating
+ * to {@link AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager}.
+ *
+ * Concurrent authorizations for the same {@link OAuth2AuthorizeRequest#getClientRegistrationId()}
+ * and principal share a single in-flight result rather than waiting on a lock, so only one token
+ * request per client registration reaches the auth server while no thread is ever blocked. The
+ * shared request runs in the Reactor context of the subscriber that started it, and a subscriber
+ * that cancels does not cancel it for the others.
+ *
+ * The token is then stored in the given {@link ReactiveOAuth2AuthorizedClientService} for re-use,
+ * {@link InMemoryReactiveOAuth2AuthorizedClientService} by default. A
+ * {@link BlockingReactiveOAuth2AuthorizedClientService} lets the store that shares tokens across
+ * nodes be used here as well.
+ */
+public class SharedReactiveOAuth2AuthorizedClientManager
+        implements ReactiveOAuth2AuthorizedClientManager {
+
+    private final Map<String, Mono<OAuth2AuthorizedClient>> inFlight = new ConcurrentHashMap<>();
+    private final AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager delegate;
+
+    public SharedReactiveOAuth2AuthorizedClientManager(
+            ClientRegistrationRepository clientRegistrationRepository) {
+        this(toReactive(clientRegistrationRepository));
+    }
+
+    public SharedReactiveOAuth2AuthorizedClientManager(
+            ClientRegistrationRepository clientRegistrationRepository,
+            ReactiveOAuth2AuthorizedClientService authorizedClientService) {
+        this(toReactive(clientRegistrationRepository), authorizedClientService);
+    }
+
+    public SharedReactiveOAuth2AuthorizedClientManager(
+            ReactiveClientRegistrationRepository clientRegistrationRepository) {
+        this(clientRegistrationRepository,
+                new InMemoryReactiveOAuth2AuthorizedClientService(clientRegistrationRepository));
+    }
+
+    public SharedReactiveOAuth2AuthorizedClientManager(
+            ReactiveClientRegistrationRepository clientRegistrationRepository,
+            ReactiveOAuth2AuthorizedClientService authorizedClientService) {
+        this.delegate = new AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager(
+                clientRegistrationRepository, authorizedClientService);
+    }
+
+    @Override
+    public Mono<OAuth2AuthorizedClient> authorize(OAuth2AuthorizeRequest authorizeRequest) {
+        Assert.notNull(authorizeRequest, "authorizeRequest cannot be null");
+
+        final String registrationId = authorizeRequest.getClientRegistrationId();
+        if (registrationId == null || authorizeRequest.getAuthorizedClient() != null) {
+            // re-authorizations of a specific client are not shared
+            return delegate.authorize(authorizeRequest);
+        }
+
+        final String key = registrationId + ':' + authorizeRequest.getPrincipal().getName();
+        return Mono.defer(() -> inFlight.computeIfAbsent(key,
+                k -> shareAuthorization(k, authorizeRequest)));
+    }
+
+    /**
+     * Builds the authorization that concurrent requests for the key share. It is removed from
+     * {@link #inFlight} once it completes, fails or is cancelled, so the next request after that
+     * authorizes again, normally from the stored client.
+     */
+    protected Mono<OAuth2AuthorizedClient> shareAuthorization(String key,
+            OAuth2AuthorizeRequest authorizeRequest) {
+        AtomicReference<Mono<OAuth2AuthorizedClient>> shared = new AtomicReference<>();
+        shared.set(delegate.authorize(authorizeRequest)
+                .doFinally(signal -> inFlight.remove(key, shared.get()))
+                .cache());
+        return shared.get();
+    }
+
+    /**
+     * @see AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager#setAuthorizedClientProvider(ReactiveOAuth2AuthorizedClientProvider)
+     */
+    public void setAuthorizedClientProvider(
+            ReactiveOAuth2AuthorizedClientProvider authorizedClientProvider) {
+        delegate.setAuthorizedClientProvider(authorizedClientProvider);
+    }
+
+    /**
+     * @see AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager#setContextAttributesMapper(Function)
+     */
+    public void setContextAttributesMapper(
+            Function<OAuth2AuthorizeRequest, Mono<Map<String, Object>>> contextAttributesMapper) {
+        delegate.setContextAttributesMapper(contextAttributesMapper);
+    }
+
+    /**
+     * @see AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager#setAuthorizationSuccessHandler(ReactiveOAuth2AuthorizationSuccessHandler)
+     */
+    public void setAuthorizationSuccessHandler(
+            ReactiveOAuth2AuthorizationSuccessHandler authorizationSuccessHandler) {
+        delegate.setAuthorizationSuccessHandler(authorizationSuccessHandler);
+    }
+
+    /**
+     * @see AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager#setAuthorizationFailureHandler(ReactiveOAuth2AuthorizationFailureHandler)
+     */
+    public void setAuthorizationFailureHandler(
+            ReactiveOAuth2AuthorizationFailureHandler authorizationFailureHandler) {
+        delegate.setAuthorizationFailureHandler(authorizationFailureHandler);
+    }
+
+    private static ReactiveClientRegistrationRepository toReactive(
+            ClientRegistrationRepository clientRegistrationRepository) {
+        return registrationId -> Mono.fromSupplier(
+                () -> clientRegistrationRepository.findByRegistrationId(registrationId));
+    }
+}
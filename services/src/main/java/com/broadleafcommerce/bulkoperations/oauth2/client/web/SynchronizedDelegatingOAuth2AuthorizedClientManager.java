@@ -16,6 +16,10 @@
  */
 package com.broadleafcommerce.bulkoperations.oauth2.client.web;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.client.AuthorizedClientServiceOAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.client.InMemoryOAuth2AuthorizedClientService;
 import org.springframework.security.oauth2.client.OAuth2AuthorizationFailureHandler;
@@ -24,14 +28,26 @@ import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProvider;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
 import org.springframework.util.Assert;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 
+import lombok.extern.slf4j.Slf4j;
+
 /**
  * This component implements {@link OAuth2AuthorizedClientManager} and internally instantiates and
  * delegates to {@link AuthorizedClientServiceOAuth2AuthorizedClientManager}.
@@ -41,25 +57,63 @@ import java.util.function.Function;
  * {@link OAuth2AuthorizeRequest#getClientRegistrationId()}. The reason is that these clients are
  * normally shared clients, with shared access tokens. As a result, only one thread needs to call
  * the auth server when the token is unavailable or otherwise expired. The token is then stored in
- * {@link InMemoryOAuth2AuthorizedClientService} for re-use across threads.
+ * {@link InMemoryOAuth2AuthorizedClientService} for re-use across threads, unless another
+ * {@link OAuth2AuthorizedClientService} is provided, for example to share tokens across nodes.
  *
  * This helps prevent a race condition where multiple threads are trying to fetch the same token at
  * the same time via a network call.
  *
+ * The gate is a {@link ReentrantLock} rather than a monitor, so that virtual threads waiting on
+ * the token request do not pin their carrier thread.
+ *
+ * A still-valid token is returned straight from the {@link OAuth2AuthorizedClientService} without
+ * taking the lock, so concurrent requests only serialize when a token actually has to be
+ * obtained. Once a token enters the {@link #setRefreshAhead(Duration) refresh-ahead} window, a
+ * single background refresh is started on the {@link #setRefreshExecutor(Executor) refresh
+ * executor} while requests keep using the current token, so request threads normally never wait
+ * on the auth server. Each node starts its refresh at a random point of the first
+ * {@link #setRefreshJitter(Duration) refresh jitter} of the window, so that nodes sharing a token
+ * do not all refresh it at once.
+ *
+ * When the {@link OAuth2AuthorizedClientService} is a {@link SharedOAuth2AuthorizedClientService},
+ * the stored client is re-read, bypassing any local copy, before the auth server is called, so a
+ * token another node already obtained is used instead of requesting a new one.
+ *
+ * When no refresh executor is set, a single daemon thread is created on first use and shut down
+ * by {@link #destroy()}.
+ *
  * @author Kelly Tisdell (ktisdell)
  */
+@Slf4j
 public class SynchronizedDelegatingOAuth2AuthorizedClientManager
-        implements OAuth2AuthorizedClientManager {
+        implements OAuth2AuthorizedClientManager, DisposableBean {
 
-    private final Map<String, Object> MUTEX_MAP = Collections.synchronizedMap(new HashMap<>());
+    private final Map<String, ReentrantLock> LOCK_MAP = new ConcurrentHashMap<>();
+    private final Set<String> refreshesInProgress = ConcurrentHashMap.newKeySet();
     private final AuthorizedClientServiceOAuth2AuthorizedClientManager delegate;
+    private final OAuth2AuthorizedClientService authorizedClientService;
     private final ClientRegistrationRepository clientRegistrationRepository;
+    private Duration clockSkew = Duration.ofSeconds(60);
+    private Duration refreshAhead = Duration.ofMinutes(2);
+    private Duration refreshJitter = Duration.ofSeconds(30);
+    private final int jitterSeed = ThreadLocalRandom.current().nextInt();
+    private Clock clock = Clock.systemUTC();
+    private volatile Executor refreshExecutor;
+    @Nullable
+    private ExecutorService defaultRefreshExecutor;
 
     public SynchronizedDelegatingOAuth2AuthorizedClientManager(
             ClientRegistrationRepository clientRegistrationRepository) {
-        this.delegate = new AuthorizedClientServiceOAuth2AuthorizedClientManager(
-                clientRegistrationRepository,
+        this(clientRegistrationRepository,
                 new InMemoryOAuth2AuthorizedClientService(clientRegistrationRepository));
+    }
+
+    public SynchronizedDelegatingOAuth2AuthorizedClientManager(
+            ClientRegistrationRepository clientRegistrationRepository,
+            OAuth2AuthorizedClientService authorizedClientService) {
+        this.authorizedClientService = authorizedClientService;
+        this.delegate = new AuthorizedClientServiceOAuth2AuthorizedClientManager(
+                clientRegistrationRepository, authorizedClientService);
         this.clientRegistrationRepository = clientRegistrationRepository;
     }
 
@@ -67,18 +121,35 @@ public class SynchronizedDelegatingOAuth2AuthorizedClientManager
     public OAuth2AuthorizedClient authorize(OAuth2AuthorizeRequest authorizeRequest) {
         Assert.notNull(authorizeRequest, "authorizeRequest cannot be null");
 
+        final OAuth2AuthorizedClient cachedClient = getValidCachedClient(authorizeRequest);
+        if (cachedClient != null) {
+            return cachedClient;
+        }
+
         final String registrationId = authorizeRequest.getClientRegistrationId();
         if (registrationId != null) {
             if (this.clientRegistrationRepository.findByRegistrationId(registrationId) != null) {
-                // Use the registrationId to fetch a shared mutex object and synchronize on that.
+                // Use the registrationId to fetch a shared lock and hold it while authorizing.
                 // This essentially puts a gate in place to synchronize on a particular
                 // registrationId.
-                final Object mutex = MUTEX_MAP.computeIfAbsent(registrationId, k -> new Object());
-                synchronized (mutex) {
+                final ReentrantLock lock =
+                        LOCK_MAP.computeIfAbsent(registrationId, k -> new ReentrantLock());
+                lock.lock();
+                try {
+                    // Another thread, or another node, may have obtained a token while this one
+                    // was waiting.
+                    final OAuth2AuthorizedClient latestClient =
+                            getValidLatestClient(authorizeRequest);
+                    if (latestClient != null) {
+                        return latestClient;
+                    }
+
                     // Most of the time this will use in-memory data and will be very fast.
                     // In cases where the token is expired, this will gate the call to the auth
                     // server to 1 thread per clientRegistrationId per node.
                     return delegate.authorize(authorizeRequest);
+                } finally {
+                    lock.unlock();
                 }
             }
         }
@@ -88,6 +159,269 @@ public class SynchronizedDelegatingOAuth2AuthorizedClientManager
         return delegate.authorize(authorizeRequest);
     }
 
+    /**
+     * Returns the stored {@link OAuth2AuthorizedClient} without synchronization if its access
+     * token is still valid beyond the {@link #setClockSkew(Duration) clock skew}, scheduling a
+     * background refresh if it is inside the {@link #setRefreshAhead(Duration) refresh-ahead}
+     * window. Requests that explicitly carry an authorized client are re-authorizations and always
+     * go through the delegate.
+     *
+     * @param authorizeRequest the request being authorized
+     * @return the cached authorized client, or {@code null} if the delegate needs to be consulted
+     */
+    @Nullable
+    protected OAuth2AuthorizedClient getValidCachedClient(OAuth2AuthorizeRequest authorizeRequest) {
+        final String registrationId = authorizeRequest.getClientRegistrationId();
+        if (registrationId == null || authorizeRequest.getAuthorizedClient() != null) {
+            return null;
+        }
+
+        final OAuth2AuthorizedClient authorizedClient = authorizedClientService
+                .loadAuthorizedClient(registrationId, authorizeRequest.getPrincipal().getName());
+        if (authorizedClient == null) {
+            return null;
+        }
+
+        final Instant expiresAt = authorizedClient.getAccessToken().getExpiresAt();
+        if (expiresAt == null) {
+            // let the delegate's provider decide what a token without an expiry means
+            return null;
+        }
+
+        final Instant now = clock.instant();
+        if (!now.isBefore(expiresAt.minus(clockSkew))) {
+            return null;
+        }
+
+        if (!now.isBefore(getRefreshStart(authorizedClient.getAccessToken()))) {
+            scheduleRefresh(authorizedClient, authorizeRequest.getPrincipal());
+        }
+        return authorizedClient;
+    }
+
+    /**
+     * Re-reads the stored {@link OAuth2AuthorizedClient} from a
+     * {@link SharedOAuth2AuthorizedClientService} and returns it if its access token is valid
+     * beyond the {@link #setClockSkew(Duration) clock skew}. Called while holding the
+     * registration's lock, right before the auth server would be called.
+     *
+     * @param authorizeRequest the request being authorized
+     * @return the stored authorized client, or {@code null} if the delegate needs to be consulted
+     */
+    @Nullable
+    protected OAuth2AuthorizedClient getValidLatestClient(
+            OAuth2AuthorizeRequest authorizeRequest) {
+        if (authorizeRequest.getAuthorizedClient() != null) {
+            return null;
+        }
+
+        final OAuth2AuthorizedClient latestClient = loadLatestAuthorizedClient(
+                authorizeRequest.getClientRegistrationId(),
+                authorizeRequest.getPrincipal().getName());
+        if (latestClient == null) {
+            return null;
+        }
+
+        final Instant expiresAt = latestClient.getAccessToken().getExpiresAt();
+        return expiresAt != null && clock.instant().isBefore(expiresAt.minus(clockSkew))
+                ? latestClient
+                : null;
+    }
+
+    /**
+     * Gets when this node starts refreshing the given token. This is a random but, for the same
+     * token, stable point within the first {@link #setRefreshJitter(Duration) refresh jitter} of
+     * the {@link #setRefreshAhead(Duration) refresh-ahead} window, bounded so that it stays ahead
+     * of the {@link #setClockSkew(Duration) clock skew}.
+     *
+     * @param accessToken the access token, which must have an expiry
+     * @return when to start refreshing the token
+     */
+    protected Instant getRefreshStart(OAuth2AccessToken accessToken) {
+        final Instant windowStart = accessToken.getExpiresAt().minus(refreshAhead);
+        final long maxJitterMillis =
+                Math.min(refreshJitter.toMillis(), refreshAhead.minus(clockSkew).toMillis());
+        if (maxJitterMillis <= 0) {
+            return windowStart;
+        }
+
+        final int hash = 31 * accessToken.getTokenValue().hashCode() + jitterSeed;
+        return windowStart.plusMillis(Math.floorMod(hash, maxJitterMillis));
+    }
+
+    /**
+     * Starts a background refresh of the given authorized client unless one is already running
+     * for its registration. The refresh holds the registration's lock, so it never races a
+     * foreground token request, and keeps the current token in place until the new one is saved.
+     *
+     * @param authorizedClient the authorized client whose token is about to expire
+     * @param principal the principal the authorized client belongs to
+     */
+    protected void scheduleRefresh(OAuth2AuthorizedClient authorizedClient,
+            Authentication principal) {
+        final String registrationId = authorizedClient.getClientRegistration().getRegistrationId();
+        if (!refreshesInProgress.add(registrationId)) {
+            return;
+        }
+
+        try {
+            getRefreshExecutor().execute(() -> {
+                try {
+                    refresh(authorizedClient, principal);
+                } catch (RuntimeException e) {
+                    log.warn("Unable to proactively refresh the access token for client"
+                            + " registration {}. It will be requested again once it expires.",
+                            registrationId, e);
+                } finally {
+                    refreshesInProgress.remove(registrationId);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshesInProgress.remove(registrationId);
+            log.warn("Unable to schedule a proactive access token refresh for client registration"
+                    + " {}", registrationId, e);
+        }
+    }
+
+    private void refresh(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
+        final String registrationId = authorizedClient.getClientRegistration().getRegistrationId();
+        final ReentrantLock lock =
+                LOCK_MAP.computeIfAbsent(registrationId, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            final OAuth2AuthorizedClient current =
+                    loadLatestAuthorizedClient(registrationId, principal.getName());
+            if (current == null || !current.getAccessToken().getTokenValue()
+                    .equals(authorizedClient.getAccessToken().getTokenValue())) {
+                // already replaced or removed by another request or another node
+                return;
+            }
+
+            // Hand the delegate a copy whose token is already expired so that its provider
+            // requests a new one. The stored client is only replaced once that succeeds.
+            final OAuth2AuthorizeRequest refreshRequest = OAuth2AuthorizeRequest
+                    .withAuthorizedClient(expire(current))
+                    .principal(principal)
+                    .build();
+            delegate.authorize(refreshRequest);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Nullable
+    private OAuth2AuthorizedClient loadLatestAuthorizedClient(String registrationId,
+            String principalName) {
+        if (authorizedClientService instanceof SharedOAuth2AuthorizedClientService) {
+            return ((SharedOAuth2AuthorizedClientService) authorizedClientService)
+                    .loadLatestAuthorizedClient(registrationId, principalName);
+        }
+        return authorizedClientService.loadAuthorizedClient(registrationId, principalName);
+    }
+
+    private OAuth2AuthorizedClient expire(OAuth2AuthorizedClient authorizedClient) {
+        final OAuth2AccessToken accessToken = authorizedClient.getAccessToken();
+        final Instant expiresAt = clock.instant();
+        Instant issuedAt = accessToken.getIssuedAt();
+        if (issuedAt == null || !issuedAt.isBefore(expiresAt)) {
+            issuedAt = expiresAt.minusSeconds(1);
+        }
+
+        final OAuth2AccessToken expiredToken = new OAuth2AccessToken(accessToken.getTokenType(),
+                accessToken.getTokenValue(), issuedAt, expiresAt, accessToken.getScopes());
+        return new OAuth2AuthorizedClient(authorizedClient.getClientRegistration(),
+                authorizedClient.getPrincipalName(), expiredToken,
+                authorizedClient.getRefreshToken());
+    }
+
+    private Executor getRefreshExecutor() {
+        if (refreshExecutor == null) {
+            synchronized (this) {
+                if (refreshExecutor == null) {
+                    CustomizableThreadFactory threadFactory =
+                            new CustomizableThreadFactory("bulkops-token-refresh-");
+                    threadFactory.setDaemon(true);
+                    defaultRefreshExecutor = Executors.newSingleThreadExecutor(threadFactory);
+                    refreshExecutor = defaultRefreshExecutor;
+                }
+            }
+        }
+        return refreshExecutor;
+    }
+
+    /**
+     * Shuts down the refresh executor this manager created itself. An executor passed to
+     * {@link #setRefreshExecutor(Executor)} is owned by the caller and left running.
+     */
+    @Override
+    public synchronized void destroy() {
+        if (defaultRefreshExecutor != null) {
+            defaultRefreshExecutor.shutdownNow();
+            defaultRefreshExecutor = null;
+        }
+    }
+
+    /**
+     * Sets the maximum acceptable clock skew, used to treat a token as expired slightly before its
+     * actual expiry. This should match the skew of the configured
+     * {@link OAuth2AuthorizedClientProvider}. Defaults to 60 seconds.
+     *
+     * @param clockSkew the maximum acceptable clock skew
+     */
+    public void setClockSkew(Duration clockSkew) {
+        Assert.notNull(clockSkew, "clockSkew cannot be null");
+        Assert.isTrue(!clockSkew.isNegative(), "clockSkew must be >= 0");
+        this.clockSkew = clockSkew;
+    }
+
+    /**
+     * Sets how long before expiry a token is refreshed in the background. Values that do not
+     * exceed the {@link #setClockSkew(Duration) clock skew} disable proactive refresh. Defaults to
+     * 2 minutes.
+     *
+     * @param refreshAhead how long before expiry to start refreshing the token
+     */
+    public void setRefreshAhead(Duration refreshAhead) {
+        Assert.notNull(refreshAhead, "refreshAhead cannot be null");
+        this.refreshAhead = refreshAhead;
+    }
+
+    /**
+     * Sets the longest random delay after the start of the {@link #setRefreshAhead(Duration)
+     * refresh-ahead} window before this node refreshes a token, which spreads the refreshes of
+     * nodes sharing a token. A zero value starts refreshing at the start of the window. Defaults
+     * to 30 seconds.
+     *
+     * @param refreshJitter the longest delay before refreshing a token
+     */
+    public void setRefreshJitter(Duration refreshJitter) {
+        Assert.notNull(refreshJitter, "refreshJitter cannot be null");
+        Assert.isTrue(!refreshJitter.isNegative(), "refreshJitter must be >= 0");
+        this.refreshJitter = refreshJitter;
+    }
+
+    /**
+     * Sets the {@link Executor} that proactive token refreshes run on. Defaults to a single daemon
+     * thread that is created on first use and shut down by {@link #destroy()}. The caller remains
+     * responsible for shutting down an executor set here.
+     *
+     * @param refreshExecutor the executor to run token refreshes on
+     */
+    public void setRefreshExecutor(Executor refreshExecutor) {
+        Assert.notNull(refreshExecutor, "refreshExecutor cannot be null");
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * Sets the {@link Clock} used to check token expiry. Defaults to {@link Clock#systemUTC()}.
+     *
+     * @param clock the clock
+     */
+    public void setClock(Clock clock) {
+        Assert.notNull(clock, "clock cannot be null");
+        this.clock = clock;
+    }
+
     /**
      * @see AuthorizedClientServiceOAuth2AuthorizedClientManager#setAuthorizedClientProvider(OAuth2AuthorizedClientProvider)
      */
@@ -19,18 +19,34 @@ package com.broadleafcommerce.bulkoperations.provider.jpa.autoconfigure;
 import static com.broadleafcommerce.bulkoperations.service.environment.RouteConstants.Persistence.BULK_OPS_ROUTE_KEY;
 import static com.broadleafcommerce.bulkoperations.service.environment.RouteConstants.Persistence.BULK_OPS_ROUTE_PACKAGE;
 
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 
 import com.broadleafcommerce.bulk.v2.messaging.BulkOpsInitializeItemsRequestProducer;
 import com.broadleafcommerce.bulk.v2.messaging.BulkOpsProcessRequestProducer;
 import com.broadleafcommerce.bulk.v2.messaging.sandbox.CreateSandboxRequestProducer;
+import com.broadleafcommerce.bulkoperations.provider.jpa.repository.JpaInitializeItemsCheckpointRepository;
+import com.broadleafcommerce.bulkoperations.provider.jpa.repository.JpaInitializeItemsShardRepository;
+import com.broadleafcommerce.bulkoperations.provider.jpa.repository.JpaInitializeItemsShardSetRepository;
+import com.broadleafcommerce.bulkoperations.provider.jpa.repository.JpaOAuth2AuthorizedClientRepository;
+import com.broadleafcommerce.bulkoperations.provider.jpa.service.JpaInitializeItemsCheckpointService;
+import com.broadleafcommerce.bulkoperations.provider.jpa.service.JpaInitializeItemsShardService;
+import com.broadleafcommerce.bulkoperations.provider.jpa.service.JpaOAuth2AuthorizedClientService;
+import com.broadleafcommerce.bulkoperations.provider.jpa.service.OAuth2TokenCipher;
+import com.broadleafcommerce.bulkoperations.service.InitializeItemsCheckpointService;
+import com.broadleafcommerce.bulkoperations.service.InitializeItemsShardService;
 import com.broadleafcommerce.bulkoperations.service.environment.BulkOperationsJpaProperties;
 import com.broadleafcommerce.bulkoperations.service.environment.BulkOperationsProviderProperties;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderTokenProperties;
 import com.broadleafcommerce.common.jpa.data.JpaDataRoute;
 import com.broadleafcommerce.common.messaging.data.MessagingDataRouteSupporting;
 import com.broadleafcommerce.data.tracking.core.data.TrackingDataRouteSupporting;
@@ -44,7 +60,8 @@ public class BulkOperationsJpaAutoConfiguration {
     @ConditionalOnProperty(
             name = {"broadleaf.database.provider", "broadleaf.bulkoperations.database.provider"},
             havingValue = "jpa")
-    @EnableConfigurationProperties(BulkOperationsJpaProperties.class)
+    @EnableConfigurationProperties({BulkOperationsJpaProperties.class,
+            ProviderTokenProperties.class})
     @JpaDataRoute(boundPropertiesType = BulkOperationsJpaProperties.class,
             routePackage = BULK_OPS_ROUTE_PACKAGE, routeKey = BULK_OPS_ROUTE_KEY,
             supportingRouteTypes = {TrackingDataRouteSupporting.class,
@@ -53,6 +70,42 @@ public class BulkOperationsJpaAutoConfiguration {
             EnabledGranularOrFlex.InitializeItemsConfig.class,
             EnabledGranularOrFlex.ProcessBulkOpsConfig.class})
     public static class EnabledGranularOrFlex {
+
+        @Bean
+        @ConditionalOnMissingBean
+        InitializeItemsCheckpointService bulkOpsInitializeItemsCheckpointService(
+                JpaInitializeItemsCheckpointRepository checkpointRepository) {
+            return new JpaInitializeItemsCheckpointService(checkpointRepository);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        InitializeItemsShardService bulkOpsInitializeItemsShardService(
+                JpaInitializeItemsShardSetRepository shardSetRepository,
+                JpaInitializeItemsShardRepository shardRepository) {
+            return new JpaInitializeItemsShardService(shardSetRepository, shardRepository);
+        }
+
+        @Bean(name = "bulkOperationsOAuth2AuthorizedClientService")
+        @ConditionalOnMissingBean(name = "bulkOperationsOAuth2AuthorizedClientService")
+        @ConditionalOnProperty(name = "broadleaf.bulkoperations.provider.token.shared",
+                havingValue = "true")
+        OAuth2AuthorizedClientService bulkOperationsOAuth2AuthorizedClientService(
+                JpaOAuth2AuthorizedClientRepository authorizedClientRepository,
+                ClientRegistrationRepository clientRegistrations,
+                ProviderTokenProperties tokenProperties) {
+            OAuth2TokenCipher tokenCipher = null;
+            if (StringUtils.isNotBlank(tokenProperties.getSharedEncryptionKey())) {
+                tokenCipher = new OAuth2TokenCipher(tokenProperties.getSharedEncryptionKey());
+            } else if (!tokenProperties.isSharedPlaintext()) {
+                throw new IllegalStateException("Sharing tokens requires either"
+                        + " broadleaf.bulkoperations.provider.token.shared-encryption-key or"
+                        + " broadleaf.bulkoperations.provider.token.shared-plaintext=true");
+            }
+            return new JpaOAuth2AuthorizedClientService(authorizedClientRepository,
+                    clientRegistrations, tokenProperties.getSharedCacheTimeToLive(), tokenCipher);
+        }
+
         @DurableProducer(output = CreateSandboxRequestProducer.class,
                 name = CreateSandboxRequestProducer.TYPE,
                 configurationPrefix = "broadleaf.create-sandbox",
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.provider.jpa.domain;
+
+import com.broadleafcommerce.bulkoperations.domain.InitializeItemsCheckpoint;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * JPA representation of an {@link InitializeItemsCheckpoint}.
+ */
+@Entity
+@Table(name = "BLC_BULK_OPS_INIT_CHECKPOINT")
+@Data
+public class JpaInitializeItemsCheckpoint implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The longest cursor that can be stored. Checkpoints with longer cursors are not saved.
+     */
+    public static final int MAX_CURSOR_LENGTH = 2000;
+
+    /**
+     * The ID of the bulk operation whose items are being initialized.
+     */
+    @Id
+    @Column(name = "ID", length = 36)
+    private String id;
+
+    @Column(name = "NEXT_OFFSET", nullable = false)
+    private long nextOffset;
+
+    @Column(name = "BATCH_SIZE", nullable = false)
+    private int batchSize;
+
+    @Column(name = "PAGE_CURSOR", length = MAX_CURSOR_LENGTH)
+    private String cursor;
+
+    @Column(name = "TOTAL_ITEM_RECORDS", nullable = false)
+    private long totalItemRecords;
+
+    @Column(name = "LAST_UPDATED")
+    private Instant lastUpdated;
+}
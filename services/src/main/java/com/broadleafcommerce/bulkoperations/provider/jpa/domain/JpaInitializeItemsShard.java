@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.provider.jpa.domain;
+
+import org.hibernate.type.YesNoConverter;
+import org.springframework.data.domain.Persistable;
+
+import com.broadleafcommerce.bulkoperations.domain.InitializeItemsShard;
+
+import java.io.Serializable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * JPA representation of an {@link InitializeItemsShard}.
+ */
+@Entity
+@Table(name = "BLC_BULK_OPS_INIT_SHARD")
+@Data
+public class JpaInitializeItemsShard implements Persistable<String>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The ID of the bulk operation followed by the index of the shard.
+     */
+    @Id
+    @Column(name = "ID", length = 50)
+    private String id;
+
+    @Column(name = "BULK_OPERATION_ID", length = 36, nullable = false)
+    private String bulkOperationId;
+
+    @Column(name = "SHARD_INDEX", nullable = false)
+    private int shardIndex;
+
+    @Column(name = "FIRST_PAGE", nullable = false)
+    private int firstPage;
+
+    @Column(name = "END_PAGE", nullable = false)
+    private int endPage;
+
+    @Column(name = "BATCH_SIZE", nullable = false)
+    private int batchSize;
+
+    @Column(name = "ITEM_COUNT", nullable = false)
+    private long itemCount;
+
+    @Column(name = "COMPLETED", nullable = false)
+    @Convert(converter = YesNoConverter.class)
+    private boolean completed;
+
+    /**
+     * Whether this row has been loaded or inserted. The shards are only ever inserted through the
+     * repository, so that registering them twice fails on the primary key instead of overwriting
+     * their progress.
+     */
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
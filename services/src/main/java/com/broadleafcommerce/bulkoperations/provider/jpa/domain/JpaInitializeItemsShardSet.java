@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.provider.jpa.domain;
+
+import org.hibernate.type.YesNoConverter;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * The set of shards a bulk operation's item initialization was split into. Completion of the
+ * item initialization is claimed by atomically flipping {@link #isFinished()} on this row.
+ */
+@Entity
+@Table(name = "BLC_BULK_OPS_INIT_SHARD_SET")
+@Data
+public class JpaInitializeItemsShardSet implements Persistable<String>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The ID of the bulk operation whose items are being initialized.
+     */
+    @Id
+    @Column(name = "ID", length = 36)
+    private String id;
+
+    @Column(name = "SHARD_COUNT", nullable = false)
+    private int shardCount;
+
+    @Column(name = "FINISHED", nullable = false)
+    @Convert(converter = YesNoConverter.class)
+    private boolean finished;
+
+    @Column(name = "LAST_UPDATED")
+    private Instant lastUpdated;
+
+    /**
+     * Whether this row has been loaded or inserted. The shard sets are only ever inserted through
+     * the repository, so that registering them twice fails on the primary key instead of
+     * overwriting their progress.
+     */
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.provider.jpa.domain;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * JPA representation of an {@link OAuth2AuthorizedClient}, so that a token obtained by one node
+ * can be used by every node of the cluster.
+ *
+ * The token values are encrypted by the service storing them when an encryption key is
+ * configured. They are stored in unbounded text columns, since neither the length of the tokens
+ * an authorization server issues, such as JWTs carrying many claims, nor the growth from
+ * encrypting them is bounded.
+ */
+@Entity
+@Table(name = "BLC_BULK_OPS_OAUTH2_CLIENT")
+@IdClass(JpaOAuth2AuthorizedClient.ClientKey.class)
+@Data
+public class JpaOAuth2AuthorizedClient implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "CLIENT_REGISTRATION_ID", length = 100)
+    private String clientRegistrationId;
+
+    @Id
+    @Column(name = "PRINCIPAL_NAME", length = 200)
+    private String principalName;
+
+    @Column(name = "ACCESS_TOKEN_TYPE", length = 100, nullable = false)
+    private String accessTokenType;
+
+    @Column(name = "ACCESS_TOKEN_VALUE", nullable = false)
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String accessTokenValue;
+
+    @Column(name = "ACCESS_TOKEN_ISSUED_AT")
+    private Instant accessTokenIssuedAt;
+
+    @Column(name = "ACCESS_TOKEN_EXPIRES_AT")
+    private Instant accessTokenExpiresAt;
+
+    /**
+     * The comma-delimited scopes of the access token.
+     */
+    @Column(name = "ACCESS_TOKEN_SCOPES", length = 1000)
+    private String accessTokenScopes;
+
+    @Column(name = "REFRESH_TOKEN_VALUE")
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String refreshTokenValue;
+
+    @Column(name = "REFRESH_TOKEN_ISSUED_AT")
+    private Instant refreshTokenIssuedAt;
+
+    @Column(name = "LAST_UPDATED")
+    private Instant lastUpdated;
+
+    /**
+     * The identifier of a {@link JpaOAuth2AuthorizedClient}.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ClientKey implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String clientRegistrationId;
+
+        private String principalName;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.provider.jpa.repository;
+
+import static com.broadleafcommerce.bulkoperations.service.environment.RouteConstants.Persistence.BULK_OPS_ROUTE_KEY;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.broadleafcommerce.bulkoperations.provider.jpa.domain.JpaInitializeItemsShard;
+import com.broadleafcommerce.common.extension.data.DataRouteByKey;
+
+@Repository
+@DataRouteByKey(BULK_OPS_ROUTE_KEY)
+public interface JpaInitializeItemsShardRepository
+        extends JpaRepository<JpaInitializeItemsShard, String> {
+
+    /**
+     * Marks the shard as completed with the given item count, unless it has already completed.
+     *
+     * @param id the ID of the shard
+     * @param itemCount the number of bulk operation items initialized by the shard
+     * @return 1 if the shard was marked as completed by this call, otherwise 0
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE JpaInitializeItemsShard sh SET sh.completed = true, sh.itemCount = :itemCount "
+            + "WHERE sh.id = :id AND sh.completed = false")
+    int markCompleted(@Param("id") String id, @Param("itemCount") long itemCount);
+
+    @Query("SELECT COALESCE(SUM(sh.itemCount), 0) FROM JpaInitializeItemsShard sh "
+            + "WHERE sh.bulkOperationId = :bulkOperationId")
+    long sumItemCounts(@Param("bulkOperationId") String bulkOperationId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM JpaInitializeItemsShard sh WHERE sh.bulkOperationId = :bulkOperationId")
+    int deleteByBulkOperationId(@Param("bulkOperationId") String bulkOperationId);
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.provider.jpa.repository;
+
+import static com.broadleafcommerce.bulkoperations.service.environment.RouteConstants.Persistence.BULK_OPS_ROUTE_KEY;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.broadleafcommerce.bulkoperations.provider.jpa.domain.JpaInitializeItemsShardSet;
+import com.broadleafcommerce.common.extension.data.DataRouteByKey;
+
+import java.time.Instant;
+
+@Repository
+@DataRouteByKey(BULK_OPS_ROUTE_KEY)
+public interface JpaInitializeItemsShardSetRepository
+        extends JpaRepository<JpaInitializeItemsShardSet, String> {
+
+    /**
+     * Marks the shard set as finished if it is not finished yet and every one of its shards has
+     * completed. As this is a single conditional update, at most one caller succeeds.
+     *
+     * @param id the ID of the bulk operation
+     * @param now the time of the update
+     * @return 1 if the shard set was marked as finished by this call, otherwise 0
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE JpaInitializeItemsShardSet s SET s.finished = true, s.lastUpdated = :now "
+            + "WHERE s.id = :id AND s.finished = false AND NOT EXISTS ("
+            + "SELECT sh.id FROM JpaInitializeItemsShard sh "
+            + "WHERE sh.bulkOperationId = :id AND sh.completed = false)")
+    int claimFinished(@Param("id") String id, @Param("now") Instant now);
+
+    /**
+     * Marks the shard set as not finished, so that its completion can be claimed again.
+     *
+     * @param id the ID of the bulk operation
+     * @param now the time of the update
+     * @return the number of shard sets updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE JpaInitializeItemsShardSet s SET s.finished = false, s.lastUpdated = :now "
+            + "WHERE s.id = :id")
+    int releaseFinished(@Param("id") String id, @Param("now") Instant now);
+}
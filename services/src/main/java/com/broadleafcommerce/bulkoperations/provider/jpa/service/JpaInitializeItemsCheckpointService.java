@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.provider.jpa.service;
+
+import static com.broadleafcommerce.bulkoperations.provider.jpa.domain.JpaInitializeItemsCheckpoint.MAX_CURSOR_LENGTH;
+import static com.broadleafcommerce.bulkoperations.service.environment.RouteConstants.Persistence.BULK_OPS_ROUTE_KEY;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import com.broadleafcommerce.bulkoperations.domain.InitializeItemsCheckpoint;
+import com.broadleafcommerce.bulkoperations.provider.jpa.domain.JpaInitializeItemsCheckpoint;
+import com.broadleafcommerce.bulkoperations.provider.jpa.repository.JpaInitializeItemsCheckpointRepository;
+import com.broadleafcommerce.bulkoperations.service.InitializeItemsCheckpointService;
+import com.broadleafcommerce.common.extension.data.DataRouteByKey;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link InitializeItemsCheckpointService} that stores the checkpoints in the bulk operations
+ * data route, so that they are shared by every node consuming initialize items requests.
+ * <p>
+ * Checkpoints whose cursor is longer than {@link JpaInitializeItemsCheckpoint#MAX_CURSOR_LENGTH}
+ * are not saved, leaving the previous checkpoint in place. A redelivered request then resumes
+ * from that earlier checkpoint, initializing a few pages again.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@DataRouteByKey(BULK_OPS_ROUTE_KEY)
+public class JpaInitializeItemsCheckpointService implements InitializeItemsCheckpointService {
+
+    @Getter(AccessLevel.PROTECTED)
+    private final JpaInitializeItemsCheckpointRepository repository;
+
+    @Override
+    public Optional<InitializeItemsCheckpoint> readCheckpoint(String bulkOperationId) {
+        return repository.findById(bulkOperationId)
+                .map(this::toCheckpoint);
+    }
+
+    @Override
+    @Transactional
+    public void saveCheckpoint(InitializeItemsCheckpoint checkpoint) {
+        if (checkpoint.getCursor() != null && checkpoint.getCursor().length() > MAX_CURSOR_LENGTH) {
+            log.debug("Not checkpointing bulk operation {}, as its cursor is longer than {} "
+                    + "characters.", checkpoint.getBulkOperationId(), MAX_CURSOR_LENGTH);
+            return;
+        }
+
+        JpaInitializeItemsCheckpoint jpaCheckpoint = repository
+                .findById(checkpoint.getBulkOperationId())
+                .orElseGet(JpaInitializeItemsCheckpoint::new);
+        jpaCheckpoint.setId(checkpoint.getBulkOperationId());
+        jpaCheckpoint.setNextOffset(checkpoint.getNextOffset());
+        jpaCheckpoint.setBatchSize(checkpoint.getBatchSize());
+        jpaCheckpoint.setCursor(checkpoint.getCursor());
+        jpaCheckpoint.setTotalItemRecords(checkpoint.getTotalItemRecords());
+        jpaCheckpoint.setLastUpdated(Instant.now());
+        repository.save(jpaCheckpoint);
+    }
+
+    @Override
+    public void deleteCheckpoint(String bulkOperationId) {
+        if (repository.existsById(bulkOperationId)) {
+            repository.deleteById(bulkOperationId);
+        }
+    }
+
+    protected InitializeItemsCheckpoint toCheckpoint(JpaInitializeItemsCheckpoint jpaCheckpoint) {
+        InitializeItemsCheckpoint checkpoint = new InitializeItemsCheckpoint();
+        checkpoint.setBulkOperationId(jpaCheckpoint.getId());
+        checkpoint.setNextOffset(jpaCheckpoint.getNextOffset());
+        checkpoint.setBatchSize(jpaCheckpoint.getBatchSize());
+        checkpoint.setCursor(jpaCheckpoint.getCursor());
+        checkpoint.setTotalItemRecords(jpaCheckpoint.getTotalItemRecords());
+        checkpoint.setLastUpdated(jpaCheckpoint.getLastUpdated());
+        return checkpoint;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.provider.jpa.service;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.broadleafcommerce.bulkoperations.domain.InitializeItemsShard;
+import com.broadleafcommerce.bulkoperations.provider.jpa.domain.JpaInitializeItemsShard;
+import com.broadleafcommerce.bulkoperations.provider.jpa.domain.JpaInitializeItemsShardSet;
+import com.broadleafcommerce.bulkoperations.provider.jpa.repository.JpaInitializeItemsShardRepository;
+import com.broadleafcommerce.bulkoperations.provider.jpa.repository.JpaInitializeItemsShardSetRepository;
+import com.broadleafcommerce.bulkoperations.service.InitializeItemsShardService;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.stream.Collectors;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link InitializeItemsShardService} that tracks the shards in the bulk operations data route,
+ * so that shards completed on any node count towards finishing the bulk operation. Shard
+ * completion and the claim on finishing the bulk operation are each a single conditional update,
+ * so they hold up when shards complete concurrently or are redelivered. Shards are only ever
+ * inserted, so a second registration of the same bulk operation fails on the primary key rather
+ * than overwriting the progress of the first.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class JpaInitializeItemsShardService implements InitializeItemsShardService {
+
+    @Getter(AccessLevel.PROTECTED)
+    private final JpaInitializeItemsShardSetRepository shardSetRepository;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final JpaInitializeItemsShardRepository shardRepository;
+
+    @Override
+    public void registerShards(String bulkOperationId, List<InitializeItemsShard> shards) {
+        try {
+            // inserted in a single transaction, so either all of the shards exist or none do
+            shardRepository.saveAll(shards.stream()
+                    .map(this::toJpaShard)
+                    .collect(Collectors.toList()));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("The shards of bulk operation {} have already been registered.",
+                    bulkOperationId);
+        }
+
+        // The set is saved last, so that it is never claimable before all of its shards exist.
+        // It is saved even if the shards already existed, as the registration that inserted them
+        // may not have saved the set yet.
+        JpaInitializeItemsShardSet shardSet = new JpaInitializeItemsShardSet();
+        shardSet.setId(bulkOperationId);
+        shardSet.setShardCount(shards.size());
+        shardSet.setLastUpdated(Instant.now());
+        try {
+            shardSetRepository.save(shardSet);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("The shard set of bulk operation {} has already been registered.",
+                    bulkOperationId);
+        }
+    }
+
+    @Override
+    public Optional<InitializeItemsShard> getShard(String bulkOperationId, int shardIndex) {
+        return shardRepository.findById(getShardId(bulkOperationId, shardIndex))
+                .map(this::toShard);
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    @Override
+    public void shardCompleted(String bulkOperationId, int shardIndex, long itemCount) {
+        shardRepository.markCompleted(getShardId(bulkOperationId, shardIndex), itemCount);
+    }
+
+    @Override
+    public OptionalLong claimCompletion(String bulkOperationId) {
+        if (shardSetRepository.claimFinished(bulkOperationId, Instant.now()) == 0) {
+            return OptionalLong.empty();
+        }
+
+        return OptionalLong.of(shardRepository.sumItemCounts(bulkOperationId));
+    }
+
+    @Override
+    public void releaseCompletion(String bulkOperationId) {
+        shardSetRepository.releaseFinished(bulkOperationId, Instant.now());
+    }
+
+    @Override
+    public void deleteShards(String bulkOperationId) {
+        shardRepository.deleteByBulkOperationId(bulkOperationId);
+        if (shardSetRepository.existsById(bulkOperationId)) {
+            shardSetRepository.deleteById(bulkOperationId);
+        }
+    }
+
+    protected JpaInitializeItemsShard toJpaShard(InitializeItemsShard shard) {
+        JpaInitializeItemsShard jpaShard = new JpaInitializeItemsShard();
+        jpaShard.setId(getShardId(shard.getBulkOperationId(), shard.getShardIndex()));
+        jpaShard.setBulkOperationId(shard.getBulkOperationId());
+        jpaShard.setShardIndex(shard.getShardIndex());
+        jpaShard.setFirstPage(shard.getFirstPage());
+        jpaShard.setEndPage(shard.getEndPage());
+        jpaShard.setBatchSize(shard.getBatchSize());
+        jpaShard.setItemCount(shard.getItemCount());
+        jpaShard.setCompleted(shard.isCompleted());
+        return jpaShard;
+    }
+
+    protected InitializeItemsShard toShard(JpaInitializeItemsShard jpaShard) {
+        InitializeItemsShard shard = new InitializeItemsShard();
+        shard.setBulkOperationId(jpaShard.getBulkOperationId());
+        shard.setShardIndex(jpaShard.getShardIndex());
+        shard.setShardCount(shardSetRepository.findById(jpaShard.getBulkOperationId())
+                .map(JpaInitializeItemsShardSet::getShardCount)
+                .orElse(0));
+        shard.setFirstPage(jpaShard.getFirstPage());
+        shard.setEndPage(jpaShard.getEndPage());
+        shard.setBatchSize(jpaShard.getBatchSize());
+        shard.setItemCount(jpaShard.getItemCount());
+        shard.setCompleted(jpaShard.isCompleted());
+        return shard;
+    }
+
+    protected String getShardId(String bulkOperationId, int shardIndex) {
+        return bulkOperationId + "_" + shardIndex;
+    }
+}
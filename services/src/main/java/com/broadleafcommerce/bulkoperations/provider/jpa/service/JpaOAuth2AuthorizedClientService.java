@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.provider.jpa.service;
+
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.InMemoryOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import com.broadleafcommerce.bulkoperations.oauth2.client.web.SharedOAuth2AuthorizedClientService;
+import com.broadleafcommerce.bulkoperations.provider.jpa.domain.JpaOAuth2AuthorizedClient;
+import com.broadleafcommerce.bulkoperations.provider.jpa.domain.JpaOAuth2AuthorizedClient.ClientKey;
+import com.broadleafcommerce.bulkoperations.provider.jpa.repository.JpaOAuth2AuthorizedClientRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link OAuth2AuthorizedClientService} that stores client credentials tokens in the bulk
+ * operations data route, so that a token obtained by one node is used by every node instead of
+ * each node requesting its own, for example when scaling out or after a restart.
+ *
+ * Tokens read from the data route are kept locally for a short
+ * {@link #getLocalCacheTimeToLive() time to live}, so that most authorizations do not reach the
+ * database. Authorized clients of other grant types are specific to a user and are only kept in
+ * memory.
+ *
+ * Token values are encrypted with the {@link #getTokenCipher() token cipher} before they are
+ * stored. Without one they are stored as issued, in which case access to the table has to be
+ * restricted like any other credential store.
+ *
+ * A stored token is never replaced by one that expires earlier, so when several nodes obtain a
+ * token at the same time, they all settle on the longest-lived one.
+ */
+@Slf4j
+public class JpaOAuth2AuthorizedClientService implements SharedOAuth2AuthorizedClientService {
+
+    /**
+     * The maximum number of authorized clients kept locally before the local cache is cleared.
+     */
+    private static final int MAX_CACHED_CLIENTS = 256;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final JpaOAuth2AuthorizedClientRepository repository;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final ClientRegistrationRepository clientRegistrationRepository;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final Duration localCacheTimeToLive;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final OAuth2AuthorizedClientService inMemoryClientService;
+
+    @Getter(AccessLevel.PROTECTED)
+    @Nullable
+    private final OAuth2TokenCipher tokenCipher;
+
+    private final Map<ClientKey, CachedClient> localCache = new ConcurrentHashMap<>();
+
+    /**
+     * @param repository the repository the authorized clients are stored in
+     * @param clientRegistrationRepository the client registrations
+     * @param localCacheTimeToLive how long a stored client is reused locally
+     * @param tokenCipher encrypts the stored token values, or {@code null} to store them as issued
+     */
+    public JpaOAuth2AuthorizedClientService(JpaOAuth2AuthorizedClientRepository repository,
+            ClientRegistrationRepository clientRegistrationRepository,
+            Duration localCacheTimeToLive,
+            @Nullable OAuth2TokenCipher tokenCipher) {
+        this.repository = repository;
+        this.clientRegistrationRepository = clientRegistrationRepository;
+        this.localCacheTimeToLive = localCacheTimeToLive;
+        this.tokenCipher = tokenCipher;
+        this.inMemoryClientService =
+                new InMemoryOAuth2AuthorizedClientService(clientRegistrationRepository);
+    }
+
+    @Override
+    public <T extends OAuth2AuthorizedClient> T loadAuthorizedClient(String clientRegistrationId,
+            String principalName) {
+        return load(clientRegistrationId, principalName, true);
+    }
+
+    @Override
+    public <T extends OAuth2AuthorizedClient> T loadLatestAuthorizedClient(
+            String clientRegistrationId,
+            String principalName) {
+        return load(clientRegistrationId, principalName, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends OAuth2AuthorizedClient> T load(String clientRegistrationId,
+            String principalName,
+            boolean useLocalCache) {
+        Assert.hasText(clientRegistrationId, "clientRegistrationId cannot be empty");
+        Assert.hasText(principalName, "principalName cannot be empty");
+
+        ClientRegistration registration =
+                clientRegistrationRepository.findByRegistrationId(clientRegistrationId);
+        if (registration == null) {
+            return null;
+        }
+        if (!isShared(registration)) {
+            return inMemoryClientService.loadAuthorizedClient(clientRegistrationId,
+                    principalName);
+        }
+
+        ClientKey key = new ClientKey(clientRegistrationId, principalName);
+        long now = System.nanoTime();
+        CachedClient cached = useLocalCache ? localCache.get(key) : null;
+        if (cached != null && !cached.isExpired(now)) {
+            return (T) cached.getAuthorizedClient();
+        }
+
+        OAuth2AuthorizedClient authorizedClient = repository.findById(key)
+                .map(jpaClient -> toAuthorizedClient(jpaClient, registration))
+                .orElse(null);
+        if (authorizedClient == null) {
+            localCache.remove(key);
+        } else {
+            cache(key, authorizedClient, now);
+        }
+        return (T) authorizedClient;
+    }
+
+    @Override
+    public void saveAuthorizedClient(OAuth2AuthorizedClient authorizedClient,
+            Authentication principal) {
+        Assert.notNull(authorizedClient, "authorizedClient cannot be null");
+        Assert.notNull(principal, "principal cannot be null");
+
+        if (!isShared(authorizedClient.getClientRegistration())) {
+            inMemoryClientService.saveAuthorizedClient(authorizedClient, principal);
+            return;
+        }
+
+        ClientRegistration registration = authorizedClient.getClientRegistration();
+        ClientKey key = new ClientKey(registration.getRegistrationId(), principal.getName());
+        OAuth2AuthorizedClient stored = repository.findById(key)
+                .map(jpaClient -> toAuthorizedClient(jpaClient, registration))
+                .orElse(null);
+        if (stored != null && expiresLater(stored, authorizedClient)) {
+            // another node already stored a newer token, keep using that one
+            cache(key, stored, System.nanoTime());
+            return;
+        }
+
+        repository.save(toJpaClient(key, authorizedClient));
+        cache(key, authorizedClient, System.nanoTime());
+    }
+
+    @Override
+    public void removeAuthorizedClient(String clientRegistrationId, String principalName) {
+        Assert.hasText(clientRegistrationId, "clientRegistrationId cannot be empty");
+        Assert.hasText(principalName, "principalName cannot be empty");
+
+        ClientRegistration registration =
+                clientRegistrationRepository.findByRegistrationId(clientRegistrationId);
+        if (registration != null && !isShared(registration)) {
+            inMemoryClientService.removeAuthorizedClient(clientRegistrationId, principalName);
+            return;
+        }
+
+        ClientKey key = new ClientKey(clientRegistrationId, principalName);
+        localCache.remove(key);
+        if (repository.existsById(key)) {
+            repository.deleteById(key);
+        }
+    }
+
+    /**
+     * Whether the authorized clients of the given registration are stored in the data route.
+     * Only tokens that are not tied to a user, such as client credentials tokens, are shared.
+     *
+     * @param registration the client registration
+     * @return whether its authorized clients are stored in the data route
+     */
+    protected boolean isShared(ClientRegistration registration) {
+        return AuthorizationGrantType.CLIENT_CREDENTIALS
+                .equals(registration.getAuthorizationGrantType());
+    }
+
+    /**
+     * Whether the stored client's access token expires after the one of the client being saved,
+     * meaning that it was obtained later and should not be replaced.
+     *
+     * @param stored the client currently stored
+     * @param authorizedClient the client being saved
+     * @return whether the stored client should be kept
+     */
+    protected boolean expiresLater(OAuth2AuthorizedClient stored,
+            OAuth2AuthorizedClient authorizedClient) {
+        Instant storedExpiresAt = stored.getAccessToken().getExpiresAt();
+        Instant expiresAt = authorizedClient.getAccessToken().getExpiresAt();
+        return storedExpiresAt != null && expiresAt != null && storedExpiresAt.isAfter(expiresAt);
+    }
+
+    protected JpaOAuth2AuthorizedClient toJpaClient(ClientKey key,
+            OAuth2AuthorizedClient authorizedClient) {
+        OAuth2AccessToken accessToken = authorizedClient.getAccessToken();
+        JpaOAuth2AuthorizedClient jpaClient = new JpaOAuth2AuthorizedClient();
+        jpaClient.setClientRegistrationId(key.getClientRegistrationId());
+        jpaClient.setPrincipalName(key.getPrincipalName());
+        jpaClient.setAccessTokenType(accessToken.getTokenType().getValue());
+        jpaClient.setAccessTokenValue(encrypt(accessToken.getTokenValue(), key));
+        jpaClient.setAccessTokenIssuedAt(accessToken.getIssuedAt());
+        jpaClient.setAccessTokenExpiresAt(accessToken.getExpiresAt());
+        jpaClient.setAccessTokenScopes(
+                StringUtils.collectionToCommaDelimitedString(accessToken.getScopes()));
+
+        OAuth2RefreshToken refreshToken = authorizedClient.getRefreshToken();
+        if (refreshToken != null) {
+            jpaClient.setRefreshTokenValue(encrypt(refreshToken.getTokenValue(), key));
+            jpaClient.setRefreshTokenIssuedAt(refreshToken.getIssuedAt());
+        }
+        jpaClient.setLastUpdated(Instant.now());
+        return jpaClient;
+    }
+
+    /**
+     * Converts the stored client back to an {@link OAuth2AuthorizedClient}. Tokens of a type other
+     * than {@link OAuth2AccessToken.TokenType#BEARER}, and tokens that cannot be decrypted, for
+     * example because the encryption key was changed, are ignored, causing a new token to be
+     * requested.
+     *
+     * @param jpaClient the stored client
+     * @param registration the client registration the client belongs to
+     * @return the authorized client, or {@code null} if it cannot be restored
+     */
+    protected OAuth2AuthorizedClient toAuthorizedClient(JpaOAuth2AuthorizedClient jpaClient,
+            ClientRegistration registration) {
+        if (!OAuth2AccessToken.TokenType.BEARER.getValue()
+                .equalsIgnoreCase(jpaClient.getAccessTokenType())) {
+            return null;
+        }
+
+        ClientKey key =
+                new ClientKey(jpaClient.getClientRegistrationId(), jpaClient.getPrincipalName());
+        String accessTokenValue;
+        String refreshTokenValue;
+        try {
+            accessTokenValue = decrypt(jpaClient.getAccessTokenValue(), key);
+            refreshTokenValue = jpaClient.getRefreshTokenValue() == null ? null
+                    : decrypt(jpaClient.getRefreshTokenValue(), key);
+        } catch (IllegalArgumentException e) {
+            log.debug("Ignoring the stored token of client registration {} as it cannot be"
+                    + " decrypted", key.getClientRegistrationId(), e);
+            return null;
+        }
+
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(
+                OAuth2AccessToken.TokenType.BEARER,
+                accessTokenValue,
+                jpaClient.getAccessTokenIssuedAt(),
+                jpaClient.getAccessTokenExpiresAt(),
+                StringUtils.commaDelimitedListToSet(jpaClient.getAccessTokenScopes()));
+        OAuth2RefreshToken refreshToken = refreshTokenValue == null ? null
+                : new OAuth2RefreshToken(refreshTokenValue, jpaClient.getRefreshTokenIssuedAt());
+        return new OAuth2AuthorizedClient(registration, jpaClient.getPrincipalName(),
+                accessToken, refreshToken);
+    }
+
+    private String encrypt(String value, ClientKey key) {
+        return tokenCipher == null ? value : tokenCipher.encrypt(value, getCipherContext(key));
+    }
+
+    private String decrypt(String value, ClientKey key) {
+        return tokenCipher == null ? value : tokenCipher.decrypt(value, getCipherContext(key));
+    }
+
+    private String getCipherContext(ClientKey key) {
+        return key.getClientRegistrationId() + ":" + key.getPrincipalName();
+    }
+
+    private void cache(ClientKey key, OAuth2AuthorizedClient authorizedClient, long now) {
+        if (localCacheTimeToLive.isZero() || localCacheTimeToLive.isNegative()) {
+            return;
+        }
+        if (localCache.size() >= MAX_CACHED_CLIENTS) {
+            localCache.clear();
+        }
+        localCache.put(key,
+                new CachedClient(authorizedClient, now + localCacheTimeToLive.toNanos()));
+    }
+
+    @Getter
+    private static class CachedClient {
+
+        private final OAuth2AuthorizedClient authorizedClient;
+
+        private final long expiresAt;
+
+        CachedClient(OAuth2AuthorizedClient authorizedClient, long expiresAt) {
+            this.authorizedClient = authorizedClient;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
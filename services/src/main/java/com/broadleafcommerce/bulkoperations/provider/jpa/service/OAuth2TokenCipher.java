@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.provider.jpa.service;
+
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encrypts the token values stored by {@link JpaOAuth2AuthorizedClientService} with AES-GCM, so
+ * that reading the table is not enough to use the tokens. Each value is bound to the client it
+ * belongs to, so a value copied to another row does not decrypt.
+ *
+ * Encrypted values are stored as the Base64 encoding of the random IV followed by the cipher text
+ * and its authentication tag, which adds about a third plus 38 characters to the length of a
+ * token.
+ */
+public class OAuth2TokenCipher {
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+    private static final int IV_LENGTH = 12;
+
+    private static final int TAG_LENGTH = 128;
+
+    private final SecretKey key;
+
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @param base64Key the Base64 encoded AES key, which must be 16, 24 or 32 bytes long
+     */
+    public OAuth2TokenCipher(String base64Key) {
+        Assert.hasText(base64Key, "The token encryption key cannot be empty");
+        byte[] keyBytes = Base64.getDecoder().decode(base64Key.trim());
+        Assert.isTrue(keyBytes.length == 16 || keyBytes.length == 24 || keyBytes.length == 32,
+                "The token encryption key must be a Base64 encoded 128, 192 or 256 bit AES key");
+        this.key = new SecretKeySpec(keyBytes, "AES");
+    }
+
+    /**
+     * Encrypts the given value.
+     *
+     * @param value the token value
+     * @param context identifies the client the value belongs to, such as the registration ID and
+     *        principal name
+     * @return the encrypted value
+     */
+    public String encrypt(String value, String context) {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, iv));
+            cipher.updateAAD(context.getBytes(StandardCharsets.UTF_8));
+            byte[] encrypted = cipher.doFinal(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(
+                    ByteBuffer.allocate(iv.length + encrypted.length)
+                            .put(iv)
+                            .put(encrypted)
+                            .array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to encrypt the token", e);
+        }
+    }
+
+    /**
+     * Decrypts a value produced by {@link #encrypt(String, String)}.
+     *
+     * @param value the encrypted value
+     * @param context the context the value was encrypted with
+     * @return the token value
+     * @throws IllegalArgumentException if the value was not encrypted with this key and context,
+     *         for example because the key was changed
+     */
+    public String decrypt(String value, String context) {
+        try {
+            byte[] decoded = Base64.getDecoder().decode(value);
+            Assert.isTrue(decoded.length > IV_LENGTH, "The token is not encrypted");
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, key,
+                    new GCMParameterSpec(TAG_LENGTH, decoded, 0, IV_LENGTH));
+            cipher.updateAAD(context.getBytes(StandardCharsets.UTF_8));
+            return new String(
+                    cipher.doFinal(decoded, IV_LENGTH, decoded.length - IV_LENGTH),
+                    StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Unable to decrypt the token", e);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service;
+
+import org.springframework.lang.Nullable;
+
+import com.broadleafcommerce.bulk.v2.domain.BulkOperationRequest;
+import com.broadleafcommerce.bulkoperations.service.environment.BulkOperationsMetricsProperties;
+import com.broadleafcommerce.data.tracking.core.context.ContextInfo;
+import com.broadleafcommerce.data.tracking.core.context.ContextRequest;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.AccessLevel;
+import lombok.Getter;
+import reactor.core.publisher.Mono;
+
+/**
+ * Records how long each stage of the bulk operation pipeline takes, from the create request down
+ * to the process message, so that throughput and latency can be followed per tenant, operation
+ * type and entity type.
+ * <p>
+ * Every stage is timed by the {@link #STAGE_METRIC} timer, tagged by stage, outcome and the type
+ * of exception a failed stage ended with. The items returned by each search page are recorded by
+ * the {@link #PAGE_ITEMS_METRIC} distribution summary, and the items initialized are counted by
+ * the {@link #INITIALIZED_ITEMS_METRIC} counter. Meters are registered once per combination of
+ * tags and reused afterwards.
+ */
+public class BulkOperationsMetrics {
+
+    public static final String STAGE_METRIC = "broadleaf.bulkoperations.stage";
+
+    public static final String PAGE_ITEMS_METRIC = "broadleaf.bulkoperations.initialize.page.items";
+
+    public static final String INITIALIZED_ITEMS_METRIC =
+            "broadleaf.bulkoperations.initialize.items";
+
+    /**
+     * Handling a request to create a bulk operation, end to end.
+     */
+    public static final String CREATE_BULK_OPERATION_STAGE = "create-bulk-operation";
+
+    /**
+     * Sending the message that creates the sandbox of a bulk operation.
+     */
+    public static final String SEND_CREATE_SANDBOX_STAGE = "send-create-sandbox";
+
+    /**
+     * Creating the bulk operation with the catalog provider.
+     */
+    public static final String CATALOG_CREATE_BULK_OPERATION_STAGE =
+            "catalog-create-bulk-operation";
+
+    /**
+     * Sending the message that starts the initialization of the bulk operation items.
+     */
+    public static final String SEND_INITIALIZE_ITEMS_STAGE = "send-initialize-items";
+
+    /**
+     * Retrieving a single page of search results.
+     */
+    public static final String SEARCH_PAGE_STAGE = "search-page";
+
+    /**
+     * Initializing the bulk operation items of a single page with the catalog provider.
+     */
+    public static final String INITIALIZE_ITEMS_STAGE = "initialize-items";
+
+    /**
+     * Sending the message that starts processing the bulk operation.
+     */
+    public static final String SEND_PROCESS_STAGE = "send-process";
+
+    /**
+     * The tag value used when the tenant, operation type or entity type is not known.
+     */
+    public static final String UNKNOWN = "none";
+
+    @Getter(AccessLevel.PROTECTED)
+    private final MeterRegistry meterRegistry;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final BulkOperationsMetricsProperties properties;
+
+    private final Map<Tags, Timer> stageTimers = new ConcurrentHashMap<>();
+
+    private final Map<Tags, DistributionSummary> pageItemsSummaries = new ConcurrentHashMap<>();
+
+    private final Map<Tags, Counter> initializedItemsCounters = new ConcurrentHashMap<>();
+
+    public BulkOperationsMetrics(MeterRegistry meterRegistry) {
+        this(meterRegistry, new BulkOperationsMetricsProperties());
+    }
+
+    public BulkOperationsMetrics(MeterRegistry meterRegistry,
+            BulkOperationsMetricsProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+    }
+
+    /**
+     * Times a stage of the pipeline.
+     *
+     * @param stage the name of the stage
+     * @param request the bulk operation the stage belongs to
+     * @param contextInfo the context the stage runs in
+     * @param action the work of the stage
+     * @param <T> the type of the result
+     * @return the result of the action
+     */
+    public <T> T record(String stage,
+            @Nullable BulkOperationRequest request,
+            @Nullable ContextInfo contextInfo,
+            Supplier<T> action) {
+        return recordResolved(stage, () -> request, contextInfo, action);
+    }
+
+    /**
+     * Times a stage of the pipeline whose bulk operation comes straight from a client, such as
+     * the body of a create request. Its operation type and entity type are only used as tags if
+     * {@code resolvedRequest} supplies the request when the stage ends, which should only be the
+     * case once they resolved to a handler. Until then they are tagged as {@link #UNKNOWN}, so
+     * that arbitrary values sent by a client do not register new meters.
+     *
+     * @param stage the name of the stage
+     * @param resolvedRequest supplies the bulk operation once its types resolved to a handler,
+     *        or {@code null} if they did not
+     * @param contextInfo the context the stage runs in
+     * @param action the work of the stage
+     * @param <T> the type of the result
+     * @return the result of the action
+     */
+    public <T> T recordResolved(String stage,
+            Supplier<BulkOperationRequest> resolvedRequest,
+            @Nullable ContextInfo contextInfo,
+            Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            T result = action.get();
+            stop(stage, resolvedRequest.get(), contextInfo, start, null);
+            return result;
+        } catch (RuntimeException e) {
+            stop(stage, resolvedRequest.get(), contextInfo, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Times a stage of the pipeline that has no result.
+     *
+     * @param stage the name of the stage
+     * @param request the bulk operation the stage belongs to
+     * @param contextInfo the context the stage runs in
+     * @param action the work of the stage
+     */
+    public void record(String stage,
+            @Nullable BulkOperationRequest request,
+            @Nullable ContextInfo contextInfo,
+            Runnable action) {
+        record(stage, request, contextInfo, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Times a stage of the pipeline from subscription until the given {@link Mono} terminates.
+     *
+     * @param stage the name of the stage
+     * @param request the bulk operation the stage belongs to
+     * @param contextInfo the context the stage runs in
+     * @param action the work of the stage
+     * @param <T> the type of the result
+     * @return the timed action
+     */
+    public <T> Mono<T> recordReactive(String stage,
+            @Nullable BulkOperationRequest request,
+            @Nullable ContextInfo contextInfo,
+            Mono<T> action) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return action
+                    .doOnSuccess(result -> stop(stage, request, contextInfo, start, null))
+                    .doOnError(e -> stop(stage, request, contextInfo, start, e));
+        });
+    }
+
+    /**
+     * Records the number of items a page of search results contained.
+     *
+     * @param request the bulk operation the page belongs to
+     * @param contextInfo the context the page was retrieved in
+     * @param items the number of items in the page
+     */
+    public void recordPageItems(@Nullable BulkOperationRequest request,
+            @Nullable ContextInfo contextInfo,
+            long items) {
+        pageItemsSummaries.computeIfAbsent(getTags(request, contextInfo),
+                tags -> DistributionSummary.builder(PAGE_ITEMS_METRIC)
+                        .description("Items per page of search results of a bulk operation")
+                        .baseUnit("items")
+                        .tags(tags)
+                        .register(meterRegistry))
+                .record(items);
+    }
+
+    /**
+     * Counts bulk operation items that were initialized.
+     *
+     * @param request the bulk operation the items belong to
+     * @param contextInfo the context the items were initialized in
+     * @param items the number of items initialized
+     */
+    public void recordInitializedItems(@Nullable BulkOperationRequest request,
+            @Nullable ContextInfo contextInfo,
+            long items) {
+        initializedItemsCounters.computeIfAbsent(getTags(request, contextInfo),
+                tags -> Counter.builder(INITIALIZED_ITEMS_METRIC)
+                        .description("Bulk operation items initialized")
+                        .baseUnit("items")
+                        .tags(tags)
+                        .register(meterRegistry))
+                .increment(items);
+    }
+
+    protected void stop(String stage,
+            @Nullable BulkOperationRequest request,
+            @Nullable ContextInfo contextInfo,
+            long start,
+            @Nullable Throwable throwable) {
+        Tags tags = getTags(request, contextInfo).and(
+                "stage", stage,
+                "outcome", throwable == null ? "success" : "error",
+                "exception", getExceptionTag(throwable));
+        stageTimers.computeIfAbsent(tags, timerTags -> Timer.builder(STAGE_METRIC)
+                .description("Time spent in a stage of the bulk operation pipeline")
+                .tags(timerTags)
+                .publishPercentileHistogram(properties.isPercentileHistogram())
+                .register(meterRegistry))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the value of the exception tag for the failure a stage ended with. Wrappers such as
+     * {@link CompletionException} are unwrapped so that the tag names the actual failure, and the
+     * full class name is used for classes without a simple name, such as anonymous classes.
+     *
+     * @param throwable the failure, or {@code null} if the stage succeeded
+     * @return the exception tag value
+     */
+    protected String getExceptionTag(@Nullable Throwable throwable) {
+        if (throwable == null) {
+            return UNKNOWN;
+        }
+
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        String name = cause.getClass().getSimpleName();
+        return name.isEmpty() ? cause.getClass().getName() : name;
+    }
+
+    /**
+     * Builds the tenant, operation type and entity type tags shared by all metrics. The tenant
+     * tag is left out if {@link BulkOperationsMetricsProperties#isTenantTag()} is disabled.
+     *
+     * @param request the bulk operation being measured
+     * @param contextInfo the context the bulk operation runs in
+     * @return the tags
+     */
+    protected Tags getTags(@Nullable BulkOperationRequest request,
+            @Nullable ContextInfo contextInfo) {
+        String operationType = Optional.ofNullable(request)
+                .map(BulkOperationRequest::getOperationType)
+                .orElse(UNKNOWN);
+        String entityType = Optional.ofNullable(request)
+                .map(BulkOperationRequest::getEntityType)
+                .orElse(UNKNOWN);
+        Tags tags = Tags.of("operation.type", operationType, "entity.type", entityType);
+        if (!properties.isTenantTag()) {
+            return tags;
+        }
+
+        String tenant = Optional.ofNullable(contextInfo)
+                .map(ContextInfo::getContextRequest)
+                .map(ContextRequest::getTenantId)
+                .orElse(UNKNOWN);
+        return tags.and("tenant", tenant);
+    }
+}
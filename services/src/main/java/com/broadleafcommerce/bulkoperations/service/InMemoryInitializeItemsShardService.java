@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service;
+
+import com.broadleafcommerce.bulkoperations.domain.InitializeItemsShard;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default {@link InitializeItemsShardService} used when bulk operations are not backed by a
+ * database. The shards are only tracked on the local node, so the shard messages of a bulk
+ * operation would all have to be consumed by this node for it to be finished, which is why the
+ * sharded initialization mode requires a {@link #isShared() shared} implementation.
+ */
+public class InMemoryInitializeItemsShardService implements InitializeItemsShardService {
+
+    private final Map<String, ShardSet> shardSets = new ConcurrentHashMap<>();
+
+    @Override
+    public void registerShards(String bulkOperationId, List<InitializeItemsShard> shards) {
+        shardSets.computeIfAbsent(bulkOperationId, id -> new ShardSet(shards));
+    }
+
+    @Override
+    public Optional<InitializeItemsShard> getShard(String bulkOperationId, int shardIndex) {
+        ShardSet shardSet = shardSets.get(bulkOperationId);
+        if (shardSet == null || shardIndex < 0 || shardIndex >= shardSet.shards.size()) {
+            return Optional.empty();
+        }
+        return Optional.of(shardSet.shards.get(shardIndex));
+    }
+
+    @Override
+    public boolean isShared() {
+        return false;
+    }
+
+    @Override
+    public void shardCompleted(String bulkOperationId, int shardIndex, long itemCount) {
+        ShardSet shardSet = shardSets.get(bulkOperationId);
+        if (shardSet != null) {
+            shardSet.itemCounts.putIfAbsent(shardIndex, itemCount);
+        }
+    }
+
+    @Override
+    public OptionalLong claimCompletion(String bulkOperationId) {
+        ShardSet shardSet = shardSets.get(bulkOperationId);
+        if (shardSet == null) {
+            return OptionalLong.empty();
+        }
+
+        synchronized (shardSet) {
+            if (shardSet.claimed || shardSet.itemCounts.size() < shardSet.shardCount) {
+                return OptionalLong.empty();
+            }
+            shardSet.claimed = true;
+        }
+        return OptionalLong.of(shardSet.itemCounts.values().stream()
+                .mapToLong(Long::longValue)
+                .sum());
+    }
+
+    @Override
+    public void releaseCompletion(String bulkOperationId) {
+        ShardSet shardSet = shardSets.get(bulkOperationId);
+        if (shardSet != null) {
+            synchronized (shardSet) {
+                shardSet.claimed = false;
+            }
+        }
+    }
+
+    @Override
+    public void deleteShards(String bulkOperationId) {
+        shardSets.remove(bulkOperationId);
+    }
+
+    private static class ShardSet {
+
+        private final List<InitializeItemsShard> shards;
+
+        private final int shardCount;
+
+        private final Map<Integer, Long> itemCounts = new ConcurrentHashMap<>();
+
+        private boolean claimed;
+
+        private ShardSet(List<InitializeItemsShard> shards) {
+            this.shards = List.copyOf(shards);
+            this.shardCount = shards.size();
+            shards.stream()
+                    .filter(InitializeItemsShard::isCompleted)
+                    .forEach(shard -> itemCounts.put(shard.getShardIndex(), shard.getItemCount()));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service;
+
+import com.broadleafcommerce.bulk.v2.messaging.BulkOpsInitializeItemsRequest;
+import com.broadleafcommerce.bulkoperations.domain.InitializeItemsCheckpoint;
+
+import java.util.Optional;
+
+/**
+ * Persists {@link InitializeItemsCheckpoint checkpoints} of the bulk operation item
+ * initialization, so that a redelivered {@link BulkOpsInitializeItemsRequest} resumes where the
+ * previous attempt left off instead of starting over.
+ */
+public interface InitializeItemsCheckpointService {
+
+    /**
+     * Reads the latest checkpoint for the bulk operation.
+     *
+     * @param bulkOperationId the ID of the bulk operation
+     * @return the latest checkpoint, or empty if the initialization has not started yet
+     */
+    Optional<InitializeItemsCheckpoint> readCheckpoint(String bulkOperationId);
+
+    /**
+     * Saves the checkpoint, replacing any previous checkpoint for the same bulk operation.
+     *
+     * @param checkpoint the checkpoint to save
+     */
+    void saveCheckpoint(InitializeItemsCheckpoint checkpoint);
+
+    /**
+     * Deletes the checkpoint for the bulk operation once its items have been initialized.
+     *
+     * @param bulkOperationId the ID of the bulk operation
+     */
+    void deleteCheckpoint(String bulkOperationId);
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service;
+
+import com.broadleafcommerce.bulkoperations.domain.InitializeItemsShard;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Tracks the {@link InitializeItemsShard shards} a bulk operation's item initialization was split
+ * into, so that the bulk operation is processed exactly once after the last shard completes,
+ * regardless of which node completes it.
+ */
+public interface InitializeItemsShardService {
+
+    /**
+     * Registers the shards of the bulk operation, including any that are already
+     * {@link InitializeItemsShard#isCompleted() completed}. Registering the shards of a bulk
+     * operation that has already been registered, including concurrently, has no effect. Once
+     * this returns, the shards of the bulk operation are registered by this or an earlier call.
+     *
+     * @param bulkOperationId the ID of the bulk operation
+     * @param shards the shards the item initialization was split into
+     */
+    void registerShards(String bulkOperationId, List<InitializeItemsShard> shards);
+
+    /**
+     * Gets a registered shard, so that a shard message that only identifies the shard can be
+     * processed.
+     *
+     * @param bulkOperationId the ID of the bulk operation
+     * @param shardIndex the index of the shard
+     * @return the shard, or empty if it is not registered, for example because the bulk operation
+     *         has already been finished
+     */
+    Optional<InitializeItemsShard> getShard(String bulkOperationId, int shardIndex);
+
+    /**
+     * Whether the shards are tracked in a store shared by every node, so that shard messages can
+     * be consumed by any node of the cluster.
+     *
+     * @return whether the shards are shared across nodes
+     */
+    boolean isShared();
+
+    /**
+     * Records that a shard has completed. Recording a shard that has already completed has no
+     * effect, so that redelivered shard messages are not counted twice.
+     *
+     * @param bulkOperationId the ID of the bulk operation
+     * @param shardIndex the index of the completed shard
+     * @param itemCount the number of bulk operation items initialized by the shard
+     */
+    void shardCompleted(String bulkOperationId, int shardIndex, long itemCount);
+
+    /**
+     * Claims the completion of the bulk operation's item initialization. Only one caller is able
+     * to claim it, and only once every shard has completed.
+     *
+     * @param bulkOperationId the ID of the bulk operation
+     * @return the total number of bulk operation items initialized by all shards if the completion
+     *         was claimed by this caller, otherwise empty
+     */
+    OptionalLong claimCompletion(String bulkOperationId);
+
+    /**
+     * Releases a previously claimed completion, so that it can be claimed again when finishing the
+     * bulk operation failed.
+     *
+     * @param bulkOperationId the ID of the bulk operation
+     */
+    void releaseCompletion(String bulkOperationId);
+
+    /**
+     * Deletes the shards of the bulk operation once it has been finished.
+     *
+     * @param bulkOperationId the ID of the bulk operation
+     */
+    void deleteShards(String bulkOperationId);
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service;
+
+import com.broadleafcommerce.bulkoperations.domain.InitializeItemsCheckpoint;
+
+import java.util.Optional;
+
+/**
+ * Default {@link InitializeItemsCheckpointService} used when bulk operations are not backed by a
+ * database. Checkpoints are not kept, so a redelivered request starts over from the first page.
+ */
+public class NoOpInitializeItemsCheckpointService implements InitializeItemsCheckpointService {
+
+    @Override
+    public Optional<InitializeItemsCheckpoint> readCheckpoint(String bulkOperationId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void saveCheckpoint(InitializeItemsCheckpoint checkpoint) {}
+
+    @Override
+    public void deleteCheckpoint(String bulkOperationId) {}
+}
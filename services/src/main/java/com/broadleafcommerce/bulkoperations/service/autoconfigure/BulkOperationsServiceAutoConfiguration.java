@@ -16,8 +16,10 @@
  */
 package com.broadleafcommerce.bulkoperations.service.autoconfigure;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
@@ -28,31 +30,56 @@ import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.http.codec.json.Jackson2JsonDecoder;
 import org.springframework.http.codec.json.Jackson2JsonEncoder;
 import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProvider;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientProviderBuilder;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.client.web.reactive.function.client.ServerOAuth2AuthorizedClientExchangeFilterFunction;
 import org.springframework.security.oauth2.client.web.reactive.function.client.ServletOAuth2AuthorizedClientExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 
+import com.broadleafcommerce.bulk.v2.domain.SupportedBulkOperation;
 import com.broadleafcommerce.bulk.v2.messaging.BulkOpsInitializeItemsRequestProducer;
 import com.broadleafcommerce.bulk.v2.messaging.sandbox.CreateSandboxRequestProducer;
 import com.broadleafcommerce.bulkoperations.domain.CatalogItem;
 import com.broadleafcommerce.bulkoperations.oauth2.client.endpoint.OAuth2ClientCredentialsAccessTokenResponseClient;
+import com.broadleafcommerce.bulkoperations.oauth2.client.endpoint.ReactiveOAuth2ClientCredentialsAccessTokenResponseClient;
+import com.broadleafcommerce.bulkoperations.oauth2.client.web.BlockingReactiveOAuth2AuthorizedClientService;
+import com.broadleafcommerce.bulkoperations.oauth2.client.web.SharedReactiveOAuth2AuthorizedClientManager;
 import com.broadleafcommerce.bulkoperations.oauth2.client.web.SynchronizedDelegatingOAuth2AuthorizedClientManager;
+import com.broadleafcommerce.bulkoperations.service.BulkOperationsMetrics;
 import com.broadleafcommerce.bulkoperations.service.BulkOperationsService;
 import com.broadleafcommerce.bulkoperations.service.DefaultBulkOperationsService;
+import com.broadleafcommerce.bulkoperations.service.environment.BulkOperationHandlerRegistryProperties;
+import com.broadleafcommerce.bulkoperations.service.environment.BulkOperationsMetricsProperties;
 import com.broadleafcommerce.bulkoperations.service.environment.BulkOperationsProviderProperties;
 import com.broadleafcommerce.bulkoperations.service.environment.RouteConstants;
 import com.broadleafcommerce.bulkoperations.service.handler.BulkOperationHandler;
+import com.broadleafcommerce.bulkoperations.service.handler.BulkOperationHandlerRegistry;
 import com.broadleafcommerce.bulkoperations.service.handler.CatalogBulkOperationHandler;
+import com.broadleafcommerce.bulkoperations.service.handler.DefaultBulkOperationHandlerRegistry;
 import com.broadleafcommerce.bulkoperations.service.provider.CatalogProvider;
 import com.broadleafcommerce.bulkoperations.service.provider.SearchProvider;
 import com.broadleafcommerce.bulkoperations.service.provider.external.ExternalCatalogProperties;
 import com.broadleafcommerce.bulkoperations.service.provider.external.ExternalCatalogProvider;
 import com.broadleafcommerce.bulkoperations.service.provider.external.ExternalSearchProperties;
 import com.broadleafcommerce.bulkoperations.service.provider.external.ExternalSearchProvider;
+import com.broadleafcommerce.bulkoperations.service.provider.external.SearchResponseIdDecoder;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderBinaryCodecs;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderCodecProperties;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderConnectionPoolProperties;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderContentNegotiationFilter;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderRateLimitProperties;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderRateLimiter;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderRequestHedger;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderResilience;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderResilienceProperties;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderResponseCache;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderTokenProperties;
 import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderUtils;
 import com.broadleafcommerce.common.extension.TypeFactory;
 import com.broadleafcommerce.common.extension.data.DataRouteSupporting;
@@ -61,20 +88,32 @@ import com.broadleafcommerce.common.messaging.notification.DetachedDurableMessag
 import com.broadleafcommerce.data.tracking.core.context.ContextInfoCustomizer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 
 import javax.net.ssl.SSLException;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.netty.channel.ChannelOption;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import lombok.RequiredArgsConstructor;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 @EnableConfigurationProperties({SSLVerificationProperties.class, ExternalSearchProperties.class,
-        ExternalCatalogProperties.class})
+        ExternalCatalogProperties.class, ProviderRateLimitProperties.class,
+        ProviderResilienceProperties.class, BulkOperationHandlerRegistryProperties.class,
+        ProviderCodecProperties.class, ProviderConnectionPoolProperties.class,
+        ProviderTokenProperties.class, BulkOperationsMetricsProperties.class})
 public class BulkOperationsServiceAutoConfiguration {
 
     /**
@@ -88,34 +127,177 @@ public class BulkOperationsServiceAutoConfiguration {
     @ConditionalOnMissingBean(name = "oAuth2FilterFunctionSupplier")
     public Supplier<ServletOAuth2AuthorizedClientExchangeFilterFunction> bulkOperationsOauth2FilterFunctionSupplier(
             ClientRegistrationRepository clientRegistrations,
-            @Qualifier("bulkOperationsClientHttpConnector") Optional<ClientHttpConnector> clientHttpConnector) {
+            @Qualifier("bulkOperationsClientHttpConnector") Optional<ClientHttpConnector> clientHttpConnector,
+            ProviderTokenProperties tokenProperties,
+            @Qualifier("bulkOperationsOAuth2AuthorizedClientService") Optional<OAuth2AuthorizedClientService> authorizedClientService,
+            @Qualifier("bulkOperationsTokenRefreshExecutor") ExecutorService tokenRefreshExecutor) {
         final SynchronizedDelegatingOAuth2AuthorizedClientManager manager =
-                new SynchronizedDelegatingOAuth2AuthorizedClientManager(clientRegistrations);
+                authorizedClientService
+                        .map(service -> new SynchronizedDelegatingOAuth2AuthorizedClientManager(
+                                clientRegistrations, service))
+                        .orElseGet(() -> new SynchronizedDelegatingOAuth2AuthorizedClientManager(
+                                clientRegistrations));
+        manager.setRefreshExecutor(tokenRefreshExecutor);
         manager.setAuthorizedClientProvider(
-                getClientCredentialsAuthorizedClientProvider(clientHttpConnector));
+                getClientCredentialsAuthorizedClientProvider(clientHttpConnector,
+                        tokenProperties));
         return () -> new ServletOAuth2AuthorizedClientExchangeFilterFunction(manager);
     }
 
+    /**
+     * Runs the proactive token refreshes of {@link #bulkOperationsOauth2FilterFunctionSupplier}.
+     * Refreshes are rare and serialized per client registration, so a single daemon thread is
+     * enough; it is shut down with the application context.
+     */
+    @Bean(name = "bulkOperationsTokenRefreshExecutor", destroyMethod = "shutdownNow")
+    @ConditionalOnMissingBean(name = "bulkOperationsTokenRefreshExecutor")
+    public ExecutorService bulkOperationsTokenRefreshExecutor() {
+        CustomizableThreadFactory threadFactory =
+                new CustomizableThreadFactory("bulkops-token-refresh-");
+        threadFactory.setDaemon(true);
+        return Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    /**
+     * Authorizes the requests of {@link #bulkOperationsWebClient} without blocking while a token
+     * is requested. Takes the place of {@link #bulkOperationsOauth2FilterFunctionSupplier} when
+     * {@link ProviderTokenProperties#isReactive()} is enabled. Tokens are kept in the shared
+     * {@code bulkOperationsOAuth2AuthorizedClientService} when one is configured.
+     */
+    @Bean(name = "bulkOperationsReactiveOAuth2FilterFunction")
+    @ConditionalOnMissingBean(name = "bulkOperationsReactiveOAuth2FilterFunction")
+    @ConditionalOnProperty(name = "broadleaf.bulkoperations.provider.token.reactive",
+            havingValue = "true")
+    public ServerOAuth2AuthorizedClientExchangeFilterFunction bulkOperationsReactiveOAuth2FilterFunction(
+            ClientRegistrationRepository clientRegistrations,
+            @Qualifier("bulkOperationsClientHttpConnector") Optional<ClientHttpConnector> clientHttpConnector,
+            ProviderTokenProperties tokenProperties,
+            @Qualifier("bulkOperationsOAuth2AuthorizedClientService") Optional<OAuth2AuthorizedClientService> authorizedClientService) {
+        final SharedReactiveOAuth2AuthorizedClientManager manager =
+                authorizedClientService
+                        .map(service -> new SharedReactiveOAuth2AuthorizedClientManager(
+                                clientRegistrations,
+                                new BlockingReactiveOAuth2AuthorizedClientService(service)))
+                        .orElseGet(() -> new SharedReactiveOAuth2AuthorizedClientManager(
+                                clientRegistrations));
+        manager.setAuthorizedClientProvider(ReactiveOAuth2AuthorizedClientProviderBuilder.builder()
+                .clientCredentials(builder -> builder.accessTokenResponseClient(
+                        getAccessTokenResponseClient(clientHttpConnector, tokenProperties)))
+                .build());
+        return new ServerOAuth2AuthorizedClientExchangeFilterFunction(manager);
+    }
+
     // TODO: possibly move this to a broadleaf oauth2 client dependency
     // https://github.com/BroadleafCommerce/MicroPM/issues/1924
     private static OAuth2AuthorizedClientProvider getClientCredentialsAuthorizedClientProvider(
-            Optional<ClientHttpConnector> clientHttpConnector) {
-        return OAuth2AuthorizedClientProviderBuilder.builder().clientCredentials(builder -> {
-            WebClient.Builder webClientBuilder = WebClient.builder();
-            clientHttpConnector.ifPresent(webClientBuilder::clientConnector);
-
-            builder.accessTokenResponseClient(
-                    new OAuth2ClientCredentialsAccessTokenResponseClient(
-                            webClientBuilder.build()));
-        }).build();
+            Optional<ClientHttpConnector> clientHttpConnector,
+            ProviderTokenProperties tokenProperties) {
+        return OAuth2AuthorizedClientProviderBuilder.builder()
+                .clientCredentials(builder -> builder.accessTokenResponseClient(
+                        new OAuth2ClientCredentialsAccessTokenResponseClient(
+                                getAccessTokenResponseClient(clientHttpConnector,
+                                        tokenProperties))))
+                .build();
     }
 
+    private static ReactiveOAuth2ClientCredentialsAccessTokenResponseClient getAccessTokenResponseClient(
+            Optional<ClientHttpConnector> clientHttpConnector,
+            ProviderTokenProperties tokenProperties) {
+        WebClient.Builder webClientBuilder = WebClient.builder();
+        clientHttpConnector.ifPresent(webClientBuilder::clientConnector);
+
+        ReactiveOAuth2ClientCredentialsAccessTokenResponseClient client =
+                new ReactiveOAuth2ClientCredentialsAccessTokenResponseClient(
+                        webClientBuilder.build());
+        client.setTimeout(tokenProperties.getTimeout());
+        client.setMaxAttempts(tokenProperties.getMaxAttempts());
+        client.setInitialBackoff(tokenProperties.getInitialBackoff());
+        client.setMaxBackoff(tokenProperties.getMaxBackoff());
+        return client;
+    }
+
+    /**
+     * The client of the requests to the catalog service, and of any other request bulk
+     * operations makes that is not a search.
+     */
     @Bean
     @ConditionalOnMissingBean(name = "bulkOperationsWebClient")
     public WebClient bulkOperationsWebClient(
             @Qualifier("oAuth2FilterFunctionSupplier") Supplier<ServletOAuth2AuthorizedClientExchangeFilterFunction> oauth2FilterSupplier,
+            @Qualifier("bulkOperationsReactiveOAuth2FilterFunction") Optional<ServerOAuth2AuthorizedClientExchangeFilterFunction> reactiveOAuth2Filter,
+            ObjectMapper objectMapper,
+            @Qualifier("bulkOperationsClientHttpConnector") ClientHttpConnector clientHttpConnector,
+            ProviderCodecProperties codecProperties) {
+        return buildWebClient(oauth2FilterSupplier, reactiveOAuth2Filter, objectMapper,
+                clientHttpConnector, codecProperties);
+    }
+
+    /**
+     * The client of the requests to the search service. It has its own connections, so that
+     * searches and catalog requests do not compete for the same pool.
+     */
+    @Bean
+    @ConditionalOnMissingBean(name = "bulkOperationsSearchWebClient")
+    public WebClient bulkOperationsSearchWebClient(
+            @Qualifier("oAuth2FilterFunctionSupplier") Supplier<ServletOAuth2AuthorizedClientExchangeFilterFunction> oauth2FilterSupplier,
+            @Qualifier("bulkOperationsReactiveOAuth2FilterFunction") Optional<ServerOAuth2AuthorizedClientExchangeFilterFunction> reactiveOAuth2Filter,
+            ObjectMapper objectMapper,
+            @Qualifier("bulkOperationsSearchClientHttpConnector") ClientHttpConnector clientHttpConnector,
+            ProviderCodecProperties codecProperties) {
+        return buildWebClient(oauth2FilterSupplier, reactiveOAuth2Filter, objectMapper,
+                clientHttpConnector, codecProperties);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(name = "bulkOperationsClientHttpConnector")
+    public ClientHttpConnector bulkOperationsClientHttpConnector(
+            SSLVerificationProperties sslVerificationProperties,
+            ProviderCodecProperties codecProperties,
+            ProviderConnectionPoolProperties poolProperties,
+            @Qualifier("bulkOperationsCatalogConnectionProvider") Optional<ConnectionProvider> connectionProvider)
+            throws SSLException {
+        return buildClientHttpConnector(sslVerificationProperties, codecProperties,
+                poolProperties, connectionProvider);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(name = "bulkOperationsSearchClientHttpConnector")
+    public ClientHttpConnector bulkOperationsSearchClientHttpConnector(
+            SSLVerificationProperties sslVerificationProperties,
+            ProviderCodecProperties codecProperties,
+            ProviderConnectionPoolProperties poolProperties,
+            @Qualifier("bulkOperationsSearchConnectionProvider") Optional<ConnectionProvider> connectionProvider)
+            throws SSLException {
+        return buildClientHttpConnector(sslVerificationProperties, codecProperties,
+                poolProperties, connectionProvider);
+    }
+
+    @Bean(name = "bulkOperationsCatalogConnectionProvider", destroyMethod = "dispose")
+    @ConditionalOnMissingBean(name = "bulkOperationsCatalogConnectionProvider")
+    @ConditionalOnProperty(name = "broadleaf.bulkoperations.provider.connection-pool.enabled",
+            havingValue = "true")
+    public ConnectionProvider bulkOperationsCatalogConnectionProvider(
+            ProviderConnectionPoolProperties poolProperties) {
+        return buildConnectionProvider(poolProperties, poolProperties.getName() + "-catalog");
+    }
+
+    @Bean(name = "bulkOperationsSearchConnectionProvider", destroyMethod = "dispose")
+    @ConditionalOnMissingBean(name = "bulkOperationsSearchConnectionProvider")
+    @ConditionalOnProperty(name = "broadleaf.bulkoperations.provider.connection-pool.enabled",
+            havingValue = "true")
+    public ConnectionProvider bulkOperationsSearchConnectionProvider(
+            ProviderConnectionPoolProperties poolProperties) {
+        return buildConnectionProvider(poolProperties, poolProperties.getName() + "-search");
+    }
+
+    private WebClient buildWebClient(
+            Supplier<ServletOAuth2AuthorizedClientExchangeFilterFunction> oauth2FilterSupplier,
+            Optional<ServerOAuth2AuthorizedClientExchangeFilterFunction> reactiveOAuth2Filter,
             ObjectMapper objectMapper,
-            @Qualifier("bulkOperationsClientHttpConnector") Optional<ClientHttpConnector> clientHttpConnector) {
+            ClientHttpConnector clientHttpConnector,
+            ProviderCodecProperties codecProperties) {
+        ProviderCodecProperties.BinaryFormat binaryFormat = codecProperties.getBinaryFormat();
+
         // Add our own object mapper
         ExchangeStrategies strategies = ExchangeStrategies
                 .builder()
@@ -125,41 +307,96 @@ public class BulkOperationsServiceAutoConfiguration {
                             new Jackson2JsonEncoder(objectMapper, MediaType.APPLICATION_JSON));
                     clientDefaultCodecsConfigurer.defaultCodecs().jackson2JsonDecoder(
                             new Jackson2JsonDecoder(objectMapper, MediaType.APPLICATION_JSON));
+                    if (binaryFormat != ProviderCodecProperties.BinaryFormat.NONE) {
+                        ProviderBinaryCodecs.register(binaryFormat, objectMapper,
+                                clientDefaultCodecsConfigurer);
+                    }
                 }).build();
 
-        WebClient.Builder webClientBuilder = WebClient.builder();
-        clientHttpConnector.ifPresent(webClientBuilder::clientConnector);
+        WebClient.Builder webClientBuilder = WebClient.builder()
+                .clientConnector(clientHttpConnector);
 
         DefaultUriBuilderFactory uriBuilderFactory = new DefaultUriBuilderFactory();
         uriBuilderFactory.setEncodingMode(DefaultUriBuilderFactory.EncodingMode.NONE);
 
+        if (reactiveOAuth2Filter.isPresent()) {
+            webClientBuilder.filter(reactiveOAuth2Filter.get());
+        } else {
+            webClientBuilder.apply(oauth2FilterSupplier.get().oauth2Configuration());
+        }
+
         return webClientBuilder
                 .uriBuilderFactory(uriBuilderFactory)
                 .exchangeStrategies(strategies)
-                .apply(oauth2FilterSupplier.get().oauth2Configuration())
+                .filter(new ProviderContentNegotiationFilter(codecProperties,
+                        binaryFormat.getMediaType()))
                 .build();
     }
 
-    @Bean
-    @ConditionalOnMissingBean(name = "bulkOperationsClientHttpConnector")
-    public ClientHttpConnector bulkOperationsClientHttpConnector(
-            SSLVerificationProperties sslVerificationProperties) throws SSLException {
+    /**
+     * Builds the connector of a {@link WebClient}. The timeouts and protocols apply whether or not
+     * a dedicated connection pool is configured, and Reactor Netty's shared pool is used without
+     * one.
+     */
+    private ClientHttpConnector buildClientHttpConnector(
+            SSLVerificationProperties sslVerificationProperties,
+            ProviderCodecProperties codecProperties,
+            ProviderConnectionPoolProperties poolProperties,
+            Optional<ConnectionProvider> connectionProvider) throws SSLException {
+        HttpClient httpClient = connectionProvider.map(HttpClient::create)
+                .orElseGet(HttpClient::create)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
+                        (int) poolProperties.getConnectTimeout().toMillis())
+                .protocol(poolProperties.getProtocols().toArray(new HttpProtocol[0]));
+        if (poolProperties.getResponseTimeout() != null) {
+            httpClient = httpClient.responseTimeout(poolProperties.getResponseTimeout());
+        }
+        boolean http2 = poolProperties.getProtocols().contains(HttpProtocol.H2);
+
         // TODO: possibly move this to a broadleaf oauth2 client dependency
         // https://github.com/BroadleafCommerce/MicroPM/issues/1924
         // TODO: disable ssl verification for WebClient that uses this, remove this once
         // https://github.com/BroadleafCommerce/MicroPM/issues/1323 is completed
-        if (sslVerificationProperties.isDisabled()) {
+        if (sslVerificationProperties.isDisabled() && http2) {
+            // HTTP/2 over TLS needs a context that negotiates the protocol with ALPN
+            Http2SslContextSpec sslContextSpec = Http2SslContextSpec.forClient()
+                    .configure(builder -> builder
+                            .trustManager(InsecureTrustManagerFactory.INSTANCE));
+            httpClient = httpClient.secure(spec -> spec.sslContext(sslContextSpec));
+        } else if (sslVerificationProperties.isDisabled()) {
             SslContext sslContext = SslContextBuilder
                     .forClient()
                     .trustManager(InsecureTrustManagerFactory.INSTANCE)
                     .build();
-            HttpClient httpClient = HttpClient
-                    .create()
+            httpClient = httpClient
                     .secure(sslContextSpec -> sslContextSpec.sslContext(sslContext));
-            return new ReactorClientHttpConnector(httpClient);
         }
 
-        return null; // WebClient builder will initialize the default ClientHttpConnector
+        if (codecProperties.isResponseCompression()) {
+            // sends Accept-Encoding and transparently decompresses the responses
+            httpClient = httpClient.compress(true);
+        }
+
+        return new ReactorClientHttpConnector(httpClient);
+    }
+
+    private ConnectionProvider buildConnectionProvider(
+            ProviderConnectionPoolProperties poolProperties,
+            String name) {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder(name)
+                .maxConnections(poolProperties.getMaxConnections())
+                .pendingAcquireMaxCount(poolProperties.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(poolProperties.getPendingAcquireTimeout())
+                .maxIdleTime(poolProperties.getMaxIdleTime())
+                .maxLifeTime(poolProperties.getMaxLifeTime())
+                // records the active, idle and pending connections and the acquire time
+                .metrics(poolProperties.isMetrics());
+
+        if (!poolProperties.getEvictionInterval().isZero()) {
+            builder.evictInBackground(poolProperties.getEvictionInterval());
+        }
+
+        return builder.build();
     }
 
 
@@ -208,14 +445,24 @@ public class BulkOperationsServiceAutoConfiguration {
             CreateSandboxRequestProducer createSandboxRequestProducer,
             BulkOpsInitializeItemsRequestProducer bulkOpsInitializeItemsRequestProducer,
             MessageSource messageSource,
-            TypeFactory typeFactory) {
+            TypeFactory typeFactory,
+            BulkOperationsMetrics bulkOperationsMetrics) {
         return new CatalogBulkOperationHandler(catalogProvider,
                 sender,
                 providerProperties,
                 createSandboxRequestProducer,
                 bulkOpsInitializeItemsRequestProducer,
                 messageSource,
-                typeFactory);
+                typeFactory,
+                bulkOperationsMetrics);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    BulkOperationHandlerRegistry bulkOperationHandlerRegistry(
+            List<BulkOperationHandler> bulkOperationHandlers,
+            BulkOperationHandlerRegistryProperties properties) {
+        return new DefaultBulkOperationHandlerRegistry(bulkOperationHandlers, properties);
     }
 
     @Bean
@@ -224,30 +471,66 @@ public class BulkOperationsServiceAutoConfiguration {
             @Qualifier("bulkOperationsWebClient") WebClient bulkOpsWebClient,
             TypeFactory typeFactory,
             ProviderUtils providerUtils,
-            ExternalCatalogProperties properties) {
+            ExternalCatalogProperties properties,
+            @Qualifier("bulkOpsSupportedBulkOperationsCache")
+            ProviderResponseCache<Pair<String, String>, List<SupportedBulkOperation>>
+                    supportedBulkOperationsCache) {
         return new ExternalCatalogProvider<>(bulkOpsWebClient,
                 typeFactory,
                 providerUtils,
-                properties);
+                properties,
+                supportedBulkOperationsCache);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(name = "bulkOpsSupportedBulkOperationsCache")
+    ProviderResponseCache<Pair<String, String>, List<SupportedBulkOperation>>
+            bulkOpsSupportedBulkOperationsCache(ExternalCatalogProperties properties,
+                    Optional<MeterRegistry> meterRegistry) {
+        return new ProviderResponseCache<>("supportedBulkOperations",
+                properties.getSupportedBulkOpsCache(),
+                meterRegistry.orElse(Metrics.globalRegistry));
     }
 
     @Bean
     @ConditionalOnMissingBean(name = "bulkOpsSearchProvider")
     SearchProvider<? extends CatalogItem> bulkOpsSearchProvider(
-            @Qualifier("bulkOperationsWebClient") WebClient bulkOpsWebClient,
+            @Qualifier("bulkOperationsSearchWebClient") WebClient bulkOpsWebClient,
             TypeFactory typeFactory,
             ProviderUtils providerUtils,
-            ExternalSearchProperties properties) {
+            ExternalSearchProperties properties,
+            Optional<MeterRegistry> meterRegistry,
+            ObjectMapper objectMapper) {
+        ProviderRequestHedger hedger = new ProviderRequestHedger(ExternalSearchProvider.SEARCH,
+                properties.getHedging(),
+                meterRegistry.orElse(Metrics.globalRegistry));
         return new ExternalSearchProvider<>(bulkOpsWebClient,
                 typeFactory,
                 providerUtils,
-                properties);
+                properties,
+                hedger,
+                new SearchResponseIdDecoder(objectMapper));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    ProviderUtils bulkOpsProviderUtils(ObjectMapper objectMapper,
+            ProviderRateLimiter rateLimiter,
+            ProviderResilience resilience) {
+        return new ProviderUtils(objectMapper, rateLimiter, resilience);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    ProviderResilience bulkOpsProviderResilience(ProviderResilienceProperties properties) {
+        return new ProviderResilience(properties);
     }
 
     @Bean
     @ConditionalOnMissingBean
-    ProviderUtils bulkOpsProviderUtils(ObjectMapper objectMapper) {
-        return new ProviderUtils(objectMapper);
+    ProviderRateLimiter bulkOpsProviderRateLimiter(ProviderRateLimitProperties properties,
+            Optional<MeterRegistry> meterRegistry) {
+        return new ProviderRateLimiter(properties, meterRegistry.orElse(Metrics.globalRegistry));
     }
 
     @Bean
@@ -255,4 +538,12 @@ public class BulkOperationsServiceAutoConfiguration {
     public BulkOperationsService bulkOperationsService() {
         return new DefaultBulkOperationsService();
     }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BulkOperationsMetrics bulkOperationsMetrics(Optional<MeterRegistry> meterRegistry,
+            BulkOperationsMetricsProperties bulkOperationsMetricsProperties) {
+        return new BulkOperationsMetrics(meterRegistry.orElse(Metrics.globalRegistry),
+                bulkOperationsMetricsProperties);
+    }
 }
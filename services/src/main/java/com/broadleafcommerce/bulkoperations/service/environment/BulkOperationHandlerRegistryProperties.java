@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.environment;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Settings for resolving which bulk operation handler handles an operation type and entity type.
+ */
+@Data
+@ConfigurationProperties("broadleaf.bulkoperations.handler-registry")
+public class BulkOperationHandlerRegistryProperties {
+
+    /**
+     * Whether the handler resolved for an operation type and entity type is remembered instead of
+     * asking every handler on each request. Default is {@code true}.
+     */
+    private boolean enabled = true;
+
+    /**
+     * How long a resolved handler is remembered before the handlers are asked again, so that
+     * changes to the operations they support are picked up. Default is 10 minutes.
+     */
+    private Duration refreshInterval = Duration.ofMinutes(10);
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.environment;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the metrics recorded by
+ * {@link com.broadleafcommerce.bulkoperations.service.BulkOperationsMetrics}.
+ */
+@Data
+@ConfigurationProperties("broadleaf.bulkoperations.metrics")
+public class BulkOperationsMetricsProperties {
+
+    /**
+     * Whether the stage timers publish percentile histograms. Each histogram adds dozens of
+     * buckets to every combination of tags, so this is best enabled only where the backend can
+     * aggregate them. Default is {@code false}.
+     */
+    private boolean percentileHistogram = false;
+
+    /**
+     * Whether the metrics are tagged by tenant. Disabling this keeps the number of series
+     * independent of the number of tenants. Default is {@code true}.
+     */
+    private boolean tenantTag = true;
+}
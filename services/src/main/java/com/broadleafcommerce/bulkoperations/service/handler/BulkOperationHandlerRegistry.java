@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.handler;
+
+import org.springframework.lang.Nullable;
+
+import java.util.Optional;
+
+/**
+ * Resolves the {@link BulkOperationHandler} for a bulk operation request.
+ */
+public interface BulkOperationHandlerRegistry {
+
+    /**
+     * Gets the first handler that can handle the operation type and entity type.
+     *
+     * @param operationType the operation type of the bulk operation request
+     * @param entityType the entity type being updated by the bulk operation request
+     * @return the handler, or empty if no handler can handle the bulk operation
+     */
+    Optional<BulkOperationHandler> getHandler(String operationType, @Nullable String entityType);
+
+    /**
+     * Forgets the handler resolved for the operation type and entity type, so that it is resolved
+     * again on the next request.
+     *
+     * @param operationType the operation type of the bulk operation request
+     * @param entityType the entity type being updated by the bulk operation request
+     */
+    void refresh(String operationType, @Nullable String entityType);
+
+    /**
+     * Forgets all resolved handlers, e.g. after the operations supported by a handler changed.
+     */
+    void refreshAll();
+}
@@ -36,6 +36,7 @@ import com.broadleafcommerce.bulk.v2.messaging.BulkOpsInitializeItemsRequestProd
 import com.broadleafcommerce.bulk.v2.messaging.sandbox.CreateSandboxRequest;
 import com.broadleafcommerce.bulk.v2.messaging.sandbox.CreateSandboxRequestProducer;
 import com.broadleafcommerce.bulkoperations.domain.CatalogItem;
+import com.broadleafcommerce.bulkoperations.service.BulkOperationsMetrics;
 import com.broadleafcommerce.bulkoperations.service.environment.BulkOperationsProviderProperties;
 import com.broadleafcommerce.bulkoperations.service.provider.CatalogProvider;
 import com.broadleafcommerce.common.extension.TypeFactory;
@@ -78,6 +79,9 @@ public class CatalogBulkOperationHandler implements BulkOperationHandler {
     @Getter(AccessLevel.PROTECTED)
     private final TypeFactory typeFactory;
 
+    @Getter(AccessLevel.PROTECTED)
+    private final BulkOperationsMetrics bulkOperationsMetrics;
+
     @Override
     public boolean canHandle(String operationType, @Nullable String entityType) {
         List<SupportedBulkOperation> supportedBulkOperation =
@@ -93,14 +97,25 @@ public class CatalogBulkOperationHandler implements BulkOperationHandler {
         BulkOperationResponse response;
 
         String sandboxId = ULID.random(SECURE_RANDOM);
-        createSandboxForBulkOperation(sandboxId, bulkOperationRequest, contextInfo);
+        bulkOperationsMetrics.record(BulkOperationsMetrics.SEND_CREATE_SANDBOX_STAGE,
+                bulkOperationRequest,
+                contextInfo,
+                () -> createSandboxForBulkOperation(sandboxId, bulkOperationRequest,
+                        contextInfo));
         bulkOperationRequest.setSandboxId(sandboxId);
         bulkOperationRequest.setAuthor(contextInfo.getAuthor());
 
-        response = catalogProvider.createBulkOperation(bulkOperationRequest, contextInfo);
+        response = bulkOperationsMetrics.record(
+                BulkOperationsMetrics.CATALOG_CREATE_BULK_OPERATION_STAGE,
+                bulkOperationRequest,
+                contextInfo,
+                () -> catalogProvider.createBulkOperation(bulkOperationRequest, contextInfo));
 
         if (CollectionUtils.isEmpty(bulkOperationRequest.getInclusions())) {
-            initializeItems(response, bulkOperationRequest, contextInfo);
+            bulkOperationsMetrics.record(BulkOperationsMetrics.SEND_INITIALIZE_ITEMS_STAGE,
+                    bulkOperationRequest,
+                    contextInfo,
+                    () -> initializeItems(response, bulkOperationRequest, contextInfo));
         }
 
         return response;
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.handler;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.lang.Nullable;
+
+import com.broadleafcommerce.bulkoperations.service.environment.BulkOperationHandlerRegistryProperties;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Resolves the handler for an operation type and entity type by asking each handler in order
+ * once, and serves subsequent requests from a map until
+ * {@link BulkOperationHandlerRegistryProperties#getRefreshInterval()} has passed.
+ * <p>
+ * Resolution is coalesced: concurrent requests for the same operation type and entity type share
+ * a single resolution, without holding a lock of the map while the handlers are asked. That no
+ * handler handles them, or a failure to determine whether a handler can handle them, such as a
+ * provider being unavailable, is passed to every waiting request but not remembered. The types
+ * come from the client, so remembering them would let the map grow with every value sent, while
+ * the resolved handlers are limited to the operations the handlers support.
+ */
+@RequiredArgsConstructor
+public class DefaultBulkOperationHandlerRegistry implements BulkOperationHandlerRegistry {
+
+    @Getter(AccessLevel.PROTECTED)
+    private final List<BulkOperationHandler> bulkOperationHandlers;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final BulkOperationHandlerRegistryProperties properties;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final Map<Pair<String, String>, Resolution> resolutions = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<BulkOperationHandler> getHandler(String operationType,
+            @Nullable String entityType) {
+        if (!properties.isEnabled()) {
+            return Optional.ofNullable(resolveHandler(operationType, entityType));
+        }
+
+        Pair<String, String> key = Pair.of(operationType, entityType);
+        long now = System.nanoTime();
+        Resolution resolution = resolutions.get(key);
+
+        if (resolution == null || isExpired(resolution, now)) {
+            Resolution created = new Resolution(now);
+            resolution = resolutions.compute(key,
+                    (k, existing) -> existing == null || isExpired(existing, now) ? created
+                            : existing);
+
+            if (resolution == created) {
+                resolve(key, created);
+            }
+        }
+
+        return Optional.ofNullable(join(resolution));
+    }
+
+    @Override
+    public void refresh(String operationType, @Nullable String entityType) {
+        resolutions.remove(Pair.of(operationType, entityType));
+    }
+
+    @Override
+    public void refreshAll() {
+        resolutions.clear();
+    }
+
+    /**
+     * Asks each handler in order whether it can handle the operation type and entity type.
+     *
+     * @param operationType the operation type of the bulk operation request
+     * @param entityType the entity type being updated by the bulk operation request
+     * @return the first handler that can handle the bulk operation, or null if there is none
+     */
+    @Nullable
+    protected BulkOperationHandler resolveHandler(String operationType,
+            @Nullable String entityType) {
+        for (BulkOperationHandler bulkOperationHandler : bulkOperationHandlers) {
+            if (bulkOperationHandler.canHandle(operationType, entityType)) {
+                return bulkOperationHandler;
+            }
+        }
+        return null;
+    }
+
+    protected boolean isExpired(Resolution resolution, long now) {
+        CompletableFuture<BulkOperationHandler> handler = resolution.getHandler();
+        if (!handler.isDone()) {
+            return false;
+        }
+        if (handler.isCompletedExceptionally() || handler.join() == null) {
+            return true;
+        }
+        return now - resolution.getResolvedAt() >= properties.getRefreshInterval().toNanos();
+    }
+
+    private void resolve(Pair<String, String> key, Resolution resolution) {
+        try {
+            BulkOperationHandler handler = resolveHandler(key.getLeft(), key.getRight());
+            if (handler == null) {
+                resolutions.remove(key, resolution);
+            }
+            resolution.getHandler().complete(handler);
+        } catch (RuntimeException e) {
+            resolutions.remove(key, resolution);
+            resolution.getHandler().completeExceptionally(e);
+        }
+    }
+
+    @Nullable
+    private BulkOperationHandler join(Resolution resolution) {
+        try {
+            return resolution.getHandler().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    protected static class Resolution {
+
+        private final CompletableFuture<BulkOperationHandler> handler = new CompletableFuture<>();
+
+        private final long resolvedAt;
+    }
+}
@@ -24,6 +24,7 @@ import com.broadleafcommerce.bulk.v2.domain.BulkOperationRequest;
 import com.broadleafcommerce.bulk.v2.domain.BulkOperationResponse;
 import com.broadleafcommerce.bulk.v2.domain.InitializeItemResponse;
 import com.broadleafcommerce.bulk.v2.domain.SupportedBulkOperation;
+import com.broadleafcommerce.bulkoperations.domain.BulkOperationStatus;
 import com.broadleafcommerce.bulkoperations.domain.CatalogItem;
 import com.broadleafcommerce.bulkoperations.domain.SearchResponse;
 import com.broadleafcommerce.data.tracking.core.context.ContextInfo;
@@ -78,6 +79,26 @@ public interface CatalogProvider<I extends CatalogItem> {
             Pageable pageable,
             ContextInfo contextInfo);
 
+    /**
+     * Prepares the item initialization for all pages of a bulk operation, so that whatever is the
+     * same for every page, such as the request headers, is only built once.
+     * <p>
+     * By default, the items of each page are initialized with
+     * {@link #initializeItems(SearchResponse, BulkOperationRequest, BulkOperationResponse, Pageable, ContextInfo)}.
+     *
+     * @param bulkOperationRequest the {@link BulkOperationRequest} for this bulk operation
+     * @param bulkOperationResponse the bulk operation created
+     * @param contextInfo context information surrounding sandboxing/multitenant state
+     * @return the item initialization for the pages of the bulk operation
+     */
+    default PreparedItemInitialization<I> prepareItemInitialization(
+            BulkOperationRequest bulkOperationRequest,
+            BulkOperationResponse bulkOperationResponse,
+            ContextInfo contextInfo) {
+        return (catalogItems, pageable) -> initializeItems(catalogItems, bulkOperationRequest,
+                bulkOperationResponse, pageable, contextInfo);
+    }
+
     /**
      * Updates the bulk operation to set the total record count after item initialization.
      *
@@ -89,4 +110,52 @@ public interface CatalogProvider<I extends CatalogItem> {
     BulkOperationResponse updateBulkOperationTotalRecordCount(long totalRecordCount,
             BulkOperationResponse bulkOperationResponse,
             ContextInfo contextInfo);
+
+    /**
+     * Reports the number of bulk operation items initialized so far, while the item initialization
+     * is still running. By default, the count is not reported.
+     *
+     * @param initializedRecordCount the number of bulk operation item records initialized so far
+     * @param bulkOperationResponse the bulk operation
+     * @param contextInfo context information surrounding sandboxing/multitenant state
+     */
+    default void updateBulkOperationInitializedRecordCount(long initializedRecordCount,
+            BulkOperationResponse bulkOperationResponse,
+            ContextInfo contextInfo) {}
+
+    /**
+     * Retrieves the current status of the bulk operation, such as whether it has been canceled.
+     * By default, the status is unknown.
+     *
+     * @param bulkOperationResponse the bulk operation
+     * @param contextInfo context information surrounding sandboxing/multitenant state
+     * @return the current status of the bulk operation, or {@code null} if it is unknown
+     */
+    @Nullable
+    default BulkOperationStatus getBulkOperationStatus(
+            BulkOperationResponse bulkOperationResponse,
+            ContextInfo contextInfo) {
+        return null;
+    }
+
+    /**
+     * The item initialization for the pages of a single bulk operation, returned by
+     * {@link CatalogProvider#prepareItemInitialization(BulkOperationRequest, BulkOperationResponse, ContextInfo)}.
+     *
+     * @param <I> the type of catalog items
+     */
+    @FunctionalInterface
+    interface PreparedItemInitialization<I extends CatalogItem> {
+
+        /**
+         * Initializes the bulk operation items from the entities returned in the
+         * {@link SearchResponse}.
+         *
+         * @param catalogItems the list of catalog items from the search service
+         * @param pageable the current page information
+         * @return the {@link InitializeItemResponse} containing the items created for the bulk
+         *         operation
+         */
+        InitializeItemResponse initializeItems(SearchResponse<I> catalogItems, Pageable pageable);
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.lang.Nullable;
+
+import com.broadleafcommerce.bulk.v2.domain.BulkOperationRequest;
+import com.broadleafcommerce.bulk.v2.domain.BulkOperationResponse;
+import com.broadleafcommerce.bulk.v2.domain.InitializeItemResponse;
+import com.broadleafcommerce.bulk.v2.domain.SupportedBulkOperation;
+import com.broadleafcommerce.bulkoperations.domain.CatalogItem;
+import com.broadleafcommerce.bulkoperations.domain.SearchResponse;
+import com.broadleafcommerce.data.tracking.core.context.ContextInfo;
+
+import java.util.List;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * A non-blocking variant of {@link CatalogProvider}. Each method returns a {@link Mono} that
+ * performs the request when subscribed to, so no thread is held while the request is in flight.
+ *
+ * @param <I> the type of catalog items
+ */
+public interface ReactiveCatalogProvider<I extends CatalogItem> {
+
+    /**
+     * Creates a bulk operation with the supplied {@link BulkOperationRequest}.
+     *
+     * @param bulkOperationRequest the {@link BulkOperationRequest} to create
+     * @param contextInfo context information surrounding sandboxing/multitenant state
+     * @return the created bulk operation
+     */
+    Mono<BulkOperationResponse> createBulkOperationReactive(
+            BulkOperationRequest bulkOperationRequest,
+            ContextInfo contextInfo);
+
+    /**
+     * Retrieves the list of supported bulk operations for the given operation type in catalog
+     * services.
+     *
+     * @param operationType the operation type to check
+     * @param entityType the entity type to check
+     * @return the list of supported bulk operations
+     */
+    Mono<List<SupportedBulkOperation>> getSupportedBulkOperationsReactive(String operationType,
+            @Nullable String entityType);
+
+    /**
+     * Initializes the bulk operation items from the entities returned in the
+     * {@link SearchResponse}.
+     *
+     * @param catalogItems the list of catalog items from the search service
+     * @param bulkOperationRequest the {@link BulkOperationRequest} for this bulk operation
+     * @param bulkOperationResponse the bulk operation created
+     * @param pageable the current page information
+     * @param contextInfo context information surrounding sandboxing/multitenant state
+     * @return the {@link InitializeItemResponse} containing the items created for the bulk
+     *         operation
+     */
+    Mono<InitializeItemResponse> initializeItemsReactive(SearchResponse<I> catalogItems,
+            BulkOperationRequest bulkOperationRequest,
+            BulkOperationResponse bulkOperationResponse,
+            Pageable pageable,
+            ContextInfo contextInfo);
+
+    /**
+     * Prepares the item initialization for all pages of a bulk operation, so that whatever is the
+     * same for every page, such as the request headers, is only built once.
+     * <p>
+     * By default, the items of each page are initialized with
+     * {@link #initializeItemsReactive(SearchResponse, BulkOperationRequest, BulkOperationResponse, Pageable, ContextInfo)}.
+     *
+     * @param bulkOperationRequest the {@link BulkOperationRequest} for this bulk operation
+     * @param bulkOperationResponse the bulk operation created
+     * @param contextInfo context information surrounding sandboxing/multitenant state
+     * @return the item initialization for the pages of the bulk operation
+     */
+    default PreparedReactiveItemInitialization<I> prepareItemInitializationReactive(
+            BulkOperationRequest bulkOperationRequest,
+            BulkOperationResponse bulkOperationResponse,
+            ContextInfo contextInfo) {
+        return (catalogItems, pageable) -> initializeItemsReactive(catalogItems,
+                bulkOperationRequest, bulkOperationResponse, pageable, contextInfo);
+    }
+
+    /**
+     * Updates the bulk operation to set the total record count after item initialization.
+     *
+     * @param totalRecordCount the total number of bulk operation item records
+     * @param bulkOperationResponse the bulk operation
+     * @param contextInfo context information surrounding sandboxing/multitenant state
+     * @return the updated {@link BulkOperationResponse bulk operation}
+     */
+    Mono<BulkOperationResponse> updateBulkOperationTotalRecordCountReactive(
+            long totalRecordCount,
+            BulkOperationResponse bulkOperationResponse,
+            ContextInfo contextInfo);
+
+    /**
+     * The non-blocking item initialization for the pages of a single bulk operation, returned by
+     * {@link ReactiveCatalogProvider#prepareItemInitializationReactive(BulkOperationRequest, BulkOperationResponse, ContextInfo)}.
+     *
+     * @param <I> the type of catalog items
+     */
+    @FunctionalInterface
+    interface PreparedReactiveItemInitialization<I extends CatalogItem> {
+
+        /**
+         * Initializes the bulk operation items from the entities returned in the
+         * {@link SearchResponse}.
+         *
+         * @param catalogItems the list of catalog items from the search service
+         * @param pageable the current page information
+         * @return the {@link InitializeItemResponse} containing the items created for the bulk
+         *         operation
+         */
+        Mono<InitializeItemResponse> initializeItems(SearchResponse<I> catalogItems,
+                Pageable pageable);
+    }
+}
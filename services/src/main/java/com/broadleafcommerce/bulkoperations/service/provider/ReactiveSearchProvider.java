@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.lang.Nullable;
+
+import com.broadleafcommerce.bulk.v2.domain.BulkOperationRequest;
+import com.broadleafcommerce.bulk.v2.domain.BulkOperationResponse;
+import com.broadleafcommerce.bulkoperations.domain.CatalogItem;
+import com.broadleafcommerce.bulkoperations.domain.SearchResponse;
+import com.broadleafcommerce.bulkoperations.exception.ProviderApiException;
+import com.broadleafcommerce.data.tracking.core.context.ContextInfo;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * A non-blocking variant of {@link SearchProvider}. The search is performed when the returned
+ * {@link Mono} is subscribed to, so no thread is held while the request is in flight.
+ * <p>
+ * The paging details of the search responses, such as the cursor for the next page, are read
+ * with the corresponding {@link SearchProvider} methods, which do not perform any requests.
+ *
+ * @param <I> the type of catalog items
+ */
+public interface ReactiveSearchProvider<I extends CatalogItem> {
+
+    /**
+     * Performs a search for the provided request, continuing from the given cursor when the
+     * provider supports cursor based paging.
+     *
+     * @param request All of the relevant information to be used to retrieve search results.
+     * @param bulkOperationResponse the bulk operation the search is performed for
+     * @param pageable the current page information
+     * @param cursor the cursor returned by {@link SearchProvider#getNextCursor(SearchResponse)}
+     *        for the previous page, or {@code null} for the first page
+     * @param contextInfo context information surrounding sandboxing/multitenant state
+     *
+     * @return The {@link SearchResponse} with results for the request, signalling a
+     *         {@link ProviderApiException} if the provider encounters an error with the request.
+     */
+    Mono<SearchResponse<I>> getSearchResultsReactive(BulkOperationRequest request,
+            BulkOperationResponse bulkOperationResponse,
+            Pageable pageable,
+            @Nullable String cursor,
+            ContextInfo contextInfo);
+
+    /**
+     * Prepares the searches for all pages of a bulk operation, so that whatever is the same for
+     * every page, such as the request headers, is only built once.
+     * <p>
+     * By default, each page is searched with
+     * {@link #getSearchResultsReactive(BulkOperationRequest, BulkOperationResponse, Pageable, String, ContextInfo)}.
+     *
+     * @param request All of the relevant information to be used to retrieve search results.
+     * @param bulkOperationResponse the bulk operation the search is performed for
+     * @param contextInfo context information surrounding sandboxing/multitenant state
+     * @return the search for the pages of the bulk operation
+     */
+    default PreparedReactiveSearch<I> prepareSearchReactive(BulkOperationRequest request,
+            BulkOperationResponse bulkOperationResponse,
+            ContextInfo contextInfo) {
+        return (pageable, cursor) -> getSearchResultsReactive(request, bulkOperationResponse,
+                pageable, cursor, contextInfo);
+    }
+
+    /**
+     * The non-blocking search for the pages of a single bulk operation, returned by
+     * {@link ReactiveSearchProvider#prepareSearchReactive(BulkOperationRequest, BulkOperationResponse, ContextInfo)}.
+     *
+     * @param <I> the type of the results
+     */
+    @FunctionalInterface
+    interface PreparedReactiveSearch<I extends CatalogItem> {
+
+        /**
+         * Retrieves a page of the search results.
+         *
+         * @param pageable the current page information
+         * @param cursor the cursor returned by {@link SearchProvider#getNextCursor(SearchResponse)}
+         *        for the previous page, or {@code null} for the first page
+         *
+         * @return The {@link SearchResponse} with results for the page, signalling a
+         *         {@link ProviderApiException} if the provider encounters an error with the
+         *         request.
+         */
+        Mono<SearchResponse<I>> search(Pageable pageable, @Nullable String cursor);
+    }
+}
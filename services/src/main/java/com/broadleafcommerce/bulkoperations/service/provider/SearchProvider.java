@@ -17,6 +17,7 @@
 package com.broadleafcommerce.bulkoperations.service.provider;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.lang.Nullable;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import com.broadleafcommerce.bulk.v2.domain.BulkOperationRequest;
@@ -47,4 +48,106 @@ public interface SearchProvider<I extends CatalogItem> {
             BulkOperationResponse bulkOperationResponse,
             Pageable pageable,
             ContextInfo contextInfo);
+
+    /**
+     * Performs a search for the provided request, continuing from the given cursor when the
+     * provider supports cursor based paging. This keeps the cost of retrieving a page constant
+     * regardless of how deep into the results the page is, unlike page number offsets.
+     * <p>
+     * By default, the cursor is ignored and the results are retrieved using the page number of the
+     * {@link Pageable}.
+     *
+     * @param request All of the relevant information to be used to retrieve search results.
+     * @param bulkOperationResponse the bulk operation the search is performed for
+     * @param pageable the current page information
+     * @param cursor the cursor returned by {@link #getNextCursor(SearchResponse)} for the previous
+     *        page, or {@code null} for the first page
+     * @param contextInfo context information surrounding sandboxing/multitenant state
+     *
+     * @return The {@link SearchResponse} with results for the request.
+     * @throws ProviderApiException if the provider encounters an error with the request.
+     */
+    default SearchResponse<I> getSearchResults(BulkOperationRequest request,
+            BulkOperationResponse bulkOperationResponse,
+            Pageable pageable,
+            @Nullable String cursor,
+            ContextInfo contextInfo) {
+        return getSearchResults(request, bulkOperationResponse, pageable, contextInfo);
+    }
+
+    /**
+     * Prepares the searches for all pages of a bulk operation, so that whatever is the same for
+     * every page, such as the request headers, is only built once.
+     * <p>
+     * By default, each page is searched with
+     * {@link #getSearchResults(BulkOperationRequest, BulkOperationResponse, Pageable, String, ContextInfo)}.
+     *
+     * @param request All of the relevant information to be used to retrieve search results.
+     * @param bulkOperationResponse the bulk operation the search is performed for
+     * @param contextInfo context information surrounding sandboxing/multitenant state
+     * @return the search for the pages of the bulk operation
+     */
+    default PreparedSearch<I> prepareSearch(BulkOperationRequest request,
+            BulkOperationResponse bulkOperationResponse,
+            ContextInfo contextInfo) {
+        return (pageable, cursor) -> getSearchResults(request, bulkOperationResponse, pageable,
+                cursor, contextInfo);
+    }
+
+    /**
+     * Whether this provider pages through results using the cursor returned by
+     * {@link #getNextCursor(SearchResponse)} rather than page numbers.
+     *
+     * @return true if cursor based paging is enabled
+     */
+    default boolean isCursorPagingEnabled() {
+        return false;
+    }
+
+    /**
+     * Retrieves the cursor to pass along when requesting the page following the given search
+     * response.
+     *
+     * @param searchResponse the search response for the current page
+     * @return the cursor for the next page, or {@code null} if there is none, in which case the
+     *         next page is requested by page number
+     */
+    @Nullable
+    default String getNextCursor(SearchResponse<I> searchResponse) {
+        return null;
+    }
+
+    /**
+     * Retrieves the total number of results matching the search, as reported by the search
+     * response.
+     *
+     * @param searchResponse the search response for any page of the search
+     * @return the total number of results, or {@code null} if it is unknown
+     */
+    @Nullable
+    default Long getTotalResults(SearchResponse<I> searchResponse) {
+        return null;
+    }
+
+    /**
+     * The search for the pages of a single bulk operation, returned by
+     * {@link SearchProvider#prepareSearch(BulkOperationRequest, BulkOperationResponse, ContextInfo)}.
+     *
+     * @param <I> the type of the results
+     */
+    @FunctionalInterface
+    interface PreparedSearch<I extends CatalogItem> {
+
+        /**
+         * Retrieves a page of the search results.
+         *
+         * @param pageable the current page information
+         * @param cursor the cursor returned by {@link SearchProvider#getNextCursor(SearchResponse)}
+         *        for the previous page, or {@code null} for the first page
+         *
+         * @return The {@link SearchResponse} with results for the page.
+         * @throws ProviderApiException if the provider encounters an error with the request.
+         */
+        SearchResponse<I> search(Pageable pageable, @Nullable String cursor);
+    }
 }
@@ -18,6 +18,8 @@ package com.broadleafcommerce.bulkoperations.service.provider.external;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderCacheProperties;
+
 import lombok.Getter;
 import lombok.Setter;
 
@@ -46,6 +48,17 @@ public class ExternalCatalogProperties {
      */
     private String bulkOperationTotalRecordsUri;
 
+    /**
+     * The context path to report the number of bulk operation items initialized so far, relative
+     * to the bulk operation like {@link #getBulkOperationTotalRecordsUri()}. The count is sent as
+     * a PATCH with an {@code initializedRecordCount} body.
+     * <p>
+     * Catalog does not expose such an endpoint out of the box, so this is not set by default and
+     * the count is not reported. Only set it once the catalog service has been extended to accept
+     * the request.
+     */
+    private String bulkOperationInitializedRecordsUri;
+
     /**
      * The context path to the supported bulk operations endpoint
      */
@@ -55,4 +68,10 @@ public class ExternalCatalogProperties {
      * The service client to use when calling search. Default is "bulkopsclient"
      */
     private String serviceClient = "bulkopsclient";
+
+    /**
+     * Settings for caching the supported bulk operations, which are checked for every bulk
+     * operation created but only change when catalog is redeployed.
+     */
+    private ProviderCacheProperties supportedBulkOpsCache = new ProviderCacheProperties();
 }
@@ -16,15 +16,18 @@
  */
 package com.broadleafcommerce.bulkoperations.service.provider.external;
 
-import static org.springframework.security.oauth2.client.web.reactive.function.client.ServletOAuth2AuthorizedClientExchangeFilterFunction.clientRegistrationId;
+import static com.broadleafcommerce.bulkoperations.oauth2.client.web.OAuth2ClientAttributes.clientRegistrationId;
+import static com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderRateLimiter.CATALOG_SERVICE;
 import static org.springframework.web.util.UriComponentsBuilder.fromHttpUrl;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -35,15 +38,20 @@ import com.broadleafcommerce.bulk.v2.domain.BulkOperationTotalRecordCountRequest
 import com.broadleafcommerce.bulk.v2.domain.InitializeItemRequest;
 import com.broadleafcommerce.bulk.v2.domain.InitializeItemResponse;
 import com.broadleafcommerce.bulk.v2.domain.SupportedBulkOperation;
+import com.broadleafcommerce.bulkoperations.domain.BulkOperationStatus;
 import com.broadleafcommerce.bulkoperations.domain.CatalogItem;
 import com.broadleafcommerce.bulkoperations.domain.SearchResponse;
 import com.broadleafcommerce.bulkoperations.exception.ProviderApiException;
 import com.broadleafcommerce.bulkoperations.service.provider.CatalogProvider;
+import com.broadleafcommerce.bulkoperations.service.provider.ReactiveCatalogProvider;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderOperation;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderResponseCache;
 import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderUtils;
 import com.broadleafcommerce.common.extension.TypeFactory;
 import com.broadleafcommerce.data.tracking.core.context.ContextInfo;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import lombok.AccessLevel;
@@ -52,7 +60,26 @@ import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 
 @Slf4j
-public class ExternalCatalogProvider<I extends CatalogItem> implements CatalogProvider<I> {
+public class ExternalCatalogProvider<I extends CatalogItem>
+        implements CatalogProvider<I>, ReactiveCatalogProvider<I> {
+
+    public static final ProviderOperation CREATE_BULK_OPERATION =
+            ProviderOperation.of(CATALOG_SERVICE, "createBulkOperation", false);
+
+    public static final ProviderOperation GET_SUPPORTED_BULK_OPERATIONS =
+            ProviderOperation.of(CATALOG_SERVICE, "getSupportedBulkOperations", true);
+
+    public static final ProviderOperation INITIALIZE_ITEMS =
+            ProviderOperation.of(CATALOG_SERVICE, "initializeItems", false);
+
+    public static final ProviderOperation UPDATE_TOTAL_RECORD_COUNT =
+            ProviderOperation.of(CATALOG_SERVICE, "updateTotalRecordCount", true);
+
+    public static final ProviderOperation UPDATE_INITIALIZED_RECORD_COUNT =
+            ProviderOperation.of(CATALOG_SERVICE, "updateInitializedRecordCount", true);
+
+    public static final ProviderOperation GET_BULK_OPERATION =
+            ProviderOperation.of(CATALOG_SERVICE, "getBulkOperation", true);
 
     @Getter(AccessLevel.PROTECTED)
     private final WebClient webClient;
@@ -66,42 +93,89 @@ public class ExternalCatalogProvider<I extends CatalogItem> implements CatalogPr
     @Getter(AccessLevel.PROTECTED)
     private final ExternalCatalogProperties properties;
 
+    /**
+     * Caches the supported bulk operations by operation type and entity type, since they only
+     * change when catalog is redeployed.
+     */
+    @Getter(AccessLevel.PROTECTED)
+    @Nullable
+    private final ProviderResponseCache<Pair<String, String>, List<SupportedBulkOperation>>
+            supportedBulkOperationsCache;
+
     public ExternalCatalogProvider(WebClient webClient,
             TypeFactory typeFactory,
             ProviderUtils providerUtils, ExternalCatalogProperties properties) {
+        this(webClient, typeFactory, providerUtils, properties, null);
+    }
+
+    public ExternalCatalogProvider(WebClient webClient,
+            TypeFactory typeFactory,
+            ProviderUtils providerUtils,
+            ExternalCatalogProperties properties,
+            @Nullable ProviderResponseCache<Pair<String, String>, List<SupportedBulkOperation>>
+                    supportedBulkOperationsCache) {
         this.webClient = webClient;
         this.typeFactory = typeFactory;
         this.providerUtils = providerUtils;
         this.properties = properties;
+        this.supportedBulkOperationsCache = supportedBulkOperationsCache;
     }
 
     @Override
     public BulkOperationResponse createBulkOperation(BulkOperationRequest bulkOperationRequest,
             ContextInfo contextInfo) {
+        return createBulkOperationReactive(bulkOperationRequest, contextInfo).block();
+    }
+
+    @Override
+    public Mono<BulkOperationResponse> createBulkOperationReactive(
+            BulkOperationRequest bulkOperationRequest,
+            ContextInfo contextInfo) {
         final String createBulkOperationUrl = getCreateBulkOperationUrl(contextInfo);
 
-        return providerUtils.executeRequest(() -> getWebClient()
+        final HttpHeaders requestHeaders = providerUtils.getHeaders(contextInfo);
+
+        Mono<BulkOperationResponse> exchange = getWebClient()
                 .post()
                 .uri(createBulkOperationUrl)
                 .accept(MediaType.APPLICATION_JSON)
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(bulkOperationRequest)
-                .headers(httpHeaders -> httpHeaders.putAll(providerUtils.getHeaders(contextInfo)))
+                .headers(httpHeaders -> httpHeaders.putAll(requestHeaders))
                 .attributes(clientRegistrationId(getServiceClient()))
                 .retrieve()
                 .onStatus(HttpStatusCode::isError,
                         response -> response.createException().flatMap(
                                 exception -> Mono.just(new ProviderApiException(exception))))
-                .bodyToMono(BulkOperationResponse.class)
-                .block());
+                .bodyToMono(BulkOperationResponse.class);
+
+        return providerUtils.executeReactiveRequest(CREATE_BULK_OPERATION, contextInfo, exchange);
     }
 
     @Override
     public List<SupportedBulkOperation> getSupportedBulkOperations(String operationType,
             @Nullable String entityType) {
+        return getSupportedBulkOperationsReactive(operationType, entityType).block();
+    }
+
+    @Override
+    public Mono<List<SupportedBulkOperation>> getSupportedBulkOperationsReactive(
+            String operationType,
+            @Nullable String entityType) {
+        if (supportedBulkOperationsCache != null) {
+            return supportedBulkOperationsCache.get(Pair.of(operationType, entityType),
+                    () -> fetchSupportedBulkOperations(operationType, entityType));
+        }
+
+        return fetchSupportedBulkOperations(operationType, entityType);
+    }
+
+    protected Mono<List<SupportedBulkOperation>> fetchSupportedBulkOperations(
+            String operationType,
+            @Nullable String entityType) {
         final String supportedBulkOpsUrl = getSupportedBulkOpsUrl(operationType, entityType);
 
-        return providerUtils.executeRequest(() -> getWebClient()
+        Mono<List<SupportedBulkOperation>> exchange = getWebClient()
                 .get()
                 .uri(supportedBulkOpsUrl)
                 .accept(MediaType.APPLICATION_JSON)
@@ -110,8 +184,12 @@ public class ExternalCatalogProvider<I extends CatalogItem> implements CatalogPr
                 .onStatus(HttpStatusCode::isError,
                         response -> response.createException().flatMap(
                                 exception -> Mono.just(new ProviderApiException(exception))))
-                .bodyToMono(new ParameterizedTypeReference<List<SupportedBulkOperation>>() {})
-                .block());
+                .bodyToMono(new ParameterizedTypeReference<List<SupportedBulkOperation>>() {});
+
+        // supported operations are not specific to a tenant, so they count towards the default
+        // tenant's rate limit
+        return providerUtils.executeReactiveRequest(GET_SUPPORTED_BULK_OPERATIONS, null,
+                exchange);
     }
 
     @Override
@@ -121,10 +199,77 @@ public class ExternalCatalogProvider<I extends CatalogItem> implements CatalogPr
             BulkOperationResponse bulkOperationResponse,
             Pageable pageable,
             ContextInfo contextInfo) {
-        final String initializeBulkOperationItemsUrl =
-                getInitializeBulkOperationItemsUrl(bulkOperationResponse.getId(), pageable,
+        return prepareItemInitialization(bulkOperationRequest, bulkOperationResponse, contextInfo)
+                .initializeItems(searchResponse, pageable);
+    }
+
+    @Override
+    public Mono<InitializeItemResponse> initializeItemsReactive(
+            SearchResponse<I> searchResponse,
+            BulkOperationRequest bulkOperationRequest,
+            BulkOperationResponse bulkOperationResponse,
+            Pageable pageable,
+            ContextInfo contextInfo) {
+        return prepareItemInitializationReactive(bulkOperationRequest, bulkOperationResponse,
+                contextInfo).initializeItems(searchResponse, pageable);
+    }
+
+    @Override
+    public PreparedItemInitialization<I> prepareItemInitialization(
+            BulkOperationRequest bulkOperationRequest,
+            BulkOperationResponse bulkOperationResponse,
+            ContextInfo contextInfo) {
+        final PreparedReactiveItemInitialization<I> itemInitialization =
+                prepareItemInitializationReactive(bulkOperationRequest, bulkOperationResponse,
+                        contextInfo);
+
+        return (searchResponse, pageable) -> itemInitialization
+                .initializeItems(searchResponse, pageable)
+                .block();
+    }
+
+    /**
+     * Builds the items url without its paging parameters and the request headers once, since
+     * they are the same for every page of the bulk operation.
+     */
+    @Override
+    public PreparedReactiveItemInitialization<I> prepareItemInitializationReactive(
+            BulkOperationRequest bulkOperationRequest,
+            BulkOperationResponse bulkOperationResponse,
+            ContextInfo contextInfo) {
+        final String itemsUrlTemplate =
+                getInitializeBulkOperationItemsUrlTemplate(bulkOperationResponse.getId(),
                         contextInfo);
 
+        final HttpHeaders requestHeaders = providerUtils.getHeaders(contextInfo);
+
+        return (searchResponse, pageable) -> initializeItems(searchResponse, bulkOperationRequest,
+                itemsUrlTemplate, requestHeaders, pageable, contextInfo);
+    }
+
+    /**
+     * Initializes the bulk operation items from the entities returned in the
+     * {@link SearchResponse}.
+     *
+     * @param searchResponse the list of catalog items from the search service
+     * @param bulkOperationRequest the {@link BulkOperationRequest} for this bulk operation
+     * @param itemsUrlTemplate the items url of the bulk operation, see
+     *        {@link #getInitializeBulkOperationItemsUrlTemplate(String, ContextInfo)}
+     * @param requestHeaders the headers built from the context of the bulk operation
+     * @param pageable the current page information
+     * @param contextInfo context information surrounding sandboxing/multitenant state
+     * @return the {@link InitializeItemResponse} containing the items created for the bulk
+     *         operation
+     */
+    protected Mono<InitializeItemResponse> initializeItems(SearchResponse<I> searchResponse,
+            BulkOperationRequest bulkOperationRequest,
+            String itemsUrlTemplate,
+            HttpHeaders requestHeaders,
+            Pageable pageable,
+            ContextInfo contextInfo) {
+        final String initializeBulkOperationItemsUrl = providerUtils
+                .appendQueryParams(itemsUrlTemplate, providerUtils.pageableToParams(pageable));
+
         List<String> catalogItemIds = searchResponse.getContent().stream()
                 .map(CatalogItem::getId)
                 .filter(id -> !bulkOperationRequest.getExclusions().contains(id))
@@ -132,26 +277,34 @@ public class ExternalCatalogProvider<I extends CatalogItem> implements CatalogPr
         InitializeItemRequest itemRequest = getTypeFactory().get(InitializeItemRequest.class);
         itemRequest.setEntityContextIds(catalogItemIds);
 
-        return providerUtils.executeRequest(() -> getWebClient()
+        return providerUtils.executeReactiveRequest(INITIALIZE_ITEMS, contextInfo, getWebClient()
                 .post()
                 .uri(initializeBulkOperationItemsUrl)
                 .accept(MediaType.APPLICATION_JSON)
                 .bodyValue(itemRequest)
-                .headers(httpHeaders -> httpHeaders.putAll(providerUtils.getHeaders(contextInfo)))
+                .headers(httpHeaders -> httpHeaders.putAll(requestHeaders))
                 .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .attributes(clientRegistrationId(getServiceClient()))
                 .retrieve()
                 .onStatus(HttpStatusCode::isError,
                         response -> response.createException().flatMap(
                                 exception -> Mono.just(new ProviderApiException(exception))))
-                .bodyToMono(InitializeItemResponse.class)
-                .block());
+                .bodyToMono(InitializeItemResponse.class));
     }
 
     @Override
     public BulkOperationResponse updateBulkOperationTotalRecordCount(long totalRecordCount,
             BulkOperationResponse bulkOperationResponse,
             ContextInfo contextInfo) {
+        return updateBulkOperationTotalRecordCountReactive(totalRecordCount,
+                bulkOperationResponse, contextInfo).block();
+    }
+
+    @Override
+    public Mono<BulkOperationResponse> updateBulkOperationTotalRecordCountReactive(
+            long totalRecordCount,
+            BulkOperationResponse bulkOperationResponse,
+            ContextInfo contextInfo) {
         final String updateBulkOperationTotalRecordCountUrl =
                 getUpdateBulkOperationTotalRecordCountUrl(bulkOperationResponse);
 
@@ -159,22 +312,81 @@ public class ExternalCatalogProvider<I extends CatalogItem> implements CatalogPr
                 typeFactory.get(BulkOperationTotalRecordCountRequest.class);
         request.setTotalRecordCount(totalRecordCount);
 
-        return providerUtils.executeRequest(() -> getWebClient()
+        final HttpHeaders requestHeaders = providerUtils.getHeaders(contextInfo);
+
+        Mono<BulkOperationResponse> exchange = getWebClient()
                 .patch()
                 .uri(updateBulkOperationTotalRecordCountUrl)
                 .accept(MediaType.APPLICATION_JSON)
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(request)
-                .headers(httpHeaders -> httpHeaders.putAll(providerUtils.getHeaders(contextInfo)))
+                .headers(httpHeaders -> httpHeaders.putAll(requestHeaders))
                 .attributes(clientRegistrationId(getServiceClient()))
                 .retrieve()
                 .onStatus(HttpStatusCode::isError,
                         response -> response.createException().flatMap(
                                 exception -> Mono.just(new ProviderApiException(exception))))
-                .bodyToMono(BulkOperationResponse.class)
-                .block());
+                .bodyToMono(BulkOperationResponse.class);
+
+        return providerUtils.executeReactiveRequest(UPDATE_TOTAL_RECORD_COUNT, contextInfo,
+                exchange);
+    }
+
+    /**
+     * Reports the running count to the
+     * {@link ExternalCatalogProperties#getBulkOperationInitializedRecordsUri() initialized records
+     * endpoint}. Catalog does not provide that endpoint by default, so nothing is sent unless it
+     * has been configured.
+     */
+    @Override
+    public void updateBulkOperationInitializedRecordCount(long initializedRecordCount,
+            BulkOperationResponse bulkOperationResponse,
+            ContextInfo contextInfo) {
+        if (StringUtils.isBlank(properties.getBulkOperationInitializedRecordsUri())) {
+            return;
+        }
+
+        final String updateBulkOperationInitializedRecordCountUrl =
+                getUpdateBulkOperationInitializedRecordCountUrl(bulkOperationResponse);
+
+        final HttpHeaders requestHeaders = providerUtils.getHeaders(contextInfo);
+
+        Mono<ResponseEntity<Void>> exchange = getWebClient()
+                .patch()
+                .uri(updateBulkOperationInitializedRecordCountUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("initializedRecordCount", initializedRecordCount))
+                .headers(httpHeaders -> httpHeaders.putAll(requestHeaders))
+                .attributes(clientRegistrationId(getServiceClient()))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError,
+                        response -> response.createException().flatMap(
+                                exception -> Mono.just(new ProviderApiException(exception))))
+                .toBodilessEntity();
+
+        providerUtils.executeRequest(UPDATE_INITIALIZED_RECORD_COUNT, contextInfo, exchange::block);
     }
 
+    @Override
+    public BulkOperationStatus getBulkOperationStatus(BulkOperationResponse bulkOperationResponse,
+            ContextInfo contextInfo) {
+        final String bulkOperationUrl = getBulkOperationUrl(bulkOperationResponse);
+
+        final HttpHeaders requestHeaders = providerUtils.getHeaders(contextInfo);
+
+        return providerUtils.executeRequest(GET_BULK_OPERATION, contextInfo, () -> getWebClient()
+                .get()
+                .uri(bulkOperationUrl)
+                .accept(MediaType.APPLICATION_JSON)
+                .headers(httpHeaders -> httpHeaders.putAll(requestHeaders))
+                .attributes(clientRegistrationId(getServiceClient()))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError,
+                        response -> response.createException().flatMap(
+                                exception -> Mono.just(new ProviderApiException(exception))))
+                .bodyToMono(BulkOperationStatus.class)
+                .block());
+    }
 
     protected String getCreateBulkOperationUrl(@Nullable ContextInfo contextInfo) {
         return fromHttpUrl(properties.getUrl())
@@ -194,14 +406,28 @@ public class ExternalCatalogProvider<I extends CatalogItem> implements CatalogPr
         return uriComponentsBuilder.toUriString();
     }
 
-    protected String getInitializeBulkOperationItemsUrl(String bulkOperationId,
-            Pageable pageable,
+    /**
+     * Gets the items url of a bulk operation without the paging parameters, which is the same for
+     * every page. It is built once per bulk operation when the item initialization is
+     * {@link #prepareItemInitializationReactive prepared}.
+     *
+     * @param bulkOperationId the id of the bulk operation
+     * @param contextInfo context information surrounding sandboxing/multitenant state
+     * @return the items url without the paging parameters
+     */
+    protected String getInitializeBulkOperationItemsUrlTemplate(String bulkOperationId,
             @Nullable ContextInfo contextInfo) {
         return fromHttpUrl(properties.getUrl())
                 .path(properties.getBulkOperationUri())
                 .pathSegment(bulkOperationId)
                 .path(properties.getBulkOperationItemsUri())
-                .queryParams(providerUtils.pageableToParams(pageable))
+                .toUriString();
+    }
+
+    protected String getBulkOperationUrl(BulkOperationResponse bulkOperationResponse) {
+        return fromHttpUrl(properties.getUrl())
+                .path(properties.getBulkOperationUri())
+                .pathSegment(bulkOperationResponse.getId())
                 .toUriString();
     }
 
@@ -214,6 +440,15 @@ public class ExternalCatalogProvider<I extends CatalogItem> implements CatalogPr
                 .toUriString();
     }
 
+    protected String getUpdateBulkOperationInitializedRecordCountUrl(
+            BulkOperationResponse bulkOperationResponse) {
+        return fromHttpUrl(properties.getUrl())
+                .path(properties.getBulkOperationUri())
+                .pathSegment(bulkOperationResponse.getId())
+                .path(properties.getBulkOperationInitializedRecordsUri())
+                .toUriString();
+    }
+
     protected String getServiceClient() {
         return properties.getServiceClient();
     }
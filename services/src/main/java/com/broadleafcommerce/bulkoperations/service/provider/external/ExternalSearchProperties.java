@@ -18,6 +18,11 @@ package com.broadleafcommerce.bulkoperations.service.provider.external;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderHedgingProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import lombok.Getter;
 import lombok.Setter;
 
@@ -40,4 +45,62 @@ public class ExternalSearchProperties {
      * The service client to use when calling search. Default is "bulkopsclient"
      */
     private String serviceClient = "bulkopsclient";
+
+    /**
+     * Whether results should be paged through using the cursor (e.g. a search-after token or
+     * cursor mark) returned by the search service instead of page numbers. This keeps the cost of
+     * each page constant no matter how deep into the results it is. Default is {@code false}.
+     */
+    private boolean cursorPaging = false;
+
+    /**
+     * The query parameter used to send the cursor to the search service. Default is "cursor".
+     */
+    private String cursorParameter = "cursor";
+
+    /**
+     * The attribute of the search response holding the cursor for the next page. Default is
+     * "nextCursor".
+     */
+    private String cursorAttribute = "nextCursor";
+
+    /**
+     * The cursor to send with the request for the first page, if the search service requires one
+     * (e.g. {@code *} for a cursor mark). Default is none.
+     */
+    private String initialCursor;
+
+    /**
+     * The attribute of the search response holding the total number of results matching the
+     * search. Default is "totalElements".
+     */
+    private String totalResultsAttribute = "totalElements";
+
+    /**
+     * Whether only the IDs of the results and the attributes needed for paging are read from
+     * search responses, instead of the full products. This greatly reduces the memory needed for
+     * large pages, but the results only have an ID, so it should only be enabled when nothing
+     * else about them is used, as is the case when initializing bulk operation items. Default is
+     * {@code false}.
+     */
+    private boolean idOnlyResponses = false;
+
+    /**
+     * The fields of each result the search service is asked to return, such as {@code id} or
+     * {@code id,sku,pricingKey}, so that it does not send entire product documents when only a
+     * few fields are used. All fields are returned if this is empty. Default is empty.
+     */
+    private List<String> projectionFields = new ArrayList<>();
+
+    /**
+     * The query parameter used to send the {@link #getProjectionFields() projection fields} to
+     * the search service. Default is "fields".
+     */
+    private String projectionParameter = "fields";
+
+    /**
+     * Settings for hedging slow search requests, which trades a few additional requests for
+     * cutting off the tail of the search latency.
+     */
+    private ProviderHedgingProperties hedging = new ProviderHedgingProperties();
 }
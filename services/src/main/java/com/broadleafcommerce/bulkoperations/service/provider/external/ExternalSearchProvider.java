@@ -16,18 +16,24 @@
  */
 package com.broadleafcommerce.bulkoperations.service.provider.external;
 
-import static org.springframework.security.oauth2.client.web.reactive.function.client.ServletOAuth2AuthorizedClientExchangeFilterFunction.clientRegistrationId;
+import static com.broadleafcommerce.bulkoperations.oauth2.client.web.OAuth2ClientAttributes.clientRegistrationId;
+import static com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderRateLimiter.SEARCH_SERVICE;
 import static org.springframework.web.util.UriComponentsBuilder.fromHttpUrl;
 
+import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import com.broadleafcommerce.bulk.v2.domain.BulkOperationRequest;
 import com.broadleafcommerce.bulk.v2.domain.BulkOperationResponse;
@@ -37,23 +43,34 @@ import com.broadleafcommerce.bulkoperations.domain.CatalogItem;
 import com.broadleafcommerce.bulkoperations.domain.Product;
 import com.broadleafcommerce.bulkoperations.domain.SearchResponse;
 import com.broadleafcommerce.bulkoperations.exception.ProviderApiException;
+import com.broadleafcommerce.bulkoperations.service.provider.ReactiveSearchProvider;
 import com.broadleafcommerce.bulkoperations.service.provider.SearchProvider;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderContentNegotiationFilter;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderOperation;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderRequestHedger;
 import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderUtils;
 import com.broadleafcommerce.common.extension.TypeFactory;
 import com.broadleafcommerce.data.tracking.core.context.ContextInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 
 @Slf4j
-@RequiredArgsConstructor
 public class ExternalSearchProvider<I extends CatalogItem>
-        implements SearchProvider<I> {
+        implements SearchProvider<I>, ReactiveSearchProvider<I> {
+
+    public static final ProviderOperation SEARCH =
+            ProviderOperation.of(SEARCH_SERVICE, "search", true);
 
     @Getter(AccessLevel.PROTECTED)
     private final WebClient webClient;
@@ -67,38 +84,272 @@ public class ExternalSearchProvider<I extends CatalogItem>
     @Getter(AccessLevel.PROTECTED)
     private final ExternalSearchProperties properties;
 
+    @Getter(AccessLevel.PROTECTED)
+    @Nullable
+    private final ProviderRequestHedger hedger;
+
+    @Getter(AccessLevel.PROTECTED)
+    @Nullable
+    private final SearchResponseIdDecoder idDecoder;
+
+    public ExternalSearchProvider(WebClient webClient,
+            TypeFactory typeFactory,
+            ProviderUtils providerUtils,
+            ExternalSearchProperties properties) {
+        this(webClient, typeFactory, providerUtils, properties, null);
+    }
+
+    public ExternalSearchProvider(WebClient webClient,
+            TypeFactory typeFactory,
+            ProviderUtils providerUtils,
+            ExternalSearchProperties properties,
+            @Nullable ProviderRequestHedger hedger) {
+        this(webClient, typeFactory, providerUtils, properties, hedger, null);
+    }
+
+    /**
+     * @param idDecoder reads search responses when
+     *        {@link ExternalSearchProperties#isIdOnlyResponses()} is enabled. It should use the
+     *        application's {@link ObjectMapper}. Without one, the full products are always read.
+     */
+    public ExternalSearchProvider(WebClient webClient,
+            TypeFactory typeFactory,
+            ProviderUtils providerUtils,
+            ExternalSearchProperties properties,
+            @Nullable ProviderRequestHedger hedger,
+            @Nullable SearchResponseIdDecoder idDecoder) {
+        this.webClient = webClient;
+        this.typeFactory = typeFactory;
+        this.providerUtils = providerUtils;
+        this.properties = properties;
+        this.hedger = hedger;
+        this.idDecoder = idDecoder;
+    }
+
+    @Override
+    public SearchResponse<I> getSearchResults(BulkOperationRequest request,
+            BulkOperationResponse bulkOperationResponse,
+            Pageable pageable,
+            ContextInfo contextInfo) {
+        return getSearchResults(request, bulkOperationResponse, pageable, null, contextInfo);
+    }
+
     @Override
-    @SuppressWarnings("unchecked")
     public SearchResponse<I> getSearchResults(BulkOperationRequest request,
             BulkOperationResponse bulkOperationResponse,
             Pageable pageable,
+            @Nullable String cursor,
+            ContextInfo contextInfo) {
+        return prepareSearch(request, bulkOperationResponse, contextInfo).search(pageable, cursor);
+    }
+
+    @Override
+    public Mono<SearchResponse<I>> getSearchResultsReactive(BulkOperationRequest request,
+            BulkOperationResponse bulkOperationResponse,
+            Pageable pageable,
+            @Nullable String cursor,
+            ContextInfo contextInfo) {
+        return prepareSearchReactive(request, bulkOperationResponse, contextInfo)
+                .search(pageable, cursor);
+    }
+
+    @Override
+    public PreparedSearch<I> prepareSearch(BulkOperationRequest request,
+            BulkOperationResponse bulkOperationResponse,
+            ContextInfo contextInfo) {
+        final PreparedReactiveSearch<I> search =
+                prepareSearchReactive(request, bulkOperationResponse, contextInfo);
+
+        return (pageable, cursor) -> {
+            final SearchResponse<I> searchResponse = search.search(pageable, cursor).block();
+
+            Assert.notNull(searchResponse, "Search response should not be null");
+
+            return searchResponse;
+        };
+    }
+
+    /**
+     * Builds the search url without its paging parameters and the request headers once, since
+     * they are the same for every page of the bulk operation.
+     */
+    @Override
+    public PreparedReactiveSearch<I> prepareSearchReactive(BulkOperationRequest request,
+            BulkOperationResponse bulkOperationResponse,
+            ContextInfo contextInfo) {
+        final String searchUrlTemplate =
+                getSearchUrlTemplate(buildSearchParamsFromRequest(request));
+
+        final HttpHeaders requestHeaders = providerUtils.getHeaders(contextInfo);
+
+        return (pageable, cursor) -> search(searchUrlTemplate, requestHeaders, pageable, cursor,
+                contextInfo);
+    }
+
+    /**
+     * Retrieves a page of the search results.
+     *
+     * @param searchUrlTemplate the search url of the bulk operation, see
+     *        {@link #getSearchUrlTemplate(MultiValueMap)}
+     * @param requestHeaders the headers built from the context of the bulk operation
+     * @param pageable the page to request
+     * @param cursor the cursor for the page, if cursor paging is used
+     * @param contextInfo context information surrounding sandboxing/multitenant state
+     * @return the search results for the page
+     */
+    @SuppressWarnings("unchecked")
+    protected Mono<SearchResponse<I>> search(String searchUrlTemplate,
+            HttpHeaders requestHeaders,
+            Pageable pageable,
+            @Nullable String cursor,
             ContextInfo contextInfo) {
         final ParameterizedTypeReference<SearchResponse<? extends Product>> responseType =
                 new ParameterizedTypeReference<>() {};
 
-        MultiValueMap<String, String> searchParams = buildSearchParamsFromRequest(request);
-
-        final SearchResponse<I> searchResponse = (SearchResponse<I>) getWebClient().get()
-                .uri(fromHttpUrl(properties.getUrl())
-                        .path(properties.getSearchUri())
-                        .queryParams(searchParams)
-                        .queryParam("size", String.valueOf(pageable.getPageSize()))
-                        .queryParam("page", String.valueOf(pageable.getPageNumber()))
-                        .queryParam("type", "PRODUCT")
-                        .toUriString())
-                .headers(headers -> headers.putAll(providerUtils.getHeaders(contextInfo)))
+        WebClient.ResponseSpec responseSpec = getWebClient()
+                .get()
+                .uri(getSearchUrl(searchUrlTemplate, pageable, cursor))
+                .headers(headers -> headers.putAll(requestHeaders))
                 .accept(MediaType.APPLICATION_JSON)
                 .attributes(clientRegistrationId(getServiceClient()))
+                // the ID-only decoder reads the body as JSON
+                .attribute(ProviderContentNegotiationFilter.JSON_ONLY_ATTRIBUTE,
+                        isIdOnlyResponses())
                 .retrieve()
                 .onStatus(HttpStatusCode::isError,
                         response -> response.createException().flatMap(
-                                exception -> Mono.just(new ProviderApiException(exception))))
-                .bodyToMono(responseType)
-                .block();
+                                exception -> Mono.just(new ProviderApiException(exception))));
+
+        Mono<SearchResponse<?>> body = isIdOnlyResponses()
+                ? responseSpec.bodyToMono(DataBuffer.class).map(this::decodeIdOnlyResponse)
+                : responseSpec.bodyToMono(responseType).map(searchResponse -> searchResponse);
+        Mono<SearchResponse<?>> search =
+                providerUtils.executeReactiveRequest(SEARCH, contextInfo, body);
+
+        return (hedger == null ? search : hedger.hedge(search))
+                .map(searchResponse -> (SearchResponse<I>) searchResponse)
+                .switchIfEmpty(Mono.error(
+                        () -> new IllegalArgumentException("Search response should not be null")));
+    }
+
+    protected boolean isIdOnlyResponses() {
+        return properties.isIdOnlyResponses() && idDecoder != null;
+    }
+
+    /**
+     * Reads only the IDs of the results and the attributes needed for paging from the body of a
+     * search response, releasing the body afterwards.
+     * <p>
+     * The body is joined into a single buffer before it is read, so a page still needs memory for
+     * its raw JSON, though not for the products it describes. Keep pages, and the
+     * {@link ExternalSearchProperties#getProjectionFields() projection}, small enough for that.
+     *
+     * @param body the body of the search response
+     * @return the search response with only the IDs of its results
+     */
+    protected SearchResponse<?> decodeIdOnlyResponse(DataBuffer body) {
+        List<String> attributeNames = Stream.of(properties.getCursorAttribute(),
+                properties.getTotalResultsAttribute())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        try (InputStream inputStream = body.asInputStream(true)) {
+            return idDecoder.decode(inputStream, attributeNames);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read the search response", e);
+        }
+    }
+
+    @Override
+    public boolean isCursorPagingEnabled() {
+        return properties.isCursorPaging();
+    }
+
+    @Override
+    @Nullable
+    public String getNextCursor(SearchResponse<I> searchResponse) {
+        if (!isCursorPagingEnabled()) {
+            return null;
+        }
 
-        Assert.notNull(searchResponse, "Search response should not be null");
+        Object nextCursor = searchResponse.getAttributes().get(properties.getCursorAttribute());
+        return nextCursor == null ? null : nextCursor.toString();
+    }
+
+    @Override
+    @Nullable
+    public Long getTotalResults(SearchResponse<I> searchResponse) {
+        Object totalResults =
+                searchResponse.getAttributes().get(properties.getTotalResultsAttribute());
+
+        if (totalResults instanceof Number) {
+            return ((Number) totalResults).longValue();
+        }
+        if (totalResults != null && StringUtils.isNumeric(totalResults.toString())) {
+            return Long.parseLong(totalResults.toString());
+        }
+        return null;
+    }
+
+    /**
+     * Gets the url for a page of the search results. The cursor returned by the search service is
+     * treated as an opaque value and is strictly encoded when it is appended, so tokens
+     * containing reserved characters such as {@code +}, {@code /} or {@code =} reach the search
+     * service unchanged.
+     *
+     * @param searchUrlTemplate the search url of the bulk operation, see
+     *        {@link #getSearchUrlTemplate(MultiValueMap)}
+     * @param pageable the page to request
+     * @param cursor the cursor for the page, if cursor paging is used
+     * @return the url for the page of the search results
+     */
+    protected String getSearchUrl(String searchUrlTemplate,
+            Pageable pageable,
+            @Nullable String cursor) {
+        MultiValueMap<String, String> pageParams = new LinkedMultiValueMap<>(4);
+        pageParams.add("size", String.valueOf(pageable.getPageSize()));
+
+        String effectiveCursor = getEffectiveCursor(cursor);
+        if (effectiveCursor != null) {
+            // the cursor determines the position in the results, so always request the first page
+            pageParams.add("page", "0");
+            pageParams.add(properties.getCursorParameter(), effectiveCursor);
+        } else {
+            pageParams.add("page", String.valueOf(pageable.getPageNumber()));
+        }
+
+        return providerUtils.appendQueryParams(searchUrlTemplate, pageParams);
+    }
+
+    /**
+     * Gets the search url with the search parameters and the projection, which are the same for
+     * every page of a bulk operation, but without the paging parameters. It is built once per
+     * bulk operation when the search is {@link #prepareSearchReactive prepared}.
+     *
+     * @param searchParams the search parameters built from the bulk operation request
+     * @return the search url without the paging parameters
+     */
+    protected String getSearchUrlTemplate(MultiValueMap<String, String> searchParams) {
+        UriComponentsBuilder uriComponentsBuilder = fromHttpUrl(properties.getUrl())
+                .path(properties.getSearchUri())
+                .queryParams(searchParams)
+                .queryParam("type", "PRODUCT");
+
+        if (CollectionUtils.isNotEmpty(properties.getProjectionFields())) {
+            uriComponentsBuilder.queryParam(properties.getProjectionParameter(),
+                    String.join(",", properties.getProjectionFields()));
+        }
+
+        return uriComponentsBuilder.toUriString();
+    }
+
+    @Nullable
+    protected String getEffectiveCursor(@Nullable String cursor) {
+        if (!isCursorPagingEnabled()) {
+            return null;
+        }
 
-        return searchResponse;
+        return StringUtils.isNotBlank(cursor) ? cursor : properties.getInitialCursor();
     }
 
     protected MultiValueMap<String, String> buildSearchParamsFromRequest(
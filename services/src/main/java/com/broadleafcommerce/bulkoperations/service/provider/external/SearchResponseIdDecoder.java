@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.external;
+
+import com.broadleafcommerce.bulkoperations.domain.CatalogItemReference;
+import com.broadleafcommerce.bulkoperations.domain.SearchResponse;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Reads a search response by walking its JSON tokens, keeping only the ID of each result and the
+ * requested top-level attributes, such as the cursor and total used for paging. Everything else
+ * is skipped without being deserialized, which avoids building a full {@code Product} and its
+ * additional attributes for every result when only the IDs are needed.
+ * <p>
+ * Each result is read into a {@link CatalogItemReference}. A result whose ID is missing, null or
+ * not a scalar value is rejected rather than skipped, since the number of results must still
+ * reflect the page size for paging to stop at the right page.
+ */
+@RequiredArgsConstructor
+public class SearchResponseIdDecoder {
+
+    @Getter(AccessLevel.PROTECTED)
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Reads the search response.
+     *
+     * @param body the JSON body of the search response
+     * @param attributeNames the top-level attributes to keep in
+     *        {@link SearchResponse#getAttributes()}
+     * @return the search response with only the IDs of its results
+     * @throws IOException if the body could not be read or is not a search response
+     */
+    public SearchResponse<CatalogItemReference> decode(InputStream body,
+            Collection<String> attributeNames) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a search response object");
+            }
+
+            SearchResponse<CatalogItemReference> searchResponse = new SearchResponse<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                if ("content".equals(field) && value == JsonToken.START_ARRAY) {
+                    readIds(parser, searchResponse.getContent());
+                } else if (attributeNames.contains(field)) {
+                    searchResponse.addAttribute(field, parser.readValueAs(Object.class));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return searchResponse;
+        }
+    }
+
+    protected void readIds(JsonParser parser, List<CatalogItemReference> content)
+            throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == null) {
+                throw new JsonParseException(parser, "Unexpected end of search results");
+            }
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            String id = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("id".equals(field) && value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+                    id = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (id == null) {
+                throw new JsonParseException(parser, "Expected a search result with an ID");
+            }
+            content.add(new CatalogItemReference(id));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import org.springframework.http.codec.ClientCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.smile.Jackson2SmileDecoder;
+import org.springframework.http.codec.smile.Jackson2SmileEncoder;
+import org.springframework.util.ClassUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Registers the codecs for the {@link ProviderCodecProperties#getBinaryFormat() binary format}
+ * with a web client. The Jackson data formats are optional dependencies, so this class must only
+ * be loaded once a binary format is configured.
+ */
+public final class ProviderBinaryCodecs {
+
+    private static final String SMILE_FACTORY =
+            "com.fasterxml.jackson.dataformat.smile.SmileFactory";
+
+    private static final String CBOR_FACTORY = "com.fasterxml.jackson.dataformat.cbor.CBORFactory";
+
+    private ProviderBinaryCodecs() {}
+
+    /**
+     * Registers the encoder and decoder for the binary format, configured like the given
+     * {@link ObjectMapper}.
+     *
+     * @param binaryFormat the binary format
+     * @param objectMapper the mapper to copy the configuration of
+     * @param configurer the codec configurer of the web client
+     * @throws IllegalStateException if the Jackson data format is not on the classpath
+     */
+    public static void register(ProviderCodecProperties.BinaryFormat binaryFormat,
+            ObjectMapper objectMapper,
+            ClientCodecConfigurer configurer) {
+        switch (binaryFormat) {
+            case SMILE: {
+                assertPresent(SMILE_FACTORY, "jackson-dataformat-smile");
+                ObjectMapper smileMapper = objectMapper.copyWith(new SmileFactory());
+                configurer.customCodecs().register(new Jackson2SmileEncoder(smileMapper));
+                configurer.customCodecs().register(new Jackson2SmileDecoder(smileMapper));
+                break;
+            }
+            case CBOR: {
+                assertPresent(CBOR_FACTORY, "jackson-dataformat-cbor");
+                ObjectMapper cborMapper = objectMapper.copyWith(new CBORFactory());
+                configurer.customCodecs().register(new Jackson2CborEncoder(cborMapper));
+                configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper));
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private static void assertPresent(String className, String artifactId) {
+        if (!ClassUtils.isPresent(className, ProviderBinaryCodecs.class.getClassLoader())) {
+            throw new IllegalStateException(String.format(
+                    "%s must be on the classpath to encode provider traffic with it",
+                    artifactId));
+        }
+    }
+}
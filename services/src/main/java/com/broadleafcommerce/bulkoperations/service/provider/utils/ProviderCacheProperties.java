@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Settings for caching responses from a provider service that rarely change.
+ */
+@Data
+public class ProviderCacheProperties {
+
+    /**
+     * Whether responses are cached. Default is {@code true}.
+     */
+    private boolean enabled = true;
+
+    /**
+     * How long a response is cached after it was received. Default is 10 minutes.
+     */
+    private Duration timeToLive = Duration.ofMinutes(10);
+
+    /**
+     * The maximum number of responses cached. Default is 100.
+     */
+    private int maxSize = 100;
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+import lombok.Data;
+import lombok.Getter;
+
+/**
+ * Settings for compressing and encoding the traffic between bulk operations and the services
+ * behind its providers. Each of these falls back to uncompressed JSON when the other service does
+ * not support it.
+ */
+@Data
+@ConfigurationProperties("broadleaf.bulkoperations.provider.codec")
+public class ProviderCodecProperties {
+
+    /**
+     * Whether gzip compressed responses are accepted from the provider services. Services that do
+     * not support compression respond uncompressed. Default is {@code false}.
+     */
+    private boolean responseCompression = false;
+
+    /**
+     * Whether request bodies sent to the provider services are gzip compressed. Requests to a
+     * service that rejects them with {@code 415 Unsupported Media Type} or
+     * {@code 400 Bad Request} are sent again uncompressed, and that service is not sent
+     * compressed requests for the {@link #getReprobeInterval() reprobe interval}. Default is
+     * {@code false}.
+     */
+    private boolean requestCompression = false;
+
+    /**
+     * The smallest request body that is compressed. Default is 2KB.
+     */
+    private DataSize requestCompressionThreshold = DataSize.ofKilobytes(2);
+
+    /**
+     * The binary encoding preferred over JSON for requests and responses. Requires the matching
+     * Jackson data format on the classpath. Responses are only encoded with it if the service
+     * supports it, and requests to a service that rejects it with
+     * {@code 415 Unsupported Media Type} or {@code 400 Bad Request} are sent again as JSON, after
+     * which that service is only sent JSON for the {@link #getReprobeInterval() reprobe
+     * interval}. Default is {@link BinaryFormat#NONE}.
+     */
+    private BinaryFormat binaryFormat = BinaryFormat.NONE;
+
+    /**
+     * How long a service that rejected binary or compressed requests is only sent plain JSON,
+     * before it is tried again in case it has been upgraded. Default is 10 minutes.
+     */
+    private Duration reprobeInterval = Duration.ofMinutes(10);
+
+    public enum BinaryFormat {
+        NONE(null),
+        SMILE(new MediaType("application", "x-jackson-smile")),
+        CBOR(MediaType.APPLICATION_CBOR);
+
+        /**
+         * The media type of the binary format, or null for {@link #NONE}.
+         */
+        @Getter
+        @Nullable
+        private final MediaType mediaType;
+
+        BinaryFormat(@Nullable MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import reactor.netty.http.HttpProtocol;
+
+/**
+ * Settings for the connections bulk operations uses for requests to the services behind its
+ * providers. The timeouts and protocols always apply, while the pool settings only apply when
+ * {@link #isEnabled() enabled}, so that the pools can be sized to the concurrency of the bulk
+ * workloads instead of Reactor Netty's defaults.
+ */
+@Data
+@ConfigurationProperties("broadleaf.bulkoperations.provider.connection-pool")
+public class ProviderConnectionPoolProperties {
+
+    /**
+     * Whether dedicated connection pools configured by these settings are used, one for the
+     * catalog requests and one for the search requests, so that neither can exhaust the
+     * connections of the other. Reactor Netty's shared default pool is used otherwise. Default is
+     * {@code false}.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The prefix of the names of the pools, used as the tag of their metrics. The pools are named
+     * {@code <name>-catalog} and {@code <name>-search}. Default is "bulk-operations".
+     */
+    private String name = "bulk-operations";
+
+    /**
+     * The maximum number of connections of each pool per remote address. Default is 100.
+     */
+    private int maxConnections = 100;
+
+    /**
+     * The maximum number of requests waiting for a connection per remote address, or -1 for no
+     * limit. Default is 1000.
+     */
+    private int pendingAcquireMaxCount = 1000;
+
+    /**
+     * How long a request waits for a connection before failing. Default is 45 seconds.
+     */
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(45);
+
+    /**
+     * How long a connection may be idle before it is closed. Default is 30 seconds.
+     */
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+
+    /**
+     * How long a connection may be used before it is closed, so that connections are spread
+     * across the instances of the services when they scale. Default is 5 minutes.
+     */
+    private Duration maxLifeTime = Duration.ofMinutes(5);
+
+    /**
+     * How often connections exceeding the idle time or life time are closed in the background
+     * rather than only when they are acquired, or zero to disable. Default is 30 seconds.
+     */
+    private Duration evictionInterval = Duration.ofSeconds(30);
+
+    /**
+     * How long establishing a connection may take. Default is 10 seconds.
+     */
+    private Duration connectTimeout = Duration.ofSeconds(10);
+
+    /**
+     * How long to wait for a response after a request was sent, or none to wait indefinitely.
+     * Default is none.
+     */
+    private Duration responseTimeout;
+
+    /**
+     * The HTTP protocols to use. Add {@code H2} to multiplex requests over fewer connections to
+     * services that support HTTP/2 over TLS, or use {@code H2C} for HTTP/2 without TLS. Default is
+     * {@code HTTP11}.
+     */
+    private List<HttpProtocol> protocols = new ArrayList<>(List.of(HttpProtocol.HTTP11));
+
+    /**
+     * Whether the pool records metrics, such as the number of active, idle and pending
+     * connections and the time spent acquiring a connection. Default is {@code true}.
+     */
+    private boolean metrics = true;
+}
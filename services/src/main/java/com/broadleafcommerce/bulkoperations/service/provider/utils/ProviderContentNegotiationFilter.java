@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.lang.Nullable;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Negotiates the {@link ProviderCodecProperties codec} of requests to the provider services:
+ * prefers the configured binary format over JSON for JSON requests and responses, and gzip
+ * compresses request bodies over the configured threshold.
+ * <p>
+ * Responses are decoded according to their content type, so a service that does not support the
+ * binary format simply responds with JSON. A service that rejects a binary or compressed request
+ * with {@code 415 Unsupported Media Type} is sent the original request again, and is only sent
+ * plain JSON until {@link ProviderCodecProperties#getReprobeInterval()} has passed. Spring and
+ * most other servers reject a gzip body they cannot decode with {@code 400 Bad Request} instead,
+ * while failing to parse it, so a request rejected with {@code 400} is sent again as well. As
+ * {@code 400} is also the response to an invalid request, the service is only sent plain JSON
+ * from then on if it accepts the original request. In either case the rejected request was not
+ * processed, so sending it again is safe even if it is not idempotent.
+ * <p>
+ * Requests with the {@link #JSON_ONLY_ATTRIBUTE} attribute set to true are left untouched, for
+ * responses that are read as raw JSON.
+ */
+@Slf4j
+public class ProviderContentNegotiationFilter implements ExchangeFilterFunction {
+
+    public static final String JSON_ONLY_ATTRIBUTE =
+            ProviderContentNegotiationFilter.class.getName() + ".JSON_ONLY";
+
+    private static final MediaType FALLBACK_JSON =
+            new MediaType(MediaType.APPLICATION_JSON, Map.of("q", "0.9"));
+
+    @Getter(AccessLevel.PROTECTED)
+    private final ProviderCodecProperties properties;
+
+    @Getter(AccessLevel.PROTECTED)
+    @Nullable
+    private final MediaType binaryMediaType;
+
+    /**
+     * The services, by scheme and authority, that rejected binary or compressed requests, with
+     * the {@link System#nanoTime()} they did so at.
+     */
+    private final Map<String, Long> plainJsonPeers = new ConcurrentHashMap<>();
+
+    public ProviderContentNegotiationFilter(ProviderCodecProperties properties,
+            @Nullable MediaType binaryMediaType) {
+        this.properties = properties;
+        this.binaryMediaType = binaryMediaType;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String peer = getPeer(request.url());
+        if (Boolean.TRUE.equals(request.attribute(JSON_ONLY_ATTRIBUTE).orElse(null))
+                || isPlainJsonPeer(peer)) {
+            return next.exchange(request);
+        }
+
+        boolean binaryBody = binaryMediaType != null
+                && MediaType.APPLICATION_JSON.isCompatibleWith(request.headers().getContentType());
+        boolean compressBody = properties.isRequestCompression() && hasBody(request.method());
+        ClientRequest negotiated = negotiate(request, binaryBody, compressBody);
+
+        if (!binaryBody && !compressBody) {
+            return next.exchange(negotiated);
+        }
+
+        return next.exchange(negotiated).flatMap(response -> {
+            int status = response.statusCode().value();
+            if (!isRejection(status)) {
+                return Mono.just(response);
+            }
+
+            return response.releaseBody()
+                    .then(next.exchange(request))
+                    .doOnNext(fallbackResponse -> {
+                        // a 400 for the original request as well means the request is invalid
+                        if (status == HttpStatus.UNSUPPORTED_MEDIA_TYPE.value()
+                                || fallbackResponse.statusCode().value() != status) {
+                            log.info("{} does not support binary or compressed requests, "
+                                    + "falling back to JSON", peer);
+                            plainJsonPeers.put(peer, System.nanoTime());
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Whether the service rejected a binary or compressed request with the status, and should be
+     * sent the original request instead.
+     *
+     * @param status the status of the response to the binary or compressed request
+     * @return true if the original request should be sent
+     */
+    protected boolean isRejection(int status) {
+        return status == HttpStatus.UNSUPPORTED_MEDIA_TYPE.value()
+                || status == HttpStatus.BAD_REQUEST.value();
+    }
+
+    /**
+     * Whether only plain JSON is sent to the service. Once
+     * {@link ProviderCodecProperties#getReprobeInterval()} has passed since it rejected a binary
+     * or compressed request, the next request probes it again, so that a service that has been
+     * upgraded since is not sent plain JSON forever.
+     *
+     * @param peer the scheme and authority of the service
+     * @return true if only plain JSON is sent to the service
+     */
+    protected boolean isPlainJsonPeer(String peer) {
+        Long rejectedAt = plainJsonPeers.get(peer);
+        if (rejectedAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - rejectedAt < properties.getReprobeInterval().toNanos()) {
+            return true;
+        }
+
+        plainJsonPeers.remove(peer, rejectedAt);
+        return false;
+    }
+
+    protected ClientRequest negotiate(ClientRequest request,
+            boolean binaryBody,
+            boolean compressBody) {
+        ClientRequest.Builder builder = ClientRequest.from(request);
+
+        if (binaryMediaType != null && acceptsOnlyJson(request.headers())) {
+            builder.headers(headers -> headers.setAccept(List.of(binaryMediaType, FALLBACK_JSON)));
+        }
+        if (binaryBody) {
+            builder.headers(headers -> headers.setContentType(binaryMediaType));
+        }
+        if (compressBody) {
+            builder.body((outputMessage, context) -> request.body()
+                    .insert(new CompressingRequest(outputMessage), context));
+        }
+
+        return builder.build();
+    }
+
+    protected boolean acceptsOnlyJson(HttpHeaders headers) {
+        List<MediaType> accept = headers.getAccept();
+        return accept.size() == 1 && MediaType.APPLICATION_JSON.equalsTypeAndSubtype(accept.get(0));
+    }
+
+    protected boolean hasBody(HttpMethod method) {
+        return HttpMethod.POST.equals(method) || HttpMethod.PUT.equals(method)
+                || HttpMethod.PATCH.equals(method);
+    }
+
+    protected String getPeer(URI url) {
+        return url.getScheme() + "://" + url.getRawAuthority();
+    }
+
+    /**
+     * Gzip compresses the request body if it is at least
+     * {@link ProviderCodecProperties#getRequestCompressionThreshold()} long.
+     */
+    private class CompressingRequest extends ClientHttpRequestDecorator {
+
+        CompressingRequest(ClientHttpRequest delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return DataBufferUtils.join(body)
+                    .defaultIfEmpty(bufferFactory().wrap(new byte[0]))
+                    .flatMap(buffer -> super.writeWith(Mono.just(compress(buffer))));
+        }
+
+        private DataBuffer compress(DataBuffer buffer) {
+            if (buffer.readableByteCount() < properties.getRequestCompressionThreshold()
+                    .toBytes()) {
+                return buffer;
+            }
+
+            ByteArrayOutputStream compressed =
+                    new ByteArrayOutputStream(buffer.readableByteCount() / 4);
+            try (InputStream in = buffer.asInputStream(true);
+                    GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                in.transferTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to compress the request body", e);
+            }
+
+            byte[] bytes = compressed.toByteArray();
+            getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            getHeaders().setContentLength(bytes.length);
+            return bufferFactory().wrap(bytes);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Settings for hedging requests to a provider service: when a request takes longer than most
+ * recent requests to the same endpoint did, an identical request is sent and whichever responds
+ * first is used.
+ */
+@Data
+public class ProviderHedgingProperties {
+
+    /**
+     * Whether slow requests are hedged. Default is {@code false}.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The percentile of recent response times after which a hedge request is sent, between 0 and
+     * 1. Default is 0.95, so roughly one in twenty requests is hedged.
+     */
+    private double percentile = 0.95;
+
+    /**
+     * The shortest delay before a hedge request is sent, regardless of the recent response times.
+     * Default is 10 milliseconds.
+     */
+    private Duration minDelay = Duration.ofMillis(10);
+
+    /**
+     * The number of most recent response times the percentile is calculated from. Default is
+     * 1000.
+     */
+    private int windowSize = 1000;
+
+    /**
+     * The number of response times that have to be recorded before requests are hedged. Default
+     * is 100.
+     */
+    private int minSamples = 100;
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import java.util.Objects;
+
+import lombok.Getter;
+
+/**
+ * Identifies a kind of request made by a provider to one of its services, so that rate limits,
+ * retries and circuit breakers can be applied per service and per endpoint.
+ */
+public final class ProviderOperation {
+
+    /**
+     * The name of the service the request is made to, such as
+     * {@link ProviderRateLimiter#CATALOG_SERVICE}.
+     */
+    @Getter
+    private final String service;
+
+    /**
+     * The name of the endpoint within the service.
+     */
+    @Getter
+    private final String name;
+
+    /**
+     * Whether repeating the request has no effect beyond the first time it succeeds, so that it
+     * may be retried after any transient failure.
+     */
+    @Getter
+    private final boolean idempotent;
+
+    private ProviderOperation(String service, String name, boolean idempotent) {
+        this.service = service;
+        this.name = name;
+        this.idempotent = idempotent;
+    }
+
+    public static ProviderOperation of(String service, String name, boolean idempotent) {
+        return new ProviderOperation(service, name, idempotent);
+    }
+
+    /**
+     * The key identifying the endpoint across services.
+     *
+     * @return the service and endpoint name
+     */
+    public String getKey() {
+        return service + ':' + name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProviderOperation)) {
+            return false;
+        }
+        ProviderOperation that = (ProviderOperation) o;
+        return idempotent == that.idempotent
+                && service.equals(that.service)
+                && name.equals(that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(service, name, idempotent);
+    }
+
+    @Override
+    public String toString() {
+        return getKey();
+    }
+}
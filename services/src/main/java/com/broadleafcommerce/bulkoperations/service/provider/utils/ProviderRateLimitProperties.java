@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * Settings for limiting the rate of the requests bulk operations make to the services behind its
+ * providers, per tenant and per service, so that bulk traffic cannot starve other consumers of
+ * those services.
+ */
+@Data
+@ConfigurationProperties("broadleaf.bulkoperations.provider.rate-limit")
+public class ProviderRateLimitProperties {
+
+    /**
+     * Whether requests to the provider services are rate limited. Default is {@code false}.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The limit applied to each tenant for services without a limit in {@link #getServices()}.
+     */
+    private Limit defaultLimit = new Limit();
+
+    /**
+     * Limits applied to each tenant for specific services, keyed by service name, such as
+     * {@code catalog} or {@code search}.
+     */
+    private Map<String, Limit> services = new HashMap<>();
+
+    /**
+     * The longest a request waits for the rate limit before it is rejected. Default is 30
+     * seconds.
+     */
+    private Duration maxWait = Duration.ofSeconds(30);
+
+    /**
+     * Gets the limit for the given service.
+     *
+     * @param service the name of the service
+     * @return the limit for the service
+     */
+    public Limit getLimit(String service) {
+        return services.getOrDefault(service, defaultLimit);
+    }
+
+    @Data
+    public static class Limit {
+
+        /**
+         * The sustained number of requests per second each tenant may make. Default is 50.
+         */
+        private double permitsPerSecond = 50;
+
+        /**
+         * The number of requests each tenant may make in a burst after being idle. Default is 50.
+         */
+        private int burst = 50;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import org.springframework.lang.Nullable;
+
+import com.broadleafcommerce.bulkoperations.exception.ProviderRateLimitExceededException;
+import com.broadleafcommerce.data.tracking.core.context.ContextInfo;
+import com.broadleafcommerce.data.tracking.core.context.ContextRequest;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AccessLevel;
+import lombok.Getter;
+import reactor.core.publisher.Mono;
+
+/**
+ * Limits the rate of requests to the provider services with a token bucket per tenant and
+ * service. Requests over the limit wait for a permit, up to
+ * {@link ProviderRateLimitProperties#getMaxWait()}, and are rejected with a
+ * {@link ProviderRateLimitExceededException} if they would have to wait longer.
+ * <p>
+ * The time spent waiting is recorded by the {@link #WAIT_METRIC} timer and rejections are counted
+ * by the {@link #REJECTED_METRIC} counter, both tagged by service and tenant.
+ */
+public class ProviderRateLimiter {
+
+    public static final String CATALOG_SERVICE = "catalog";
+
+    public static final String SEARCH_SERVICE = "search";
+
+    public static final String WAIT_METRIC = "broadleaf.bulkoperations.provider.rate.limit.wait";
+
+    public static final String REJECTED_METRIC =
+            "broadleaf.bulkoperations.provider.rate.limit.rejected";
+
+    /**
+     * The tenant requests are attributed to when the {@link ContextInfo} has none.
+     */
+    public static final String DEFAULT_TENANT = "default";
+
+    @Getter(AccessLevel.PROTECTED)
+    private final ProviderRateLimitProperties properties;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public ProviderRateLimiter(ProviderRateLimitProperties properties,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Waits for a permit to make a request to the service on behalf of the tenant in the context.
+     *
+     * @param service the name of the service
+     * @param contextInfo the context the request is made in
+     * @throws ProviderRateLimitExceededException if the permit is not available within
+     *         {@link ProviderRateLimitProperties#getMaxWait()}
+     */
+    public void acquire(String service, @Nullable ContextInfo contextInfo) {
+        long waitNanos = reserve(service, contextInfo);
+        if (waitNanos <= 0) {
+            return;
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the rate limit", e);
+        }
+    }
+
+    /**
+     * Delays the request until a permit to make it to the service on behalf of the tenant in the
+     * context is available, without blocking.
+     *
+     * @param service the name of the service
+     * @param contextInfo the context the request is made in
+     * @param request the request to delay
+     * @param <T> the type of the response
+     * @return the delayed request, signalling a {@link ProviderRateLimitExceededException} if the
+     *         permit is not available within {@link ProviderRateLimitProperties#getMaxWait()}
+     */
+    public <T> Mono<T> acquire(String service, @Nullable ContextInfo contextInfo,
+            Mono<T> request) {
+        return Mono.defer(() -> {
+            long waitNanos = reserve(service, contextInfo);
+            return waitNanos <= 0 ? request
+                    : Mono.delay(Duration.ofNanos(waitNanos)).then(request);
+        });
+    }
+
+    /**
+     * Reserves a permit, recording how long the caller has to wait for it.
+     *
+     * @param service the name of the service
+     * @param contextInfo the context the request is made in
+     * @return the nanoseconds to wait before making the request
+     */
+    protected long reserve(String service, @Nullable ContextInfo contextInfo) {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+
+        String tenantId = getTenantId(contextInfo);
+        ProviderRateLimitProperties.Limit limit = properties.getLimit(service);
+        TokenBucket bucket = buckets.computeIfAbsent(service + ':' + tenantId,
+                key -> new TokenBucket(limit.getPermitsPerSecond(), limit.getBurst()));
+        long waitNanos = bucket.reserve(properties.getMaxWait().toNanos());
+
+        if (waitNanos < 0) {
+            Counter.builder(REJECTED_METRIC)
+                    .description("Provider requests rejected by the rate limit")
+                    .tag("service", service)
+                    .tag("tenant", tenantId)
+                    .register(meterRegistry)
+                    .increment();
+            throw new ProviderRateLimitExceededException(service, tenantId);
+        }
+
+        Timer.builder(WAIT_METRIC)
+                .description("Time provider requests waited for the rate limit")
+                .tag("service", service)
+                .tag("tenant", tenantId)
+                .register(meterRegistry)
+                .record(waitNanos, TimeUnit.NANOSECONDS);
+        return waitNanos;
+    }
+
+    protected String getTenantId(@Nullable ContextInfo contextInfo) {
+        return Optional.ofNullable(contextInfo)
+                .map(ContextInfo::getContextRequest)
+                .map(ContextRequest::getTenantId)
+                .orElse(DEFAULT_TENANT);
+    }
+
+    /**
+     * A token bucket that hands out permits ahead of time, so callers only need to wait out their
+     * reservation rather than compete for permits.
+     */
+    private static class TokenBucket {
+
+        private final double permitsPerNano;
+
+        private final double capacity;
+
+        private double permits;
+
+        private long lastRefillNanos = System.nanoTime();
+
+        private TokenBucket(double permitsPerSecond, int burst) {
+            this.permitsPerNano = Math.max(permitsPerSecond, Double.MIN_NORMAL) / 1_000_000_000d;
+            this.capacity = Math.max(1, burst);
+            this.permits = capacity;
+        }
+
+        /**
+         * Reserves a permit.
+         *
+         * @param maxWaitNanos the longest the caller is willing to wait
+         * @return the nanoseconds to wait for the permit, or -1 if that would exceed the maximum
+         */
+        private synchronized long reserve(long maxWaitNanos) {
+            long now = System.nanoTime();
+            permits = Math.min(capacity, permits + (now - lastRefillNanos) * permitsPerNano);
+            lastRefillNanos = now;
+
+            long waitNanos = permits >= 1 ? 0 : (long) Math.ceil((1 - permits) / permitsPerNano);
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+
+            permits -= 1;
+            return waitNanos;
+        }
+    }
+}
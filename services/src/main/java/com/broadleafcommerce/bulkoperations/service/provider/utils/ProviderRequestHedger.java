@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hedges requests for a {@link ProviderOperation}: once a request has been outstanding for longer
+ * than {@link ProviderHedgingProperties#getPercentile()} of the recent requests took, an identical
+ * request is sent. Whichever of the two responds first is used and the other one is canceled.
+ * <p>
+ * A failed hedge request is ignored in favor of the original one, whose outcome stands. Hedge
+ * requests sent are counted by the {@link #HEDGED_METRIC} counter and those that responded first
+ * by the {@link #HEDGE_WINS_METRIC} counter, both tagged by service and operation.
+ */
+public class ProviderRequestHedger {
+
+    public static final String HEDGED_METRIC = "broadleaf.bulkoperations.provider.hedge.requests";
+
+    public static final String HEDGE_WINS_METRIC = "broadleaf.bulkoperations.provider.hedge.wins";
+
+    @Getter(AccessLevel.PROTECTED)
+    private final ProviderOperation operation;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final ProviderHedgingProperties properties;
+
+    private final Counter hedgedCounter;
+
+    private final Counter hedgeWinsCounter;
+
+    private final LatencyWindow latencies;
+
+    public ProviderRequestHedger(ProviderOperation operation,
+            ProviderHedgingProperties properties,
+            MeterRegistry meterRegistry) {
+        this.operation = operation;
+        this.properties = properties;
+        this.hedgedCounter = Counter.builder(HEDGED_METRIC)
+                .description("Hedge requests sent to a provider service")
+                .tag("service", operation.getService())
+                .tag("operation", operation.getName())
+                .register(meterRegistry);
+        this.hedgeWinsCounter = Counter.builder(HEDGE_WINS_METRIC)
+                .description("Hedge requests that responded before the original request")
+                .tag("service", operation.getService())
+                .tag("operation", operation.getName())
+                .register(meterRegistry);
+        this.latencies = new LatencyWindow(properties.getWindowSize());
+    }
+
+    /**
+     * Applies hedging to the request, which is subscribed to a second time if it is slow.
+     *
+     * @param request the request to hedge
+     * @param <T> the type of the response
+     * @return the hedged request
+     */
+    public <T> Mono<T> hedge(Mono<T> request) {
+        if (!properties.isEnabled()) {
+            return request;
+        }
+
+        return Mono.defer(() -> {
+            Mono<T> primary = recordLatency(request);
+            Duration delay = getHedgeDelay();
+            if (delay == null) {
+                return primary;
+            }
+
+            Mono<T> hedge = Mono.delay(delay)
+                    .then(Mono.defer(() -> {
+                        hedgedCounter.increment();
+                        return recordLatency(request);
+                    }))
+                    .doOnNext(response -> hedgeWinsCounter.increment())
+                    .onErrorResume(e -> Mono.never());
+            return Mono.firstWithSignal(primary, hedge);
+        });
+    }
+
+    /**
+     * Determines how long a request may be outstanding before it is hedged.
+     *
+     * @return the delay before the hedge request, or null if too few response times have been
+     *         recorded to tell
+     */
+    @Nullable
+    protected Duration getHedgeDelay() {
+        long percentileNanos =
+                latencies.getPercentile(properties.getPercentile(), properties.getMinSamples());
+        if (percentileNanos < 0) {
+            return null;
+        }
+
+        Duration delay = Duration.ofNanos(percentileNanos);
+        return delay.compareTo(properties.getMinDelay()) < 0 ? properties.getMinDelay() : delay;
+    }
+
+    protected <T> Mono<T> recordLatency(Mono<T> request) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return request.doOnSuccess(response -> latencies.record(System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * A ring buffer of the most recent response times. The percentile is recalculated after a
+     * tenth of the window has been replaced rather than on every request.
+     */
+    private static class LatencyWindow {
+
+        private final long[] samples;
+
+        private final int recalculateInterval;
+
+        private int next;
+
+        private int count;
+
+        private int recordedSinceCalculation;
+
+        private long percentileNanos = -1;
+
+        private double calculatedPercentile = -1;
+
+        LatencyWindow(int size) {
+            this.samples = new long[Math.max(1, size)];
+            this.recalculateInterval = Math.max(1, samples.length / 10);
+        }
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            recordedSinceCalculation++;
+        }
+
+        synchronized long getPercentile(double percentile, int minSamples) {
+            if (count == 0 || count < Math.min(minSamples, samples.length)) {
+                return -1;
+            }
+
+            if (percentile != calculatedPercentile
+                    || recordedSinceCalculation >= recalculateInterval
+                    || percentileNanos < 0) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                double clamped = Math.min(1, Math.max(0, percentile));
+                int index = (int) Math.ceil(clamped * count) - 1;
+                percentileNanos = sorted[Math.max(0, index)];
+                calculatedPercentile = percentile;
+                recordedSinceCalculation = 0;
+            }
+            return percentileNanos;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import org.springframework.lang.Nullable;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.broadleafcommerce.bulkoperations.exception.ProviderApiException;
+import com.broadleafcommerce.bulkoperations.exception.ProviderCircuitOpenException;
+import com.broadleafcommerce.bulkoperations.exception.ProviderRateLimitExceededException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import reactor.core.publisher.Mono;
+
+/**
+ * Retries failed requests to the provider services with exponential backoff and jitter, and
+ * fails fast with a {@link ProviderCircuitOpenException} while an endpoint keeps failing.
+ * <p>
+ * Idempotent {@link ProviderOperation operations} are retried after any of
+ * {@link ProviderResilienceProperties.Retry#getRetryableStatuses()} or when no response was
+ * received at all, other operations only after one of
+ * {@link ProviderResilienceProperties.Retry#getNonIdempotentRetryableStatuses()}. Retries draw
+ * from a budget per service that is replenished by the requests made to it, so that retries
+ * cannot multiply the load on a service that is down.
+ */
+public class ProviderResilience {
+
+    @Getter(AccessLevel.PROTECTED)
+    private final ProviderResilienceProperties properties;
+
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    private final Map<String, RetryBudget> retryBudgets = new ConcurrentHashMap<>();
+
+    public ProviderResilience(ProviderResilienceProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Executes a blocking request, retrying it and tracking its endpoint's circuit.
+     *
+     * @param operation the operation the request performs
+     * @param request the request to execute
+     * @param <T> the return type of the request operation
+     * @return the value generated by the supplier
+     */
+    public <T> T execute(ProviderOperation operation, Supplier<T> request) {
+        getRetryBudget(operation).deposit();
+
+        for (int attempt = 1;; attempt++) {
+            acquirePermission(operation);
+            try {
+                T result = request.get();
+                getCircuitBreaker(operation).recordSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                recordFailure(operation, e);
+                if (!shouldRetry(operation, e, attempt)) {
+                    throw e;
+                }
+                sleep(getBackoff(attempt));
+            }
+        }
+    }
+
+    /**
+     * Applies retries and circuit breaking to a non-blocking request. The request is subscribed
+     * to again for each attempt.
+     *
+     * @param operation the operation the request performs
+     * @param request the request to execute
+     * @param <T> the return type of the request operation
+     * @return the request with retries and circuit breaking applied
+     */
+    public <T> Mono<T> execute(ProviderOperation operation, Mono<T> request) {
+        return Mono.defer(() -> {
+            getRetryBudget(operation).deposit();
+            return attempt(operation, request, 1);
+        });
+    }
+
+    protected <T> Mono<T> attempt(ProviderOperation operation, Mono<T> request, int attempt) {
+        return Mono.defer(() -> {
+            acquirePermission(operation);
+            return request
+                    .doOnSuccess(result -> getCircuitBreaker(operation).recordSuccess())
+                    .onErrorResume(e -> {
+                        recordFailure(operation, e);
+                        if (!shouldRetry(operation, e, attempt)) {
+                            return Mono.error(e);
+                        }
+                        return Mono.delay(getBackoff(attempt))
+                                .then(attempt(operation, request, attempt + 1));
+                    });
+        });
+    }
+
+    protected void acquirePermission(ProviderOperation operation) {
+        if (properties.getCircuitBreaker().isEnabled()
+                && !getCircuitBreaker(operation).tryAcquire()) {
+            throw new ProviderCircuitOpenException(operation.getKey());
+        }
+    }
+
+    protected void recordFailure(ProviderOperation operation, Throwable throwable) {
+        if (isLocalRejection(throwable)) {
+            // the request never reached the service, so it says nothing about its health
+            getCircuitBreaker(operation).release();
+        } else if (isServiceFailure(throwable)) {
+            getCircuitBreaker(operation).recordFailure();
+        } else {
+            // the service responded as expected, even if the request itself was rejected
+            getCircuitBreaker(operation).recordSuccess();
+        }
+    }
+
+    /**
+     * Determines whether the failed attempt should be retried, withdrawing from the retry budget
+     * of the operation's service if so.
+     *
+     * @param operation the operation that failed
+     * @param throwable the failure
+     * @param attempt the number of the attempt that failed, starting at 1
+     * @return true if the request should be retried
+     */
+    protected boolean shouldRetry(ProviderOperation operation, Throwable throwable, int attempt) {
+        ProviderResilienceProperties.Retry retry = properties.getRetry();
+        if (!retry.isEnabled() || attempt >= retry.getMaxAttempts()) {
+            return false;
+        }
+
+        Integer status = getStatus(throwable);
+        boolean retryable;
+        if (status == null) {
+            retryable = operation.isIdempotent() && isConnectionFailure(throwable);
+        } else if (operation.isIdempotent()) {
+            retryable = retry.getRetryableStatuses().contains(status);
+        } else {
+            retryable = retry.getNonIdempotentRetryableStatuses().contains(status);
+        }
+
+        return retryable && getRetryBudget(operation).withdraw();
+    }
+
+    /**
+     * Calculates the backoff before the next attempt, growing exponentially with each attempt
+     * and randomized by {@link ProviderResilienceProperties.Retry#getJitter()}.
+     *
+     * @param attempt the number of the attempt that failed, starting at 1
+     * @return the backoff before the next attempt
+     */
+    protected Duration getBackoff(int attempt) {
+        ProviderResilienceProperties.Retry retry = properties.getRetry();
+        double backoffNanos = Math.min(retry.getMaxBackoff().toNanos(),
+                retry.getInitialBackoff().toNanos()
+                        * Math.pow(Math.max(1, retry.getMultiplier()), attempt - 1));
+        double jitter = Math.min(1, Math.max(0, retry.getJitter()));
+        double factor = 1 - jitter + jitter * ThreadLocalRandom.current().nextDouble();
+        return Duration.ofNanos((long) (backoffNanos * factor));
+    }
+
+    /**
+     * Whether the failure indicates the service is unavailable or overloaded, as opposed to the
+     * request being rejected.
+     *
+     * @param throwable the failure
+     * @return true if the failure counts towards opening the circuit
+     */
+    protected boolean isServiceFailure(Throwable throwable) {
+        Integer status = getStatus(throwable);
+        if (status == null) {
+            return isConnectionFailure(throwable);
+        }
+        return status >= 500 || status == 429;
+    }
+
+    /**
+     * Whether the request was rejected before it was sent, such as when the tenant's
+     * {@link ProviderRateLimiter rate limit} is exceeded. Such failures neither count towards
+     * opening the circuit nor close it, and are not retried.
+     *
+     * @param throwable the failure
+     * @return true if the request never reached the service
+     */
+    protected boolean isLocalRejection(Throwable throwable) {
+        return throwable instanceof ProviderRateLimitExceededException;
+    }
+
+    @Nullable
+    protected Integer getStatus(Throwable throwable) {
+        WebClientResponseException responseException = null;
+        if (throwable instanceof ProviderApiException) {
+            responseException = ((ProviderApiException) throwable).getReceivedException();
+        } else if (throwable instanceof WebClientResponseException) {
+            responseException = (WebClientResponseException) throwable;
+        }
+        return responseException == null ? null : responseException.getStatusCode().value();
+    }
+
+    protected boolean isConnectionFailure(Throwable throwable) {
+        return throwable instanceof WebClientRequestException;
+    }
+
+    protected CircuitBreaker getCircuitBreaker(ProviderOperation operation) {
+        return circuitBreakers.computeIfAbsent(operation.getKey(),
+                key -> new CircuitBreaker(properties.getCircuitBreaker()));
+    }
+
+    protected RetryBudget getRetryBudget(ProviderOperation operation) {
+        return retryBudgets.computeIfAbsent(operation.getService(),
+                service -> new RetryBudget(properties.getRetryBudget()));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(duration.toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off a provider request", e);
+        }
+    }
+
+    /**
+     * Opens after a number of consecutive failures, and lets a single trial request through once
+     * it has been open for the configured duration. The circuit closes again when the trial
+     * succeeds.
+     */
+    protected static class CircuitBreaker {
+
+        private final int failureThreshold;
+
+        private final long openNanos;
+
+        private int consecutiveFailures;
+
+        private boolean open;
+
+        private long openedAt;
+
+        private boolean trialInFlight;
+
+        private long trialStartedAt;
+
+        protected CircuitBreaker(ProviderResilienceProperties.CircuitBreaker properties) {
+            this.failureThreshold = Math.max(1, properties.getFailureThreshold());
+            this.openNanos = properties.getOpenDuration().toNanos();
+        }
+
+        protected synchronized boolean tryAcquire() {
+            if (!open) {
+                return true;
+            }
+
+            long now = System.nanoTime();
+            // a trial whose outcome was never recorded, e.g. because it was canceled, expires
+            if (now - openedAt < openNanos || (trialInFlight && now - trialStartedAt < openNanos)) {
+                return false;
+            }
+
+            trialInFlight = true;
+            trialStartedAt = now;
+            return true;
+        }
+
+        protected synchronized void recordSuccess() {
+            consecutiveFailures = 0;
+            open = false;
+            trialInFlight = false;
+        }
+
+        /**
+         * Gives up the trial request without an outcome, so that another request can be let
+         * through as the trial right away.
+         */
+        protected synchronized void release() {
+            trialInFlight = false;
+        }
+
+        protected synchronized void recordFailure() {
+            consecutiveFailures++;
+            if (trialInFlight || consecutiveFailures >= failureThreshold) {
+                open = true;
+                openedAt = System.nanoTime();
+                trialInFlight = false;
+            }
+        }
+    }
+
+    /**
+     * Earns a fraction of a retry for every request, up to a maximum, and spends one for every
+     * retry.
+     */
+    protected static class RetryBudget {
+
+        private final double ratio;
+
+        private final double maxRetries;
+
+        private double balance;
+
+        protected RetryBudget(ProviderResilienceProperties.RetryBudget properties) {
+            this.ratio = Math.max(0, properties.getRatio());
+            this.maxRetries = Math.max(0, properties.getMaxRetries());
+            this.balance = maxRetries;
+        }
+
+        protected synchronized void deposit() {
+            balance = Math.min(maxRetries, balance + ratio);
+        }
+
+        protected synchronized boolean withdraw() {
+            if (balance < 1) {
+                return false;
+            }
+            balance -= 1;
+            return true;
+        }
+    }
+}
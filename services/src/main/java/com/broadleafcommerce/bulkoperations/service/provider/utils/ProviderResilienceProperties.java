@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import lombok.Data;
+
+/**
+ * Settings for retrying failed requests to the provider services and for failing fast while a
+ * service is down.
+ */
+@Data
+@ConfigurationProperties("broadleaf.bulkoperations.provider.resilience")
+public class ProviderResilienceProperties {
+
+    private Retry retry = new Retry();
+
+    private RetryBudget retryBudget = new RetryBudget();
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    @Data
+    public static class Retry {
+
+        /**
+         * Whether failed requests are retried. Default is {@code false}.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The maximum number of attempts, including the first one. Default is 3.
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * The backoff before the first retry. Default is 200 milliseconds.
+         */
+        private Duration initialBackoff = Duration.ofMillis(200);
+
+        /**
+         * The longest backoff between attempts. Default is 5 seconds.
+         */
+        private Duration maxBackoff = Duration.ofSeconds(5);
+
+        /**
+         * The factor the backoff grows by after each attempt. Default is 2.
+         */
+        private double multiplier = 2;
+
+        /**
+         * The fraction of each backoff that is randomized, between 0 and 1, so that clients
+         * failing at the same time do not retry in lockstep. Default is 0.5.
+         */
+        private double jitter = 0.5;
+
+        /**
+         * The response statuses after which idempotent requests are retried. Requests failing
+         * without a response, for example because the connection was refused, are retried as
+         * well.
+         */
+        private Set<Integer> retryableStatuses = new HashSet<>(Set.of(429, 502, 503, 504));
+
+        /**
+         * The response statuses after which requests that are not idempotent are retried. These
+         * should only be statuses that guarantee the request was not processed. Default is 429
+         * and 503.
+         */
+        private Set<Integer> nonIdempotentRetryableStatuses = new HashSet<>(Set.of(429, 503));
+    }
+
+    @Data
+    public static class RetryBudget {
+
+        /**
+         * The number of retries each service earns per request made to it, which bounds the
+         * additional load retries can cause during an outage. Default is 0.2.
+         */
+        private double ratio = 0.2;
+
+        /**
+         * The most retries each service can have saved up. Default is 10.
+         */
+        private int maxRetries = 10;
+    }
+
+    @Data
+    public static class CircuitBreaker {
+
+        /**
+         * Whether requests to an endpoint fail fast after it fails repeatedly. Default is
+         * {@code false}.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The number of consecutive failures that opens the circuit of an endpoint. Default is 5.
+         */
+        private int failureThreshold = 5;
+
+        /**
+         * How long the circuit of an endpoint stays open before a trial request is let through.
+         * Default is 30 seconds.
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+}
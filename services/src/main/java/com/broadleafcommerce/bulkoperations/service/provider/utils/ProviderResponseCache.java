@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import reactor.core.publisher.Mono;
+
+/**
+ * A bounded cache of responses from a provider service that expire after
+ * {@link ProviderCacheProperties#getTimeToLive()}.
+ * <p>
+ * Loading is coalesced: concurrent requests for a key that is not cached share a single request
+ * to the service. Failed and empty responses are not cached. Lookups are counted by the
+ * {@link #REQUESTS_METRIC} counter, tagged by cache name and whether the lookup was a hit or a
+ * miss.
+ * <p>
+ * The shared request is not tied to any one subscriber: a subscriber that cancels only stops
+ * waiting for the response, while the other subscribers still receive it and it is still cached.
+ *
+ * @param <K> the type of the cache keys
+ * @param <V> the type of the cached responses
+ */
+public class ProviderResponseCache<K, V> {
+
+    public static final String REQUESTS_METRIC =
+            "broadleaf.bulkoperations.provider.cache.requests";
+
+    @Getter(AccessLevel.PROTECTED)
+    private final String name;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final ProviderCacheProperties properties;
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    public ProviderResponseCache(String name,
+            ProviderCacheProperties properties,
+            MeterRegistry meterRegistry) {
+        this.name = name;
+        this.properties = properties;
+        this.hitCounter = buildRequestsCounter(name, "hit", meterRegistry);
+        this.missCounter = buildRequestsCounter(name, "miss", meterRegistry);
+    }
+
+    /**
+     * Gets the cached response for the key, loading it if it is not cached or has expired.
+     *
+     * @param key the key of the response
+     * @param loader supplies the request that loads the response
+     * @return the cached or loaded response
+     */
+    public Mono<V> get(K key, Supplier<Mono<V>> loader) {
+        if (!properties.isEnabled()) {
+            return Mono.defer(loader);
+        }
+
+        return Mono.defer(() -> {
+            long now = System.nanoTime();
+            Entry<V> entry = entries.get(key);
+
+            if (entry == null || entry.isExpired(now)) {
+                Entry<V> created = new Entry<>(properties.getTimeToLive().toNanos());
+                entry = entries.compute(key,
+                        (k, existing) -> existing == null || existing.isExpired(now) ? created
+                                : existing);
+
+                if (entry == created) {
+                    missCounter.increment();
+                    load(key, created, loader);
+                    evictIfFull();
+                    return share(created.getValue());
+                }
+            }
+
+            hitCounter.increment();
+            return share(entry.getValue());
+        });
+    }
+
+    /**
+     * Removes the cached response for the key, so that the next request loads it again.
+     *
+     * @param key the key of the response
+     */
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes all cached responses.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    protected void load(K key, Entry<V> entry, Supplier<Mono<V>> loader) {
+        CompletableFuture<V> value = entry.getValue();
+        value.whenComplete((response, e) -> {
+            if (e != null || response == null) {
+                entries.remove(key, entry);
+            } else {
+                entry.loaded();
+            }
+        });
+
+        Mono.defer(loader).subscribe(value::complete,
+                value::completeExceptionally,
+                () -> value.complete(null));
+    }
+
+    /**
+     * Exposes the shared response without letting a cancelled subscriber cancel it. Unlike
+     * {@link Mono#fromCompletionStage}, cancelling the returned {@link Mono} leaves the future
+     * untouched.
+     */
+    protected Mono<V> share(CompletableFuture<V> value) {
+        return Mono.create(sink -> value.whenComplete((response, e) -> {
+            if (e != null) {
+                sink.error(e);
+            } else {
+                sink.success(response);
+            }
+        }));
+    }
+
+    protected void evictIfFull() {
+        if (entries.size() <= properties.getMaxSize()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+
+        while (entries.size() > properties.getMaxSize()) {
+            entries.entrySet().stream()
+                    .filter(entry -> entry.getValue().isLoaded())
+                    .min(Comparator.comparingLong(entry -> entry.getValue().getLoadedAt() - now))
+                    .ifPresentOrElse(entry -> entries.remove(entry.getKey(), entry.getValue()),
+                            () -> entries.keySet().stream().findAny().ifPresent(entries::remove));
+        }
+    }
+
+    private static Counter buildRequestsCounter(String name,
+            String result,
+            MeterRegistry meterRegistry) {
+        return Counter.builder(REQUESTS_METRIC)
+                .description("Lookups of cached provider responses")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static class Entry<V> {
+
+        @Getter
+        private final CompletableFuture<V> value = new CompletableFuture<>();
+
+        private final long timeToLiveNanos;
+
+        @Getter
+        private volatile boolean loaded;
+
+        @Getter
+        private volatile long loadedAt;
+
+        Entry(long timeToLiveNanos) {
+            this.timeToLiveNanos = timeToLiveNanos;
+        }
+
+        void loaded() {
+            loadedAt = System.nanoTime();
+            loaded = true;
+        }
+
+        boolean isExpired(long now) {
+            return loaded && now - loadedAt >= timeToLiveNanos;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Settings for obtaining the access tokens that requests to the provider services are authorized
+ * with.
+ */
+@Data
+@ConfigurationProperties("broadleaf.bulkoperations.provider.token")
+public class ProviderTokenProperties {
+
+    /**
+     * Whether requests are authorized by a reactive exchange filter that obtains tokens without
+     * blocking. When disabled, the servlet exchange filter is used, which blocks a worker thread
+     * while a token is requested. Default is {@code false}.
+     */
+    private boolean reactive = false;
+
+    /**
+     * How long a single attempt to get a token may take. Default is 10 seconds.
+     */
+    private Duration timeout = Duration.ofSeconds(10);
+
+    /**
+     * The maximum number of attempts to get a token, including the first one. Default is 3.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * The backoff before the first retry. Default is 200 milliseconds.
+     */
+    private Duration initialBackoff = Duration.ofMillis(200);
+
+    /**
+     * The longest backoff between attempts. Default is 2 seconds.
+     */
+    private Duration maxBackoff = Duration.ofSeconds(2);
+
+    /**
+     * Whether client credentials tokens are stored in the bulk operations data route, so that a
+     * token obtained by one node is used by the whole cluster. Requires the JPA provider and
+     * applies to both the servlet and the {@link #reactive} exchange filter. Default is
+     * {@code false}.
+     */
+    private boolean shared = false;
+
+    /**
+     * How long a token read from the data route is reused locally before it is read again.
+     * Default is 30 seconds.
+     */
+    private Duration sharedCacheTimeToLive = Duration.ofSeconds(30);
+
+    /**
+     * The Base64 encoded 128, 192 or 256 bit AES key the shared tokens are encrypted with before
+     * they are stored. Sharing tokens requires either this or {@link #sharedPlaintext}. Default
+     * is none.
+     */
+    private String sharedEncryptionKey;
+
+    /**
+     * Whether shared tokens may be stored unencrypted when no {@link #sharedEncryptionKey} is
+     * set. Access to the table then has to be restricted like any other credential store. Default
+     * is {@code false}.
+     */
+    private boolean sharedPlaintext = false;
+}
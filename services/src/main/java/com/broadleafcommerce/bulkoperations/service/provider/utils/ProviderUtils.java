@@ -29,6 +29,7 @@ import org.springframework.lang.Nullable;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriUtils;
 
 import com.broadleafcommerce.bulkoperations.exception.ProviderApiException;
 import com.broadleafcommerce.common.error.ApiError;
@@ -40,24 +41,51 @@ import com.broadleafcommerce.data.tracking.core.preview.context.DefaultPreviewTo
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
 
 import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
 
-@RequiredArgsConstructor
 public class ProviderUtils {
 
     /**
      * The {@link ApiError#getType()} that indicates entity is not found.
      */
     public final static String ENTITY_NOT_FOUND = "ENTITY_NOT_FOUND";
+
     @Getter(AccessLevel.PROTECTED)
     private final ObjectMapper objectMapper;
 
+    @Getter(AccessLevel.PROTECTED)
+    @Nullable
+    private final ProviderRateLimiter rateLimiter;
+
+    @Getter(AccessLevel.PROTECTED)
+    @Nullable
+    private final ProviderResilience resilience;
+
+    public ProviderUtils(ObjectMapper objectMapper) {
+        this(objectMapper, null, null);
+    }
+
+    public ProviderUtils(ObjectMapper objectMapper, @Nullable ProviderRateLimiter rateLimiter) {
+        this(objectMapper, rateLimiter, null);
+    }
+
+    public ProviderUtils(ObjectMapper objectMapper,
+            @Nullable ProviderRateLimiter rateLimiter,
+            @Nullable ProviderResilience resilience) {
+        this.objectMapper = objectMapper;
+        this.rateLimiter = rateLimiter;
+        this.resilience = resilience;
+    }
+
     /**
      * Builds the headers to be passed along with the request to the provider.
      *
@@ -114,6 +142,65 @@ public class ProviderUtils {
         }
     }
 
+    /**
+     * Executes a request for the given operation with default Web Client error handling. Each
+     * attempt waits for the {@link ProviderRateLimiter rate limit} of the tenant in the context
+     * first, and failed attempts are retried according to the {@link ProviderResilience} policy.
+     *
+     * @param operation the operation the request performs
+     * @param contextInfo the context the request is made in
+     * @param request the request to execute
+     * @param <T> the return type of the request operation
+     * @return the value generated by the supplier
+     */
+    public <T> T executeRequest(ProviderOperation operation,
+            @Nullable ContextInfo contextInfo,
+            Supplier<T> request) {
+        Supplier<T> attempt = () -> {
+            if (rateLimiter != null) {
+                rateLimiter.acquire(operation.getService(), contextInfo);
+            }
+            return executeRequest(request);
+        };
+        return resilience == null ? attempt.get() : resilience.execute(operation, attempt);
+    }
+
+    /**
+     * Applies the same error handling as {@link #executeRequest(Supplier)} to a non-blocking
+     * request for the given operation. Each attempt is delayed until the
+     * {@link ProviderRateLimiter rate limit} of the tenant in the context allows it, and failed
+     * attempts are retried according to the {@link ProviderResilience} policy.
+     *
+     * @param operation the operation the request performs
+     * @param contextInfo the context the request is made in
+     * @param request the request to execute
+     * @param <T> the return type of the request operation
+     * @return the request with rate limiting, retries and default Web Client error handling
+     *         applied
+     */
+    public <T> Mono<T> executeReactiveRequest(ProviderOperation operation,
+            @Nullable ContextInfo contextInfo,
+            Mono<T> request) {
+        Mono<T> attempt = executeReactiveRequest(rateLimiter == null ? request
+                : rateLimiter.acquire(operation.getService(), contextInfo, request));
+        return resilience == null ? attempt : resilience.execute(operation, attempt);
+    }
+
+    /**
+     * Applies the same error handling as {@link #executeRequest(Supplier)} to a non-blocking
+     * request, translating the errors signalled by the request instead of thrown ones.
+     *
+     * @param request the request to execute
+     * @param <T> the return type of the request operation
+     * @return the request with default Web Client error handling applied
+     */
+    public <T> Mono<T> executeReactiveRequest(Mono<T> request) {
+        return request
+                .onErrorMap(WebClientResponseException.NotFound.class,
+                        this::buildNotFoundException)
+                .onErrorMap(WebClientResponseException.class, ProviderApiException::new);
+    }
+
     /**
      * Builds a not found exception that correlates to the given
      * {@link WebClientResponseException.NotFound} exception.
@@ -200,6 +287,46 @@ public class ProviderUtils {
         return params;
     }
 
+    /**
+     * Appends query parameters to a url that was built beforehand, so that the parts of the url
+     * that do not change between requests are not parsed and built again for every request.
+     * <p>
+     * Since the provider {@link org.springframework.web.reactive.function.client.WebClient} does
+     * not encode urls, every parameter name and value is encoded here with
+     * {@link UriUtils#encode(String, java.nio.charset.Charset)}. This treats them as opaque values
+     * and also escapes characters that are legal in a query but meaningful to it, such as
+     * {@code +}, {@code &} and {@code =}, so that values like cursors reach the provider unchanged.
+     *
+     * @param url the already encoded url to append the parameters to, which may have a query
+     * @param params the query parameters to append, not encoded
+     * @return the url with the encoded parameters appended
+     */
+    public String appendQueryParams(String url, MultiValueMap<String, String> params) {
+        if (params.isEmpty()) {
+            return url;
+        }
+
+        StringBuilder builder = new StringBuilder(url.length() + params.size() * 16).append(url);
+        char separator = url.indexOf('?') < 0 ? '?' : '&';
+        for (Map.Entry<String, List<String>> param : params.entrySet()) {
+            String name = UriUtils.encode(param.getKey(), StandardCharsets.UTF_8);
+            List<String> values = param.getValue();
+            if (values == null || values.isEmpty()) {
+                builder.append(separator).append(name);
+                separator = '&';
+                continue;
+            }
+            for (String value : values) {
+                builder.append(separator).append(name);
+                if (value != null) {
+                    builder.append('=').append(UriUtils.encode(value, StandardCharsets.UTF_8));
+                }
+                separator = '&';
+            }
+        }
+        return builder.toString();
+    }
+
     /**
      * Converts a sort order into a query parameter value (e.g. name,asc).
      *
@@ -26,15 +26,18 @@ import org.springframework.web.bind.annotation.RequestBody;
 
 import com.broadleafcommerce.bulk.v2.domain.BulkOperationRequest;
 import com.broadleafcommerce.bulk.v2.domain.BulkOperationResponse;
+import com.broadleafcommerce.bulkoperations.service.BulkOperationsMetrics;
 import com.broadleafcommerce.bulkoperations.service.BulkOperationsService;
 import com.broadleafcommerce.bulkoperations.service.handler.BulkOperationHandler;
+import com.broadleafcommerce.bulkoperations.service.handler.BulkOperationHandlerRegistry;
 import com.broadleafcommerce.bulkoperations.web.exception.BulkOperationHandlerNotFoundException;
 import com.broadleafcommerce.data.tracking.core.context.ContextInfo;
 import com.broadleafcommerce.data.tracking.core.context.ContextOperation;
 import com.broadleafcommerce.data.tracking.core.policy.Policy;
 import com.broadleafcommerce.data.tracking.core.type.OperationType;
 
-import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.AccessLevel;
@@ -54,20 +57,48 @@ public class BulkOperationsEndpoint {
     private final BulkOperationsService bulkOperationsService;
 
     @Getter(AccessLevel.PROTECTED)
-    private final List<BulkOperationHandler> bulkOperationHandlers;
+    private final BulkOperationHandlerRegistry bulkOperationHandlerRegistry;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final BulkOperationsMetrics bulkOperationsMetrics;
 
     @FrameworkPostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
     @Policy(permissionRoots = "BULK_OPERATION")
     public BulkOperationResponse createBulkOperation(HttpServletRequest request,
             @ContextOperation(value = OperationType.CREATE) ContextInfo context,
             @RequestBody BulkOperationRequest bulkOperationRequest) {
+        AtomicReference<BulkOperationRequest> resolvedRequest = new AtomicReference<>();
+        return bulkOperationsMetrics.recordResolved(
+                BulkOperationsMetrics.CREATE_BULK_OPERATION_STAGE,
+                resolvedRequest::get,
+                context,
+                () -> {
+                    BulkOperationHandler bulkOperationHandler =
+                            getBulkOperationHandler(bulkOperationRequest, context);
+                    resolvedRequest.set(bulkOperationRequest);
+                    return bulkOperationHandler.handle(bulkOperationRequest, context);
+                });
+    }
+
+    /**
+     * Validates the bulk operation request and finds the handler that supports its operation and
+     * entity type.
+     *
+     * @param bulkOperationRequest the request to create a bulk operation
+     * @param context context information surrounding sandboxing/multitenant state
+     * @return the handler of the bulk operation
+     * @throws BulkOperationHandlerNotFoundException if no handler supports the request
+     */
+    protected BulkOperationHandler getBulkOperationHandler(
+            BulkOperationRequest bulkOperationRequest,
+            ContextInfo context) {
         bulkOperationsService.validateBulkOperationRequest(bulkOperationRequest, context);
 
-        for (BulkOperationHandler bulkOperationHandler : bulkOperationHandlers) {
-            if (bulkOperationHandler.canHandle(bulkOperationRequest.getOperationType(),
-                    bulkOperationRequest.getEntityType())) {
-                return bulkOperationHandler.handle(bulkOperationRequest, context);
-            }
+        Optional<BulkOperationHandler> bulkOperationHandler =
+                bulkOperationHandlerRegistry.getHandler(bulkOperationRequest.getOperationType(),
+                        bulkOperationRequest.getEntityType());
+        if (bulkOperationHandler.isPresent()) {
+            return bulkOperationHandler.get();
         }
 
         log.warn("No handler was found for operation type {} and entity type {}",
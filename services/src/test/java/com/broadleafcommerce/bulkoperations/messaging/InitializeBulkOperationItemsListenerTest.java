@@ -0,0 +1,656 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.lang.Nullable;
+
+import com.broadleafcommerce.bulk.v2.domain.BulkOperationRequest;
+import com.broadleafcommerce.bulk.v2.domain.BulkOperationResponse;
+import com.broadleafcommerce.bulk.v2.domain.InitializeItemResponse;
+import com.broadleafcommerce.bulk.v2.domain.SupportedBulkOperation;
+import com.broadleafcommerce.bulk.v2.messaging.BulkOpsInitializeItemsRequest;
+import com.broadleafcommerce.bulkoperations.domain.BulkOperationStatus;
+import com.broadleafcommerce.bulkoperations.domain.CatalogItem;
+import com.broadleafcommerce.bulkoperations.domain.InitializeItemsCheckpoint;
+import com.broadleafcommerce.bulkoperations.domain.InitializeItemsShard;
+import com.broadleafcommerce.bulkoperations.domain.SearchResponse;
+import com.broadleafcommerce.bulkoperations.domain.types.BulkOperationSubstatusType;
+import com.broadleafcommerce.bulkoperations.service.BulkOperationsMetrics;
+import com.broadleafcommerce.bulkoperations.service.InMemoryInitializeItemsShardService;
+import com.broadleafcommerce.bulkoperations.service.InitializeItemsCheckpointService;
+import com.broadleafcommerce.bulkoperations.service.provider.CatalogProvider;
+import com.broadleafcommerce.bulkoperations.service.provider.ReactiveCatalogProvider;
+import com.broadleafcommerce.bulkoperations.service.provider.ReactiveSearchProvider;
+import com.broadleafcommerce.bulkoperations.service.provider.SearchProvider;
+import com.broadleafcommerce.data.tracking.core.context.ContextInfo;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class InitializeBulkOperationItemsListenerTest {
+
+    private static final String BULK_OPERATION_ID = "bulk-op";
+
+    private final InitializeBulkOperationItemsProperties properties =
+            new InitializeBulkOperationItemsProperties();
+
+    private final StubSearchProvider searchProvider = new StubSearchProvider();
+
+    private final StubCatalogProvider catalogProvider = new StubCatalogProvider();
+
+    private final StubCheckpointService checkpointService = new StubCheckpointService();
+
+    private final InMemoryInitializeItemsShardService shardService =
+            new InMemoryInitializeItemsShardService();
+
+    private ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private final List<Integer> initializedPages = new CopyOnWriteArrayList<>();
+
+    private final List<Thread> initializingThreads = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger processRequests = new AtomicInteger();
+
+    private final List<InitializeItemsShard> sentShards = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void failingCheckpointDoesNotFailInitialization() {
+        searchProvider.totalItems = 25;
+        properties.setBatchSize(10);
+        checkpointService.failing = true;
+
+        TestListener listener = listener();
+        InitializeItemsProgress progress = new InitializeItemsProgress(BULK_OPERATION_ID, 10);
+        BulkOpsInitializeItemsRequest request = request();
+        listener.initializeItemsSequentially(request, listener.prepareOperation(request),
+                progress);
+
+        assertThat(initializedPages).containsExactly(0, 1, 2);
+        assertThat(progress.getTotalItemRecords()).isEqualTo(25);
+    }
+
+    @Test
+    void checkpointIsSavedAfterEachPage() {
+        searchProvider.totalItems = 25;
+        properties.setBatchSize(10);
+
+        TestListener listener = listener();
+        BulkOpsInitializeItemsRequest request = request();
+        listener.initializeItemsSequentially(request, listener.prepareOperation(request),
+                new InitializeItemsProgress(BULK_OPERATION_ID, 10));
+
+        assertThat(checkpointService.saved)
+                .extracting(InitializeItemsCheckpoint::getNextOffset)
+                .containsExactly(10L, 20L, 30L);
+    }
+
+    @Test
+    void searchIsPreparedOncePerOperation() {
+        searchProvider.totalItems = 25;
+        properties.setBatchSize(10);
+
+        listener().processMessage(MessageBuilder.withPayload(request()).build());
+
+        assertThat(initializedPages).containsExactly(0, 1, 2);
+        assertThat(searchProvider.preparedSearches).hasValue(1);
+    }
+
+    @Test
+    void messageIsProcessedOnCallingThreadByDefault() {
+        searchProvider.totalItems = 5;
+
+        listener().dispatchMessage(MessageBuilder.withPayload(request()).build());
+
+        assertThat(initializingThreads).containsOnly(Thread.currentThread());
+        assertThat(processRequests).hasValue(1);
+    }
+
+    @Test
+    void messageIsProcessedOnOwnThreadWithVirtualThreads() {
+        assumeTrue(VirtualThreads.isSupported());
+        executor.shutdown();
+        executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        properties.setVirtualThreads(true);
+        searchProvider.totalItems = 5;
+
+        listener().dispatchMessage(MessageBuilder.withPayload(request()).build());
+
+        assertThat(initializingThreads).hasSize(1).doesNotContain(Thread.currentThread());
+        assertThat(processRequests).hasValue(1);
+    }
+
+    @Test
+    void pipelinedStopsPrefetchingAtLastPageOfKnownTotal() {
+        searchProvider.totalItems = 25;
+        searchProvider.reportedTotal = 25L;
+        properties.setBatchSize(10);
+        properties.setPrefetchDepth(3);
+        properties.setMode(InitializeBulkOperationItemsProperties.Mode.PIPELINED);
+
+        listener().processMessage(MessageBuilder.withPayload(request()).build());
+
+        assertThat(initializedPages).containsExactly(0, 1, 2);
+        assertThat(searchProvider.searchedPages).containsExactlyInAnyOrder(0, 1, 2);
+        assertThat(catalogProvider.totalRecordCounts).containsExactly(25L);
+        assertThat(processRequests).hasValue(1);
+    }
+
+    @Test
+    void pipelinedStopsWithoutTotalAtPartialPage() {
+        searchProvider.totalItems = 25;
+        properties.setBatchSize(10);
+        properties.setPrefetchDepth(3);
+        properties.setMode(InitializeBulkOperationItemsProperties.Mode.PIPELINED);
+
+        listener().processMessage(MessageBuilder.withPayload(request()).build());
+
+        assertThat(initializedPages).containsExactly(0, 1, 2);
+        assertThat(catalogProvider.totalRecordCounts).containsExactly(25L);
+        assertThat(processRequests).hasValue(1);
+    }
+
+    @Test
+    void pipelinedContinuesPastStaleTotalUntilPartialPage() {
+        searchProvider.totalItems = 35;
+        searchProvider.reportedTotal = 20L;
+        properties.setBatchSize(10);
+        properties.setPrefetchDepth(3);
+        properties.setMode(InitializeBulkOperationItemsProperties.Mode.PIPELINED);
+
+        listener().processMessage(MessageBuilder.withPayload(request()).build());
+
+        assertThat(initializedPages).containsExactly(0, 1, 2, 3);
+        assertThat(searchProvider.searchedPages).containsExactlyInAnyOrder(0, 1, 2, 3);
+        assertThat(catalogProvider.totalRecordCounts).containsExactly(35L);
+    }
+
+    @Test
+    void pipelinedSearchFailureFailsInitialization() {
+        searchProvider.totalItems = 45;
+        searchProvider.failingPage = 1;
+        properties.setBatchSize(10);
+        properties.setPrefetchDepth(2);
+        properties.setMode(InitializeBulkOperationItemsProperties.Mode.PIPELINED);
+
+        assertThatThrownBy(() -> listener()
+                .processMessage(MessageBuilder.withPayload(request()).build()))
+                        .isInstanceOf(IllegalStateException.class)
+                        .hasMessage("Search of page 1 failed");
+
+        assertThat(initializedPages).containsExactly(0);
+        assertThat(catalogProvider.totalRecordCounts).isEmpty();
+        assertThat(processRequests).hasValue(0);
+        assertThat(checkpointService.deleted).isEmpty();
+    }
+
+    @Test
+    void pipelinedStopsOnceCanceled() {
+        searchProvider.totalItems = 45;
+        properties.setBatchSize(10);
+        properties.setMode(InitializeBulkOperationItemsProperties.Mode.PIPELINED);
+        enableCancellationCheckEveryPage();
+        catalogProvider.canceled = true;
+
+        listener().processMessage(MessageBuilder.withPayload(request()).build());
+
+        assertThat(initializedPages).containsExactly(0);
+        assertThat(processRequests).hasValue(0);
+        assertThat(checkpointService.deleted).containsExactly(BULK_OPERATION_ID);
+    }
+
+    @Test
+    void parallelInitializesEveryPageOfKnownTotal() {
+        searchProvider.totalItems = 45;
+        searchProvider.reportedTotal = 45L;
+        properties.setBatchSize(10);
+        properties.setMaxConcurrency(2);
+        properties.setMode(InitializeBulkOperationItemsProperties.Mode.PARALLEL);
+
+        listener().processMessage(MessageBuilder.withPayload(request()).build());
+
+        assertThat(initializedPages).containsExactlyInAnyOrder(0, 1, 2, 3, 4);
+        assertThat(searchProvider.searchedPages).containsExactlyInAnyOrder(0, 1, 2, 3, 4);
+        assertThat(catalogProvider.totalRecordCounts).containsExactly(45L);
+        assertThat(processRequests).hasValue(1);
+    }
+
+    @Test
+    void parallelWalksPagesPastStaleTotalSequentially() {
+        searchProvider.totalItems = 35;
+        searchProvider.reportedTotal = 20L;
+        properties.setBatchSize(10);
+        properties.setMode(InitializeBulkOperationItemsProperties.Mode.PARALLEL);
+
+        listener().processMessage(MessageBuilder.withPayload(request()).build());
+
+        assertThat(initializedPages).containsExactlyInAnyOrder(0, 1, 2, 3);
+        assertThat(catalogProvider.totalRecordCounts).containsExactly(35L);
+        assertThat(processRequests).hasValue(1);
+    }
+
+    @Test
+    void parallelSearchFailureStopsStartingPages() {
+        searchProvider.totalItems = 45;
+        searchProvider.reportedTotal = 45L;
+        searchProvider.failingPage = 1;
+        properties.setBatchSize(10);
+        properties.setMaxConcurrency(1);
+        properties.setMode(InitializeBulkOperationItemsProperties.Mode.PARALLEL);
+
+        assertThatThrownBy(() -> listener()
+                .processMessage(MessageBuilder.withPayload(request()).build()))
+                        .isInstanceOf(IllegalStateException.class)
+                        .hasMessage("Search of page 1 failed");
+
+        assertThat(initializedPages).containsExactly(0);
+        assertThat(searchProvider.searchedPages).containsExactly(0, 1);
+        assertThat(processRequests).hasValue(0);
+    }
+
+    @Test
+    void parallelStopsOnceCanceled() {
+        searchProvider.totalItems = 45;
+        searchProvider.reportedTotal = 45L;
+        properties.setBatchSize(10);
+        properties.setMaxConcurrency(1);
+        properties.setMode(InitializeBulkOperationItemsProperties.Mode.PARALLEL);
+        enableCancellationCheckEveryPage();
+        catalogProvider.canceled = true;
+
+        listener().processMessage(MessageBuilder.withPayload(request()).build());
+
+        assertThat(initializedPages).containsExactly(0);
+        assertThat(processRequests).hasValue(0);
+        assertThat(checkpointService.deleted).containsExactly(BULK_OPERATION_ID);
+    }
+
+    @Test
+    void reactiveStopsAtPartialPage() {
+        searchProvider.totalItems = 25;
+        properties.setBatchSize(10);
+        properties.setMode(InitializeBulkOperationItemsProperties.Mode.REACTIVE);
+
+        listener().processMessage(MessageBuilder.withPayload(request()).build());
+
+        assertThat(initializedPages).containsExactly(0, 1, 2);
+        assertThat(searchProvider.searchedPages).containsExactly(0, 1, 2);
+        assertThat(checkpointService.saved)
+                .extracting(InitializeItemsCheckpoint::getNextOffset)
+                .containsExactly(10L, 20L, 30L);
+        assertThat(catalogProvider.totalRecordCounts).containsExactly(25L);
+        assertThat(processRequests).hasValue(1);
+    }
+
+    @Test
+    void reactiveSearchFailureFailsInitialization() {
+        searchProvider.totalItems = 45;
+        searchProvider.failingPage = 1;
+        properties.setBatchSize(10);
+        properties.setMode(InitializeBulkOperationItemsProperties.Mode.REACTIVE);
+
+        assertThatThrownBy(() -> listener()
+                .processMessage(MessageBuilder.withPayload(request()).build()))
+                        .isInstanceOf(IllegalStateException.class)
+                        .hasMessage("Search of page 1 failed");
+
+        assertThat(initializedPages).containsExactly(0);
+        assertThat(processRequests).hasValue(0);
+    }
+
+    @Test
+    void reactiveStopsOnceCanceled() {
+        searchProvider.totalItems = 45;
+        properties.setBatchSize(10);
+        properties.setMode(InitializeBulkOperationItemsProperties.Mode.REACTIVE);
+        enableCancellationCheckEveryPage();
+        catalogProvider.canceled = true;
+
+        listener().processMessage(MessageBuilder.withPayload(request()).build());
+
+        assertThat(initializedPages).containsExactly(0);
+        assertThat(processRequests).hasValue(0);
+        assertThat(checkpointService.deleted).containsExactly(BULK_OPERATION_ID);
+    }
+
+    @Test
+    void lastShardToCompleteFinishesBulkOperation() {
+        searchProvider.totalItems = 25;
+        searchProvider.reportedTotal = 25L;
+        properties.setBatchSize(10);
+        properties.setPagesPerShard(1);
+        properties.setMode(InitializeBulkOperationItemsProperties.Mode.SHARDED);
+        TestListener listener = listener();
+
+        listener.processMessage(MessageBuilder.withPayload(request()).build());
+
+        assertThat(initializedPages).containsExactly(0);
+        assertThat(sentShards).extracting(InitializeItemsShard::getShardIndex)
+                .containsExactly(1, 2);
+        assertThat(processRequests).hasValue(0);
+
+        listener.processShard(request(), sentShards.get(0));
+
+        assertThat(initializedPages).containsExactly(0, 1);
+        assertThat(processRequests).hasValue(0);
+
+        listener.processShard(request(), sentShards.get(1));
+
+        assertThat(initializedPages).containsExactly(0, 1, 2);
+        assertThat(catalogProvider.totalRecordCounts).containsExactly(25L);
+        assertThat(processRequests).hasValue(1);
+        assertThat(shardService.getShard(BULK_OPERATION_ID, 0)).isEmpty();
+    }
+
+    @Test
+    void canceledShardDeletesShards() {
+        searchProvider.totalItems = 45;
+        searchProvider.reportedTotal = 45L;
+        properties.setBatchSize(10);
+        properties.setPagesPerShard(2);
+        properties.setMode(InitializeBulkOperationItemsProperties.Mode.SHARDED);
+        TestListener listener = listener();
+        listener.processMessage(MessageBuilder.withPayload(request()).build());
+        enableCancellationCheckEveryPage();
+        catalogProvider.canceled = true;
+
+        listener.processShard(request(), sentShards.get(0));
+
+        assertThat(initializedPages).containsExactly(0, 1);
+        assertThat(processRequests).hasValue(0);
+        assertThat(shardService.getShard(BULK_OPERATION_ID, 0)).isEmpty();
+    }
+
+    private void enableCancellationCheckEveryPage() {
+        properties.getCancellationCheck().setEnabled(true);
+        properties.getCancellationCheck().setPageInterval(1);
+    }
+
+    private TestListener listener() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new TestListener(properties,
+                catalogProvider,
+                searchProvider,
+                executor,
+                checkpointService,
+                new AdaptiveBatchSizeController(properties, meterRegistry),
+                shardService,
+                new BulkOperationsMetrics(meterRegistry));
+    }
+
+    private static BulkOpsInitializeItemsRequest request() {
+        BulkOperationResponse response = new BulkOperationResponse();
+        response.setId(BULK_OPERATION_ID);
+        return new BulkOpsInitializeItemsRequest(null, response, null);
+    }
+
+    private class TestListener extends InitializeBulkOperationItemsListener<TestItem> {
+
+        TestListener(InitializeBulkOperationItemsProperties properties,
+                CatalogProvider<TestItem> catalogProvider,
+                SearchProvider<TestItem> searchProvider,
+                ExecutorService executor,
+                InitializeItemsCheckpointService checkpointService,
+                AdaptiveBatchSizeController batchSizeController,
+                InMemoryInitializeItemsShardService shardService,
+                BulkOperationsMetrics metrics) {
+            super(properties, catalogProvider, searchProvider, null, null, null, null, null,
+                    executor, checkpointService, batchSizeController, null, shardService,
+                    metrics);
+        }
+
+        @Override
+        protected long initializePage(BulkOpsInitializeItemsRequest request,
+                PreparedOperation operation,
+                SearchResponse<TestItem> searchResponse,
+                Pageable pageable) {
+            initializedPages.add(pageable.getPageNumber());
+            initializingThreads.add(Thread.currentThread());
+            return searchResponse.getContent().size();
+        }
+
+        @Override
+        protected Mono<Long> initializePageReactive(BulkOpsInitializeItemsRequest request,
+                PreparedOperation operation,
+                SearchResponse<TestItem> searchResponse,
+                Pageable pageable) {
+            return Mono.fromCallable(
+                    () -> initializePage(request, operation, searchResponse, pageable));
+        }
+
+        @Override
+        protected void sendProcessBulkOperationRequest(BulkOpsInitializeItemsRequest request) {
+            processRequests.incrementAndGet();
+        }
+
+        @Override
+        protected void sendShard(BulkOpsInitializeItemsRequest request,
+                InitializeItemsShard shard) {
+            sentShards.add(shard);
+        }
+    }
+
+    private static class StubSearchProvider
+            implements SearchProvider<TestItem>, ReactiveSearchProvider<TestItem> {
+
+        private volatile long totalItems;
+
+        private volatile Long reportedTotal;
+
+        private volatile int failingPage = -1;
+
+        private final AtomicInteger preparedSearches = new AtomicInteger();
+
+        private final List<Integer> searchedPages = new CopyOnWriteArrayList<>();
+
+        @Override
+        public PreparedSearch<TestItem> prepareSearch(BulkOperationRequest request,
+                BulkOperationResponse bulkOperationResponse,
+                ContextInfo contextInfo) {
+            preparedSearches.incrementAndGet();
+            return SearchProvider.super.prepareSearch(request, bulkOperationResponse,
+                    contextInfo);
+        }
+
+        @Override
+        public SearchResponse<TestItem> getSearchResults(BulkOperationRequest request,
+                BulkOperationResponse bulkOperationResponse,
+                Pageable pageable,
+                ContextInfo contextInfo) {
+            searchedPages.add(pageable.getPageNumber());
+            if (pageable.getPageNumber() == failingPage) {
+                throw new IllegalStateException(
+                        "Search of page " + pageable.getPageNumber() + " failed");
+            }
+
+            SearchResponse<TestItem> response = new SearchResponse<>();
+            response.setContent(LongStream
+                    .range(pageable.getOffset(),
+                            Math.min(totalItems, pageable.getOffset() + pageable.getPageSize()))
+                    .mapToObj(index -> new TestItem("item-" + index))
+                    .collect(Collectors.toList()));
+            return response;
+        }
+
+        @Override
+        public Mono<SearchResponse<TestItem>> getSearchResultsReactive(
+                BulkOperationRequest request,
+                BulkOperationResponse bulkOperationResponse,
+                Pageable pageable,
+                @Nullable String cursor,
+                ContextInfo contextInfo) {
+            return Mono.fromCallable(() -> getSearchResults(request, bulkOperationResponse,
+                    pageable, contextInfo));
+        }
+
+        @Override
+        public Long getTotalResults(SearchResponse<TestItem> searchResponse) {
+            return reportedTotal;
+        }
+    }
+
+    private static class StubCatalogProvider
+            implements CatalogProvider<TestItem>, ReactiveCatalogProvider<TestItem> {
+
+        private final List<Long> totalRecordCounts = new CopyOnWriteArrayList<>();
+
+        private volatile boolean canceled;
+
+        @Override
+        public BulkOperationResponse createBulkOperation(BulkOperationRequest bulkOperationRequest,
+                ContextInfo contextInfo) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<SupportedBulkOperation> getSupportedBulkOperations(String operationType,
+                @Nullable String entityType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InitializeItemResponse initializeItems(SearchResponse<TestItem> catalogItems,
+                BulkOperationRequest bulkOperationRequest,
+                BulkOperationResponse bulkOperationResponse,
+                Pageable pageable,
+                ContextInfo contextInfo) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public BulkOperationResponse updateBulkOperationTotalRecordCount(long totalRecordCount,
+                BulkOperationResponse bulkOperationResponse,
+                ContextInfo contextInfo) {
+            totalRecordCounts.add(totalRecordCount);
+            return bulkOperationResponse;
+        }
+
+        @Override
+        public BulkOperationStatus getBulkOperationStatus(
+                BulkOperationResponse bulkOperationResponse,
+                ContextInfo contextInfo) {
+            BulkOperationStatus status = new BulkOperationStatus();
+            status.setId(bulkOperationResponse.getId());
+            status.setSubstatus(canceled ? BulkOperationSubstatusType.CANCELED.name()
+                    : BulkOperationSubstatusType.INITIALIZING_ITEMS.name());
+            return status;
+        }
+
+        @Override
+        public Mono<BulkOperationResponse> createBulkOperationReactive(
+                BulkOperationRequest bulkOperationRequest,
+                ContextInfo contextInfo) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Mono<List<SupportedBulkOperation>> getSupportedBulkOperationsReactive(
+                String operationType,
+                @Nullable String entityType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Mono<InitializeItemResponse> initializeItemsReactive(
+                SearchResponse<TestItem> catalogItems,
+                BulkOperationRequest bulkOperationRequest,
+                BulkOperationResponse bulkOperationResponse,
+                Pageable pageable,
+                ContextInfo contextInfo) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Mono<BulkOperationResponse> updateBulkOperationTotalRecordCountReactive(
+                long totalRecordCount,
+                BulkOperationResponse bulkOperationResponse,
+                ContextInfo contextInfo) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class StubCheckpointService implements InitializeItemsCheckpointService {
+
+        private final List<InitializeItemsCheckpoint> saved = new CopyOnWriteArrayList<>();
+
+        private final List<String> deleted = new CopyOnWriteArrayList<>();
+
+        private volatile boolean failing;
+
+        @Override
+        public Optional<InitializeItemsCheckpoint> readCheckpoint(String bulkOperationId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void saveCheckpoint(InitializeItemsCheckpoint checkpoint) {
+            if (failing) {
+                throw new IllegalStateException("Checkpoint store unavailable");
+            }
+            saved.add(checkpoint);
+        }
+
+        @Override
+        public void deleteCheckpoint(String bulkOperationId) {
+            deleted.add(bulkOperationId);
+        }
+    }
+
+    private static class TestItem implements CatalogItem {
+
+        private final String id;
+
+        private final Map<String, Object> additionalAttributes = new HashMap<>();
+
+        TestItem(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public Map<String, Object> getAdditionalAttributes() {
+            return additionalAttributes;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.broadleafcommerce.bulkoperations.domain.InitializeItemsCheckpoint;
+import com.broadleafcommerce.data.tracking.core.filtering.DefaultPageRequest;
+
+class InitializeItemsProgressTest {
+
+    @Test
+    void progressOnlyAdvancesOverContiguousPages() {
+        InitializeItemsProgress progress = new InitializeItemsProgress("bulk-op", 10);
+
+        assertThat(progress.pageInitialized(new DefaultPageRequest(2, 10), 10, null)).isNull();
+        assertThat(progress.pageInitialized(new DefaultPageRequest(1, 10), 9, null)).isNull();
+        assertThat(progress.getNextOffset()).isZero();
+        assertThat(progress.getTotalItemRecords()).isZero();
+
+        InitializeItemsCheckpoint checkpoint =
+                progress.pageInitialized(new DefaultPageRequest(0, 10), 8, null);
+
+        assertThat(checkpoint).isNotNull();
+        assertThat(checkpoint.getNextOffset()).isEqualTo(30);
+        assertThat(checkpoint.getTotalItemRecords()).isEqualTo(27);
+        assertThat(progress.getNextPageable().getPageNumber()).isEqualTo(3);
+    }
+
+    @Test
+    void progressStopsAtFirstMissingPage() {
+        InitializeItemsProgress progress = new InitializeItemsProgress("bulk-op", 10);
+
+        progress.pageInitialized(new DefaultPageRequest(3, 10), 10, null);
+        InitializeItemsCheckpoint checkpoint =
+                progress.pageInitialized(new DefaultPageRequest(0, 10), 10, null);
+
+        assertThat(checkpoint.getNextOffset()).isEqualTo(10);
+        assertThat(checkpoint.getTotalItemRecords()).isEqualTo(10);
+    }
+
+    @Test
+    void progressKeepsCursorOfLastContiguousPage() {
+        InitializeItemsProgress progress = new InitializeItemsProgress("bulk-op", 10);
+
+        progress.pageInitialized(new DefaultPageRequest(0, 10), 10, "after-0");
+        InitializeItemsCheckpoint checkpoint =
+                progress.pageInitialized(new DefaultPageRequest(1, 10), 10, "after-1");
+
+        assertThat(checkpoint.getCursor()).isEqualTo("after-1");
+    }
+
+    @Test
+    void resumeUsesConfiguredBatchSizeOnlyOnPageBoundary() {
+        InitializeItemsCheckpoint checkpoint = new InitializeItemsCheckpoint();
+        checkpoint.setBulkOperationId("bulk-op");
+        checkpoint.setNextOffset(60);
+        checkpoint.setBatchSize(20);
+        checkpoint.setTotalItemRecords(55);
+
+        InitializeItemsProgress aligned = InitializeItemsProgress.resume(checkpoint, 30);
+        assertThat(aligned.getBatchSize()).isEqualTo(30);
+        assertThat(aligned.getNextPageable().getPageNumber()).isEqualTo(2);
+        assertThat(aligned.getTotalItemRecords()).isEqualTo(55);
+
+        InitializeItemsProgress unaligned = InitializeItemsProgress.resume(checkpoint, 50);
+        assertThat(unaligned.getBatchSize()).isEqualTo(20);
+        assertThat(unaligned.getNextPageable().getPageNumber()).isEqualTo(3);
+    }
+
+
+    @Test
+    void growingUsesLargestDivisorOfOffsetUpToRequested() {
+        assertThat(InitializeItemsProgress.alignBatchSize(120, 20, 50, 10)).isEqualTo(40);
+    }
+
+    @Test
+    void growingKeepsCurrentBatchSizeWhenNoLargerDivisorExists() {
+        assertThat(InitializeItemsProgress.alignBatchSize(140, 70, 100, 10)).isEqualTo(70);
+    }
+
+    @Test
+    void shrinkingUsesLargestDivisorOfOffsetDownToMinimum() {
+        assertThat(InitializeItemsProgress.alignBatchSize(100, 50, 30, 10)).isEqualTo(25);
+    }
+
+    @Test
+    void shrinkingKeepsCurrentBatchSizeBelowMinimum() {
+        assertThat(InitializeItemsProgress.alignBatchSize(97, 97, 50, 10)).isEqualTo(97);
+    }
+
+    @Test
+    void anyBatchSizeAlignsWithStart() {
+        assertThat(InitializeItemsProgress.alignBatchSize(0, 20, 37, 10)).isEqualTo(37);
+    }
+
+    @Test
+    void resizeKeepsPagesAlignedAfterProgress() {
+        InitializeItemsProgress progress = new InitializeItemsProgress("bulk-op", 20);
+        progress.pageInitialized(progress.getNextPageable(), 20, null);
+        progress.pageInitialized(progress.getNextPageable(), 20, null);
+        progress.pageInitialized(progress.getNextPageable(), 20, null);
+
+        assertThat(progress.resize(50, 10)).isEqualTo(30);
+        assertThat(progress.getNextPageable().getPageNumber()).isEqualTo(2);
+        assertThat(progress.getNextPageable().getOffset()).isEqualTo(60);
+    }
+}
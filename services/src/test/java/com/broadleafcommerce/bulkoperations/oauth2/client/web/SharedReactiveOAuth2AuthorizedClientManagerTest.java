@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.oauth2.client.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.client.InMemoryOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.Context;
+
+class SharedReactiveOAuth2AuthorizedClientManagerTest {
+
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+
+    private final AtomicReference<String> tokenRequestTenant = new AtomicReference<>();
+
+    private final Sinks.One<String> tokenResponse = Sinks.one();
+
+    private InMemoryClientRegistrationRepository clientRegistrations;
+
+    @BeforeEach
+    void setUp() {
+        clientRegistrations = new InMemoryClientRegistrationRepository(
+                ClientRegistration.withRegistrationId("catalog")
+                        .clientId("client")
+                        .clientSecret("secret")
+                        .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                        .tokenUri("https://localhost/oauth/token")
+                        .build());
+    }
+
+    @Test
+    void concurrentAuthorizationsShareOneTokenRequest() {
+        SharedReactiveOAuth2AuthorizedClientManager manager = manager();
+
+        CompletableFuture<OAuth2AuthorizedClient> first = manager.authorize(request()).toFuture();
+        CompletableFuture<OAuth2AuthorizedClient> second = manager.authorize(request()).toFuture();
+        tokenResponse.tryEmitValue("token");
+
+        assertThat(first.join().getAccessToken().getTokenValue()).isEqualTo("token");
+        assertThat(second.join().getAccessToken().getTokenValue()).isEqualTo("token");
+        assertThat(tokenRequests).hasValue(1);
+    }
+
+    @Test
+    void cancelledAuthorizationDoesNotCancelSharedTokenRequest() {
+        SharedReactiveOAuth2AuthorizedClientManager manager = manager();
+
+        Disposable cancelled = manager.authorize(request()).subscribe();
+        CompletableFuture<OAuth2AuthorizedClient> waiting =
+                manager.authorize(request()).toFuture();
+        cancelled.dispose();
+        tokenResponse.tryEmitValue("token");
+
+        assertThat(waiting.join().getAccessToken().getTokenValue()).isEqualTo("token");
+        assertThat(tokenRequests).hasValue(1);
+    }
+
+    @Test
+    void tokenRequestRunsInSubscriberContext() {
+        SharedReactiveOAuth2AuthorizedClientManager manager = manager();
+        tokenResponse.tryEmitValue("token");
+
+        manager.authorize(request())
+                .contextWrite(Context.of("tenant", "tenant-1"))
+                .block(Duration.ofSeconds(5));
+
+        assertThat(tokenRequestTenant).hasValue("tenant-1");
+    }
+
+    @Test
+    void authorizedClientIsStoredInGivenService() {
+        InMemoryOAuth2AuthorizedClientService sharedStore =
+                new InMemoryOAuth2AuthorizedClientService(clientRegistrations);
+        SharedReactiveOAuth2AuthorizedClientManager manager = manager(
+                new SharedReactiveOAuth2AuthorizedClientManager(clientRegistrations,
+                        new BlockingReactiveOAuth2AuthorizedClientService(sharedStore)));
+        tokenResponse.tryEmitValue("token");
+
+        manager.authorize(request()).block(Duration.ofSeconds(5));
+        OAuth2AuthorizedClient stored = sharedStore.loadAuthorizedClient("catalog", "bulk-ops");
+
+        assertThat(stored.getAccessToken().getTokenValue()).isEqualTo("token");
+    }
+
+    private SharedReactiveOAuth2AuthorizedClientManager manager() {
+        return manager(new SharedReactiveOAuth2AuthorizedClientManager(clientRegistrations));
+    }
+
+    private SharedReactiveOAuth2AuthorizedClientManager manager(
+            SharedReactiveOAuth2AuthorizedClientManager manager) {
+        manager.setAuthorizedClientProvider(context -> Mono.deferContextual(contextView -> {
+            tokenRequests.incrementAndGet();
+            tokenRequestTenant.set(contextView.getOrDefault("tenant", null));
+            return tokenResponse.asMono();
+        }).map(tokenValue -> {
+            Instant issuedAt = Instant.now();
+            return new OAuth2AuthorizedClient(context.getClientRegistration(),
+                    context.getPrincipal().getName(),
+                    new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, tokenValue,
+                            issuedAt, issuedAt.plus(Duration.ofMinutes(10))));
+        }));
+        return manager;
+    }
+
+    private static OAuth2AuthorizeRequest request() {
+        return OAuth2AuthorizeRequest.withClientRegistrationId("catalog")
+                .principal("bulk-ops")
+                .build();
+    }
+}
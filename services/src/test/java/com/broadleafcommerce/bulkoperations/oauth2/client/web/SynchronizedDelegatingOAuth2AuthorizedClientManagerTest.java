@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.oauth2.client.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SynchronizedDelegatingOAuth2AuthorizedClientManagerTest {
+
+    private static final Duration TOKEN_LIFETIME = Duration.ofMinutes(10);
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+
+    private final List<Runnable> refreshes = new ArrayList<>();
+
+    private volatile CountDownLatch tokenRequestGate = new CountDownLatch(0);
+
+    private SynchronizedDelegatingOAuth2AuthorizedClientManager manager;
+
+    @BeforeEach
+    void setUp() {
+        ClientRegistration registration = ClientRegistration.withRegistrationId("catalog")
+                .clientId("client")
+                .clientSecret("secret")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .tokenUri("https://localhost/oauth/token")
+                .build();
+        manager = new SynchronizedDelegatingOAuth2AuthorizedClientManager(
+                new InMemoryClientRegistrationRepository(registration));
+        manager.setClock(clock);
+        manager.setRefreshJitter(Duration.ZERO);
+        manager.setRefreshExecutor(refreshes::add);
+        manager.setAuthorizedClientProvider(context -> {
+            OAuth2AuthorizedClient current = context.getAuthorizedClient();
+            if (current != null && clock.instant()
+                    .isBefore(current.getAccessToken().getExpiresAt().minusSeconds(60))) {
+                return null;
+            }
+
+            await(tokenRequestGate);
+            int tokenNumber = tokenRequests.incrementAndGet();
+            Instant issuedAt = clock.instant();
+            return new OAuth2AuthorizedClient(context.getClientRegistration(),
+                    context.getPrincipal().getName(),
+                    new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+                            "token-" + tokenNumber, issuedAt, issuedAt.plus(TOKEN_LIFETIME)));
+        });
+    }
+
+    @Test
+    void validTokenIsServedWithoutRefresh() {
+        assertThat(authorize()).isEqualTo("token-1");
+
+        clock.advance(Duration.ofMinutes(5));
+
+        assertThat(authorize()).isEqualTo("token-1");
+        assertThat(tokenRequests).hasValue(1);
+        assertThat(refreshes).isEmpty();
+    }
+
+    @Test
+    void tokenInsideRefreshAheadWindowIsRefreshedOnceInBackground() {
+        authorize();
+        clock.advance(Duration.ofMinutes(8).plusSeconds(30));
+
+        assertThat(authorize()).isEqualTo("token-1");
+        assertThat(authorize()).isEqualTo("token-1");
+        assertThat(authorize()).isEqualTo("token-1");
+        assertThat(refreshes).hasSize(1);
+        assertThat(tokenRequests).hasValue(1);
+
+        refreshes.get(0).run();
+
+        assertThat(tokenRequests).hasValue(2);
+        assertThat(authorize()).isEqualTo("token-2");
+    }
+
+    @Test
+    void currentTokenIsServedWhileRefreshIsInProgress() throws Exception {
+        authorize();
+        clock.advance(Duration.ofMinutes(8).plusSeconds(30));
+        authorize();
+        assertThat(refreshes).hasSize(1);
+
+        tokenRequestGate = new CountDownLatch(1);
+        Thread refresh = new Thread(refreshes.get(0));
+        refresh.start();
+        try {
+            assertThat(authorize()).isEqualTo("token-1");
+            assertThat(authorize()).isEqualTo("token-1");
+            assertThat(refreshes).hasSize(1);
+        } finally {
+            tokenRequestGate.countDown();
+            refresh.join(TimeUnit.SECONDS.toMillis(5));
+        }
+
+        assertThat(authorize()).isEqualTo("token-2");
+        assertThat(tokenRequests).hasValue(2);
+    }
+
+    @Test
+    void expiredTokenIsRequestedInForeground() {
+        authorize();
+        clock.advance(TOKEN_LIFETIME);
+
+        assertThat(authorize()).isEqualTo("token-2");
+        assertThat(refreshes).isEmpty();
+    }
+
+    @Test
+    void refreshIsSkippedWhenTokenWasAlreadyReplaced() {
+        authorize();
+        clock.advance(Duration.ofMinutes(8).plusSeconds(30));
+        authorize();
+        assertThat(refreshes).hasSize(1);
+
+        clock.advance(Duration.ofMinutes(1));
+        assertThat(authorize()).isEqualTo("token-2");
+
+        refreshes.get(0).run();
+
+        assertThat(tokenRequests).hasValue(2);
+        assertThat(authorize()).isEqualTo("token-2");
+    }
+
+    private String authorize() {
+        return manager.authorize(OAuth2AuthorizeRequest.withClientRegistrationId("catalog")
+                .principal("bulk-operations")
+                .build())
+                .getAccessToken()
+                .getTokenValue();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+
+        private volatile Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
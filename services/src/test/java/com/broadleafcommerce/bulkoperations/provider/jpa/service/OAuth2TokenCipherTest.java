@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.provider.jpa.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+class OAuth2TokenCipherTest {
+
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private final OAuth2TokenCipher cipher = new OAuth2TokenCipher(KEY);
+
+    @Test
+    void encryptedTokenDecryptsWithSameContext() {
+        String encrypted = cipher.encrypt("eyJhbGciOiJSUzI1NiJ9.payload.signature", "catalog:svc");
+
+        assertThat(encrypted).doesNotContain("payload");
+        assertThat(cipher.decrypt(encrypted, "catalog:svc"))
+                .isEqualTo("eyJhbGciOiJSUzI1NiJ9.payload.signature");
+    }
+
+    @Test
+    void encryptionIsRandomized() {
+        assertThat(cipher.encrypt("token", "catalog:svc"))
+                .isNotEqualTo(cipher.encrypt("token", "catalog:svc"));
+    }
+
+    @Test
+    void tokenDoesNotDecryptForAnotherClient() {
+        String encrypted = cipher.encrypt("token", "catalog:svc");
+
+        assertThatThrownBy(() -> cipher.decrypt(encrypted, "search:svc"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void tokenDoesNotDecryptWithAnotherKey() {
+        String encrypted = cipher.encrypt("token", "catalog:svc");
+        byte[] otherKey = new byte[32];
+        otherKey[0] = 1;
+
+        assertThatThrownBy(() -> new OAuth2TokenCipher(
+                Base64.getEncoder().encodeToString(otherKey)).decrypt(encrypted, "catalog:svc"))
+                        .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void plaintextTokenIsRejected() {
+        assertThatThrownBy(() -> cipher.decrypt("plain.jwt.token", "catalog:svc"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void keyMustBeValidAesKeyLength() {
+        assertThatThrownBy(() -> new OAuth2TokenCipher(
+                Base64.getEncoder().encodeToString(new byte[10])))
+                        .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import com.broadleafcommerce.bulkoperations.service.environment.BulkOperationsMetricsProperties;
+
+import java.util.concurrent.CompletionException;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BulkOperationsMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final BulkOperationsMetricsProperties properties =
+            new BulkOperationsMetricsProperties();
+
+    @Test
+    void stageTimerIsRegisteredOnceAndReused() {
+        BulkOperationsMetrics metrics = new BulkOperationsMetrics(meterRegistry, properties);
+
+        metrics.record(BulkOperationsMetrics.SEARCH_PAGE_STAGE, null, null, () -> "page");
+        metrics.record(BulkOperationsMetrics.SEARCH_PAGE_STAGE, null, null, () -> "page");
+
+        Timer timer = meterRegistry.get(BulkOperationsMetrics.STAGE_METRIC)
+                .tag("stage", BulkOperationsMetrics.SEARCH_PAGE_STAGE)
+                .tag("outcome", "success")
+                .tag("tenant", BulkOperationsMetrics.UNKNOWN)
+                .timer();
+        assertThat(timer.count()).isEqualTo(2);
+        assertThat(meterRegistry.getMeters()).hasSize(1);
+    }
+
+    @Test
+    void percentileHistogramIsOffByDefault() {
+        new BulkOperationsMetrics(meterRegistry, properties)
+                .record(BulkOperationsMetrics.SEARCH_PAGE_STAGE, null, null, () -> "page");
+
+        Timer timer = meterRegistry.get(BulkOperationsMetrics.STAGE_METRIC).timer();
+        assertThat(timer.takeSnapshot().histogramCounts()).isEmpty();
+    }
+
+    @Test
+    void percentileHistogramCanBeEnabled() {
+        properties.setPercentileHistogram(true);
+        new BulkOperationsMetrics(meterRegistry, properties)
+                .record(BulkOperationsMetrics.SEARCH_PAGE_STAGE, null, null, () -> "page");
+
+        Timer timer = meterRegistry.get(BulkOperationsMetrics.STAGE_METRIC).timer();
+        assertThat(timer.takeSnapshot().histogramCounts()).isNotEmpty();
+    }
+
+    @Test
+    void tenantTagCanBeDisabled() {
+        properties.setTenantTag(false);
+        BulkOperationsMetrics metrics = new BulkOperationsMetrics(meterRegistry, properties);
+
+        metrics.record(BulkOperationsMetrics.SEARCH_PAGE_STAGE, null, null, () -> "page");
+        metrics.recordPageItems(null, null, 50);
+        metrics.recordInitializedItems(null, null, 50);
+
+        assertThat(meterRegistry.getMeters())
+                .hasSize(3)
+                .allSatisfy(meter -> assertThat(meter.getId().getTag("tenant")).isNull());
+    }
+
+    @Test
+    void unresolvedRequestIsTaggedAsUnknown() {
+        BulkOperationsMetrics metrics = new BulkOperationsMetrics(meterRegistry, properties);
+
+        assertThatThrownBy(() -> metrics.recordResolved(
+                BulkOperationsMetrics.CREATE_BULK_OPERATION_STAGE, () -> null, null, () -> {
+                    throw new IllegalArgumentException("No handler");
+                })).isInstanceOf(IllegalArgumentException.class);
+
+        Timer timer = meterRegistry.get(BulkOperationsMetrics.STAGE_METRIC)
+                .tag("stage", BulkOperationsMetrics.CREATE_BULK_OPERATION_STAGE)
+                .tag("outcome", "error")
+                .timer();
+        assertThat(timer.getId().getTag("operation.type")).isEqualTo(BulkOperationsMetrics.UNKNOWN);
+        assertThat(timer.getId().getTag("entity.type")).isEqualTo(BulkOperationsMetrics.UNKNOWN);
+    }
+
+    @Test
+    void exceptionTagNamesTheWrappedFailure() {
+        BulkOperationsMetrics metrics = new BulkOperationsMetrics(meterRegistry, properties);
+
+        assertThatThrownBy(() -> metrics.record(BulkOperationsMetrics.SEARCH_PAGE_STAGE, null,
+                null, (Runnable) () -> {
+                    throw new CompletionException(new IllegalStateException("search failed"));
+                })).isInstanceOf(CompletionException.class);
+
+        assertThat(meterRegistry.get(BulkOperationsMetrics.STAGE_METRIC)
+                .tag("outcome", "error")
+                .timer()
+                .getId()
+                .getTag("exception")).isEqualTo("IllegalStateException");
+    }
+
+    @Test
+    void exceptionTagFallsBackToClassNameForAnonymousClasses() {
+        BulkOperationsMetrics metrics = new BulkOperationsMetrics(meterRegistry, properties);
+        RuntimeException anonymous = new RuntimeException() {};
+
+        assertThat(metrics.getExceptionTag(anonymous)).isEqualTo(anonymous.getClass().getName());
+        assertThat(metrics.getExceptionTag(null)).isEqualTo(BulkOperationsMetrics.UNKNOWN);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import com.broadleafcommerce.bulk.v2.domain.BulkOperationRequest;
+import com.broadleafcommerce.bulk.v2.domain.BulkOperationResponse;
+import com.broadleafcommerce.bulkoperations.service.environment.BulkOperationHandlerRegistryProperties;
+import com.broadleafcommerce.data.tracking.core.context.ContextInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+class DefaultBulkOperationHandlerRegistryTest {
+
+    @Test
+    void concurrentRequestsShareOneResolution() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TestHandler handler = new TestHandler(() -> {
+            await(release);
+            return true;
+        });
+        DefaultBulkOperationHandlerRegistry registry = registry(handler);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Optional<BulkOperationHandler>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> registry.getHandler("UPDATE", "PRODUCT")));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<Optional<BulkOperationHandler>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).containsSame(handler);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(handler.getCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void resolvedHandlerIsRemembered() {
+        TestHandler handler = new TestHandler(() -> true);
+        DefaultBulkOperationHandlerRegistry registry = registry(handler);
+
+        registry.getHandler("UPDATE", "PRODUCT");
+        registry.getHandler("UPDATE", "PRODUCT");
+
+        assertThat(handler.getCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void missingHandlerIsNotRemembered() {
+        TestHandler handler = new TestHandler(() -> false);
+        DefaultBulkOperationHandlerRegistry registry = registry(handler);
+
+        assertThat(registry.getHandler("UPDATE", "PRODUCT")).isEmpty();
+        assertThat(registry.getHandler("UPDATE", "PRODUCT")).isEmpty();
+        assertThat(registry.getResolutions()).isEmpty();
+
+        assertThat(handler.getCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void failedResolutionIsNotRemembered() {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        TestHandler handler = new TestHandler(() -> {
+            if (fail.getAndSet(false)) {
+                throw new IllegalStateException("provider unavailable");
+            }
+            return true;
+        });
+        DefaultBulkOperationHandlerRegistry registry = registry(handler);
+
+        assertThatThrownBy(() -> registry.getHandler("UPDATE", "PRODUCT"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("provider unavailable");
+        assertThat(registry.getHandler("UPDATE", "PRODUCT")).containsSame(handler);
+        assertThat(handler.getCalls()).isEqualTo(2);
+    }
+
+    private DefaultBulkOperationHandlerRegistry registry(BulkOperationHandler handler) {
+        return new DefaultBulkOperationHandlerRegistry(List.of(handler),
+                new BulkOperationHandlerRegistryProperties());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class TestHandler implements BulkOperationHandler {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final BooleanSupplier canHandle;
+
+        TestHandler(BooleanSupplier canHandle) {
+            this.canHandle = canHandle;
+        }
+
+        int getCalls() {
+            return calls.get();
+        }
+
+        @Override
+        public boolean canHandle(String operationType, String entityType) {
+            calls.incrementAndGet();
+            return canHandle.getAsBoolean();
+        }
+
+        @Override
+        public BulkOperationResponse handle(BulkOperationRequest bulkOperationRequest,
+                ContextInfo contextInfo) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.external;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.broadleafcommerce.bulk.v2.domain.BulkOperationRequest;
+import com.broadleafcommerce.bulkoperations.domain.CatalogItem;
+import com.broadleafcommerce.bulkoperations.service.provider.SearchProvider;
+import com.broadleafcommerce.bulkoperations.service.provider.utils.ProviderUtils;
+import com.broadleafcommerce.data.tracking.core.context.ContextInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class ExternalSearchProviderTest {
+
+    @Test
+    void getSearchUrlEncodesCursorAsOpaqueValue() {
+        ExternalSearchProvider<CatalogItem> provider = provider(true);
+        MultiValueMap<String, String> searchParams = new LinkedMultiValueMap<>();
+        searchParams.add("query", "shirt");
+
+        String url = provider.getSearchUrl(provider.getSearchUrlTemplate(searchParams),
+                PageRequest.of(3, 50), "AoE+/x==");
+
+        assertThat(url).isEqualTo("https://localhost/search?query=shirt&type=PRODUCT"
+                + "&size=50&page=0&cursor=AoE%2B%2Fx%3D%3D");
+        assertThat(URI.create(url).getQuery()).endsWith("&cursor=AoE+/x==");
+    }
+
+    @Test
+    void getSearchUrlUsesPageNumberWithoutCursorPaging() {
+        ExternalSearchProvider<CatalogItem> provider = provider(false);
+
+        String url = provider.getSearchUrl(
+                provider.getSearchUrlTemplate(new LinkedMultiValueMap<>()),
+                PageRequest.of(3, 50), "AoE+");
+
+        assertThat(url).isEqualTo("https://localhost/search?type=PRODUCT&size=50&page=3");
+    }
+
+    @Test
+    void preparedSearchBuildsUrlAndHeadersOncePerOperation() {
+        AtomicInteger headerBuilds = new AtomicInteger();
+        AtomicInteger urlBuilds = new AtomicInteger();
+        List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+        ProviderUtils providerUtils = new ProviderUtils(new ObjectMapper()) {
+            @Override
+            public HttpHeaders getHeaders(@Nullable ContextInfo contextInfo) {
+                headerBuilds.incrementAndGet();
+                HttpHeaders headers = new HttpHeaders();
+                headers.add("X-Context-Request", "{}");
+                return headers;
+            }
+        };
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    requests.add(request);
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(
+                                    "{\"content\":[{\"id\":\"1\"}]}"
+                                            .getBytes(StandardCharsets.UTF_8))))
+                            .build());
+                })
+                .build();
+        ExternalSearchProperties properties = new ExternalSearchProperties();
+        properties.setUrl("https://localhost");
+        properties.setSearchUri("/search");
+        properties.setIdOnlyResponses(true);
+        ExternalSearchProvider<CatalogItem> provider = new ExternalSearchProvider<>(webClient,
+                null, providerUtils, properties, null,
+                new SearchResponseIdDecoder(new ObjectMapper())) {
+            @Override
+            protected MultiValueMap<String, String> buildSearchParamsFromRequest(
+                    BulkOperationRequest request) {
+                return new LinkedMultiValueMap<>();
+            }
+
+            @Override
+            protected String getSearchUrlTemplate(MultiValueMap<String, String> searchParams) {
+                urlBuilds.incrementAndGet();
+                return super.getSearchUrlTemplate(searchParams);
+            }
+        };
+
+        SearchProvider.PreparedSearch<CatalogItem> search =
+                provider.prepareSearch(null, null, null);
+        for (int page = 0; page < 3; page++) {
+            assertThat(search.search(PageRequest.of(page, 1), null).getContent()).hasSize(1);
+        }
+
+        assertThat(headerBuilds).hasValue(1);
+        assertThat(urlBuilds).hasValue(1);
+        assertThat(requests).hasSize(3)
+                .allSatisfy(request -> assertThat(request.headers().getFirst("X-Context-Request"))
+                        .isEqualTo("{}"));
+        assertThat(requests).extracting(request -> request.url().toString()).containsExactly(
+                "https://localhost/search?type=PRODUCT&size=1&page=0",
+                "https://localhost/search?type=PRODUCT&size=1&page=1",
+                "https://localhost/search?type=PRODUCT&size=1&page=2");
+    }
+
+    private ExternalSearchProvider<CatalogItem> provider(boolean cursorPaging) {
+        ExternalSearchProperties properties = new ExternalSearchProperties();
+        properties.setUrl("https://localhost");
+        properties.setSearchUri("/search");
+        properties.setCursorPaging(cursorPaging);
+        return new ExternalSearchProvider<>(null, null,
+                new ProviderUtils(new ObjectMapper()), properties);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.external;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import com.broadleafcommerce.bulkoperations.domain.CatalogItemReference;
+import com.broadleafcommerce.bulkoperations.domain.SearchResponse;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+class SearchResponseIdDecoderTest {
+
+    private final SearchResponseIdDecoder decoder = new SearchResponseIdDecoder(new ObjectMapper());
+
+    @Test
+    void readsIdsAndRequestedAttributes() throws IOException {
+        SearchResponse<CatalogItemReference> response = decode("{\"content\":["
+                + "{\"id\":\"product-1\",\"attributes\":{\"id\":\"nested\"}},"
+                + "{\"name\":\"Product 2\",\"id\":2}],"
+                + "\"totalElements\":2,\"facets\":[{\"id\":\"facet\"}]}");
+
+        assertThat(response.getContent()).extracting(CatalogItemReference::getId)
+                .containsExactly("product-1", "2");
+        assertThat(response.getAttributes()).containsOnlyKeys("totalElements");
+    }
+
+    @Test
+    void rejectsResultWithNullId() {
+        assertThatThrownBy(() -> decode("{\"content\":[{\"id\":null}]}"))
+                .isInstanceOf(JsonParseException.class);
+    }
+
+    @Test
+    void rejectsResultWithNonScalarId() {
+        assertThatThrownBy(() -> decode("{\"content\":[{\"id\":{\"value\":\"product-1\"}}]}"))
+                .isInstanceOf(JsonParseException.class);
+    }
+
+    @Test
+    void rejectsResultWithoutId() {
+        assertThatThrownBy(() -> decode("{\"content\":[{\"name\":\"Product 1\"}]}"))
+                .isInstanceOf(JsonParseException.class);
+    }
+
+    private SearchResponse<CatalogItemReference> decode(String body) throws IOException {
+        return decoder.decode(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                List.of("totalElements"));
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.lang.Nullable;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+class ProviderContentNegotiationFilterTest {
+
+    private static final MediaType SMILE =
+            ProviderCodecProperties.BinaryFormat.SMILE.getMediaType();
+
+    private static final ParameterizedTypeReference<Map<String, Object>> MAP_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private static final Map<String, Object> PRODUCT = Map.of("name", "shirt");
+
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+
+    private final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+
+    private final ExchangeStrategies strategies = ExchangeStrategies.builder()
+            .codecs(configurer -> ProviderBinaryCodecs.register(
+                    ProviderCodecProperties.BinaryFormat.SMILE, jsonMapper, configurer))
+            .build();
+
+    private final ProviderCodecProperties properties = new ProviderCodecProperties();
+
+    private final List<ReceivedRequest> requests = new CopyOnWriteArrayList<>();
+
+    /**
+     * The statuses the server responds with, in order. Once empty, requests succeed.
+     */
+    private final Queue<HttpStatus> statuses = new ConcurrentLinkedQueue<>();
+
+    private DisposableServer server;
+
+    @BeforeEach
+    void startServer() {
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                // gzip compresses responses to clients that accept it
+                .compress(true)
+                .handle(this::handle)
+                .bindNow();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.disposeNow();
+    }
+
+    @Test
+    void jsonRequestsAcceptBinaryFormatFirst() {
+        Map<String, Object> product = get(webClient(SMILE));
+
+        assertThat(product).isEqualTo(PRODUCT);
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0).getAccept())
+                .containsExactly(SMILE, MediaType.parseMediaType("application/json;q=0.9"));
+        assertThat(requests.get(0).getResponseType()).isEqualTo(SMILE);
+    }
+
+    @Test
+    void jsonResponsesAreDecodedWithoutBinaryFormat() {
+        Map<String, Object> product = get(webClient(null));
+
+        assertThat(product).isEqualTo(PRODUCT);
+        assertThat(requests.get(0).getAccept()).containsExactly(MediaType.APPLICATION_JSON);
+        assertThat(requests.get(0).getResponseType()).isEqualTo(MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    void compressedResponsesAreDecoded() {
+        properties.setResponseCompression(true);
+
+        Map<String, Object> product = get(webClient(SMILE));
+
+        assertThat(product).isEqualTo(PRODUCT);
+        assertThat(requests.get(0).getAcceptEncoding()).contains("gzip");
+    }
+
+    @Test
+    void requestBodiesOverThresholdAreCompressed() {
+        properties.setRequestCompression(true);
+        Map<String, Object> body = Map.of("ids", ids(1000));
+
+        post(webClient(null), body);
+
+        ReceivedRequest request = requests.get(0);
+        assertThat(request.getContentEncoding()).isEqualTo("gzip");
+        assertThat(request.getRawLength()).isLessThan(request.getBody().length);
+        assertThat(readJson(request.getBody())).isEqualTo(body);
+    }
+
+    @Test
+    void requestBodiesUnderThresholdAreNotCompressed() {
+        properties.setRequestCompression(true);
+        properties.setRequestCompressionThreshold(DataSize.ofKilobytes(64));
+        Map<String, Object> body = Map.of("ids", ids(1000));
+
+        post(webClient(null), body);
+
+        ReceivedRequest request = requests.get(0);
+        assertThat(request.getContentEncoding()).isNull();
+        assertThat(readJson(request.getBody())).isEqualTo(body);
+    }
+
+    @Test
+    void requestsAreSentAsJsonAfterBinaryIsRejected() {
+        statuses.add(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+        WebClient webClient = webClient(SMILE);
+
+        assertThat(post(webClient, PRODUCT)).isEqualTo(PRODUCT);
+        assertThat(post(webClient, PRODUCT)).isEqualTo(PRODUCT);
+
+        assertThat(requests).hasSize(3);
+        assertThat(requests.get(0).getContentType()).isEqualTo(SMILE);
+        assertThat(requests.get(1).getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(requests.get(2).getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(requests.get(2).getAccept()).containsExactly(MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    void requestsAreSentUncompressedAfterCompressionIsRejectedWithBadRequest() {
+        properties.setRequestCompression(true);
+        properties.setRequestCompressionThreshold(DataSize.ofBytes(1));
+        statuses.add(HttpStatus.BAD_REQUEST);
+        WebClient webClient = webClient(null);
+
+        assertThat(post(webClient, PRODUCT)).isEqualTo(PRODUCT);
+        assertThat(post(webClient, PRODUCT)).isEqualTo(PRODUCT);
+
+        assertThat(requests).extracting(ReceivedRequest::getContentEncoding)
+                .containsExactly("gzip", null, null);
+    }
+
+    @Test
+    void invalidRequestsDoNotStopCompression() {
+        properties.setRequestCompression(true);
+        properties.setRequestCompressionThreshold(DataSize.ofBytes(1));
+        statuses.add(HttpStatus.BAD_REQUEST);
+        statuses.add(HttpStatus.BAD_REQUEST);
+        WebClient webClient = webClient(null);
+
+        assertThatThrownBy(() -> post(webClient, PRODUCT))
+                .isInstanceOf(WebClientResponseException.BadRequest.class);
+        assertThat(post(webClient, PRODUCT)).isEqualTo(PRODUCT);
+
+        assertThat(requests).extracting(ReceivedRequest::getContentEncoding)
+                .containsExactly("gzip", null, "gzip");
+    }
+
+    @Test
+    void rejectingServiceIsProbedAgainAfterReprobeInterval() throws InterruptedException {
+        properties.setReprobeInterval(Duration.ofMillis(100));
+        statuses.add(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+        WebClient webClient = webClient(SMILE);
+
+        post(webClient, PRODUCT);
+        post(webClient, PRODUCT);
+        Thread.sleep(150);
+        post(webClient, PRODUCT);
+
+        assertThat(requests).extracting(ReceivedRequest::getContentType).containsExactly(SMILE,
+                MediaType.APPLICATION_JSON, MediaType.APPLICATION_JSON, SMILE);
+    }
+
+    private WebClient webClient(@Nullable MediaType binaryMediaType) {
+        HttpClient httpClient = HttpClient.create()
+                .compress(properties.isResponseCompression());
+        return WebClient.builder()
+                .baseUrl("http://localhost:" + server.port())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .exchangeStrategies(strategies)
+                .filter(new ProviderContentNegotiationFilter(properties, binaryMediaType))
+                .build();
+    }
+
+    private Map<String, Object> get(WebClient webClient) {
+        return webClient.get()
+                .uri("/products")
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToMono(MAP_TYPE)
+                .block();
+    }
+
+    private Map<String, Object> post(WebClient webClient, Map<String, Object> body) {
+        return webClient.post()
+                .uri("/products")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(MAP_TYPE)
+                .block();
+    }
+
+    /**
+     * Records the request and responds with the next of {@link #statuses}, or with the product in
+     * the preferred format the request accepts.
+     */
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        return request.receive()
+                .aggregate()
+                .asByteArray()
+                .defaultIfEmpty(new byte[0])
+                .flatMap(body -> {
+                    HttpStatus status = statuses.poll();
+                    if (status != null) {
+                        requests.add(new ReceivedRequest(request, body, null));
+                        return Mono.from(response.status(status.value()).send());
+                    }
+
+                    MediaType responseType = accepts(request, SMILE) ? SMILE
+                            : MediaType.APPLICATION_JSON;
+                    requests.add(new ReceivedRequest(request, body, responseType));
+                    return Mono.from(response
+                            .header(HttpHeaderNames.CONTENT_TYPE, responseType.toString())
+                            .sendByteArray(Mono.just(write(responseType))));
+                });
+    }
+
+    private boolean accepts(HttpServerRequest request, MediaType mediaType) {
+        String accept = request.requestHeaders().get(HttpHeaderNames.ACCEPT);
+        return accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(mediaType::equalsTypeAndSubtype);
+    }
+
+    private byte[] write(MediaType mediaType) {
+        try {
+            return (SMILE.equals(mediaType) ? smileMapper : jsonMapper)
+                    .writeValueAsBytes(PRODUCT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, Object> readJson(byte[] body) {
+        try {
+            return jsonMapper.readValue(body, new TypeReference<Map<String, Object>>() {});
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<String> ids(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(index -> "product-" + index)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * A request as the server received it, with its body decompressed.
+     */
+    private static class ReceivedRequest {
+
+        private final HttpHeaders headers = new HttpHeaders();
+
+        private final int rawLength;
+
+        private final byte[] body;
+
+        @Nullable
+        private final MediaType responseType;
+
+        ReceivedRequest(HttpServerRequest request,
+                byte[] rawBody,
+                @Nullable MediaType responseType) {
+            request.requestHeaders().forEach(header -> headers.add(header.getKey(),
+                    header.getValue()));
+            this.rawLength = rawBody.length;
+            this.body = "gzip".equals(getContentEncoding()) ? gunzip(rawBody) : rawBody;
+            this.responseType = responseType;
+        }
+
+        List<MediaType> getAccept() {
+            return headers.getAccept();
+        }
+
+        @Nullable
+        String getAcceptEncoding() {
+            return headers.getFirst(HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        @Nullable
+        MediaType getContentType() {
+            return headers.getContentType();
+        }
+
+        @Nullable
+        String getContentEncoding() {
+            return headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+        }
+
+        int getRawLength() {
+            return rawLength;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+
+        @Nullable
+        MediaType getResponseType() {
+            return responseType;
+        }
+
+        private static byte[] gunzip(byte[] compressed) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class ProviderRequestHedgerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ProviderHedgingProperties properties = new ProviderHedgingProperties();
+
+    private final AtomicInteger subscriptions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setMinDelay(Duration.ofMillis(10));
+        properties.setMinSamples(1);
+    }
+
+    @Test
+    void slowRequestIsAnsweredByHedge() {
+        ProviderRequestHedger hedger = hedger();
+        Mono<String> request = Mono.defer(() -> {
+            switch (subscriptions.incrementAndGet()) {
+                case 2:
+                    return Mono.delay(Duration.ofSeconds(10)).thenReturn("primary");
+                case 3:
+                    return Mono.just("hedge");
+                default:
+                    return Mono.just("warm-up");
+            }
+        });
+
+        hedger.hedge(request).block();
+        String response = hedger.hedge(request).block(Duration.ofSeconds(5));
+
+        assertThat(response).isEqualTo("hedge");
+        assertThat(subscriptions).hasValue(3);
+        assertThat(count(ProviderRequestHedger.HEDGED_METRIC)).isEqualTo(1);
+        assertThat(count(ProviderRequestHedger.HEDGE_WINS_METRIC)).isEqualTo(1);
+    }
+
+    @Test
+    void requestsAreNotHedgedUntilEnoughResponseTimesAreKnown() {
+        properties.setMinSamples(5);
+        ProviderRequestHedger hedger = hedger();
+        Mono<String> request = Mono.defer(() -> {
+            subscriptions.incrementAndGet();
+            return Mono.just("response");
+        });
+
+        for (int i = 0; i < 3; i++) {
+            hedger.hedge(request).block();
+        }
+
+        assertThat(subscriptions).hasValue(3);
+        assertThat(count(ProviderRequestHedger.HEDGED_METRIC)).isZero();
+    }
+
+    @Test
+    void failedHedgeDoesNotFailRequest() {
+        ProviderRequestHedger hedger = hedger();
+        Mono<String> request = Mono.defer(() -> {
+            switch (subscriptions.incrementAndGet()) {
+                case 2:
+                    return Mono.delay(Duration.ofMillis(200)).thenReturn("primary");
+                case 3:
+                    return Mono.error(new IllegalStateException("hedge failed"));
+                default:
+                    return Mono.just("warm-up");
+            }
+        });
+
+        hedger.hedge(request).block();
+
+        assertThat(hedger.hedge(request).block(Duration.ofSeconds(5))).isEqualTo("primary");
+        assertThat(count(ProviderRequestHedger.HEDGE_WINS_METRIC)).isZero();
+    }
+
+    private ProviderRequestHedger hedger() {
+        return new ProviderRequestHedger(ProviderOperation.of("search", "search", true),
+                properties, meterRegistry);
+    }
+
+    private double count(String metric) {
+        return meterRegistry.get(metric).counter().count();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.broadleafcommerce.bulkoperations.exception.ProviderCircuitOpenException;
+import com.broadleafcommerce.bulkoperations.exception.ProviderRateLimitExceededException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import reactor.core.publisher.Mono;
+
+class ProviderResilienceTest {
+
+    private static final ProviderOperation READ = ProviderOperation.of("catalog", "read", true);
+
+    private static final ProviderOperation WRITE = ProviderOperation.of("catalog", "write", false);
+
+    private final ProviderResilienceProperties properties = new ProviderResilienceProperties();
+
+    private ProviderResilience resilience;
+
+    @BeforeEach
+    void setUp() {
+        properties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+        properties.getRetry().setMaxBackoff(Duration.ofMillis(1));
+        resilience = new ProviderResilience(properties);
+    }
+
+    @Test
+    void idempotentRequestIsRetriedOnRetryableStatus() {
+        properties.getRetry().setEnabled(true);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = resilience.execute(READ, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw failure(503);
+            }
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void retriesStopAtMaxAttempts() {
+        properties.getRetry().setEnabled(true);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> resilience.execute(READ, () -> {
+            attempts.incrementAndGet();
+            throw failure(503);
+        })).isInstanceOf(WebClientResponseException.class);
+
+        assertThat(attempts).hasValue(properties.getRetry().getMaxAttempts());
+    }
+
+    @Test
+    void nonIdempotentRequestIsOnlyRetriedOnStatusesThatWereNotProcessed() {
+        properties.getRetry().setEnabled(true);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> resilience.execute(WRITE, () -> {
+            attempts.incrementAndGet();
+            throw failure(502);
+        })).isInstanceOf(WebClientResponseException.class);
+
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void reactiveRequestIsResubscribedForEachAttempt() {
+        properties.getRetry().setEnabled(true);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = resilience.execute(READ, Mono.fromCallable(() -> {
+            if (attempts.incrementAndGet() < 2) {
+                throw failure(429);
+            }
+            return "ok";
+        })).block();
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts).hasValue(2);
+    }
+
+    @Test
+    void circuitOpensAfterConsecutiveServiceFailures() {
+        properties.getCircuitBreaker().setEnabled(true);
+        properties.getCircuitBreaker().setFailureThreshold(2);
+        AtomicInteger attempts = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> resilience.execute(READ, () -> {
+                attempts.incrementAndGet();
+                throw failure(500);
+            })).isInstanceOf(WebClientResponseException.class);
+        }
+        assertThatThrownBy(() -> resilience.execute(READ, () -> {
+            attempts.incrementAndGet();
+            return "ok";
+        })).isInstanceOf(ProviderCircuitOpenException.class);
+
+        assertThat(attempts).hasValue(2);
+    }
+
+    @Test
+    void rejectedRequestsDoNotOpenCircuit() {
+        properties.getCircuitBreaker().setEnabled(true);
+        properties.getCircuitBreaker().setFailureThreshold(2);
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> resilience.execute(READ, () -> {
+                throw failure(404);
+            })).isInstanceOf(WebClientResponseException.class);
+        }
+
+        assertThat(resilience.execute(READ, () -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    void rateLimitedTrialDoesNotCloseCircuit() throws InterruptedException {
+        properties.getCircuitBreaker().setEnabled(true);
+        properties.getCircuitBreaker().setFailureThreshold(2);
+        properties.getCircuitBreaker().setOpenDuration(Duration.ofMillis(200));
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> resilience.execute(READ, () -> {
+                throw failure(500);
+            })).isInstanceOf(WebClientResponseException.class);
+        }
+        Thread.sleep(250);
+
+        assertThatThrownBy(() -> resilience.execute(READ, () -> {
+            throw new ProviderRateLimitExceededException("catalog", "tenant");
+        })).isInstanceOf(ProviderRateLimitExceededException.class);
+        // the released trial lets the next request through, and its failure opens the circuit
+        assertThatThrownBy(() -> resilience.execute(READ, () -> {
+            throw failure(500);
+        })).isInstanceOf(WebClientResponseException.class);
+        assertThatThrownBy(() -> resilience.execute(READ, () -> "ok"))
+                .isInstanceOf(ProviderCircuitOpenException.class);
+    }
+
+    private static WebClientResponseException failure(int status) {
+        return WebClientResponseException.create(status, "status " + status, null, null, null);
+    }
+}
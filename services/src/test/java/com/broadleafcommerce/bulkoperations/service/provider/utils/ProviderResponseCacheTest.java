@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class ProviderResponseCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ProviderCacheProperties properties = new ProviderCacheProperties();
+
+    private final ProviderResponseCache<String, String> cache =
+            new ProviderResponseCache<>("test", properties, meterRegistry);
+
+    @Test
+    void concurrentRequestsShareOneLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<String> response = Sinks.one();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            results.add(cache.get("key", () -> {
+                loads.incrementAndGet();
+                return response.asMono();
+            }).toFuture());
+        }
+        assertThat(results).noneMatch(CompletableFuture::isDone);
+
+        response.tryEmitValue("value");
+
+        assertThat(results).allSatisfy(result -> assertThat(result.join()).isEqualTo("value"));
+        assertThat(loads).hasValue(1);
+        assertThat(count("miss")).isEqualTo(1);
+        assertThat(count("hit")).isEqualTo(4);
+    }
+
+    @Test
+    void cancelledRequestDoesNotCancelSharedLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<String> response = Sinks.one();
+
+        Disposable cancelled = cache.get("key", () -> {
+            loads.incrementAndGet();
+            return response.asMono();
+        }).subscribe();
+        CompletableFuture<String> waiting = cache.get("key", () -> {
+            loads.incrementAndGet();
+            return response.asMono();
+        }).toFuture();
+
+        cancelled.dispose();
+        response.tryEmitValue("value");
+
+        assertThat(waiting.join()).isEqualTo("value");
+        assertThat(cache.get("key", () -> Mono.just("reloaded")).block()).isEqualTo("value");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void loadedResponseIsReused() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("key", () -> Mono.fromSupplier(() -> "value-" + loads.incrementAndGet()))
+                .block();
+        String cached = cache.get("key",
+                () -> Mono.fromSupplier(() -> "value-" + loads.incrementAndGet())).block();
+
+        assertThat(cached).isEqualTo("value-1");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThatThrownBy(() -> cache.get("key", () -> {
+            loads.incrementAndGet();
+            return Mono.<String>error(new IllegalStateException("unavailable"));
+        }).block()).hasMessageContaining("unavailable");
+
+        String value = cache.get("key", () -> {
+            loads.incrementAndGet();
+            return Mono.just("value");
+        }).block();
+
+        assertThat(value).isEqualTo("value");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void emptyLoadIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.get("key", () -> {
+            loads.incrementAndGet();
+            return Mono.<String>empty();
+        }).block()).isNull();
+        cache.get("key", () -> {
+            loads.incrementAndGet();
+            return Mono.just("value");
+        }).block();
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void invalidatedResponseIsLoadedAgain() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("key", () -> Mono.fromSupplier(() -> "value-" + loads.incrementAndGet()))
+                .block();
+        cache.invalidate("key");
+        String value = cache.get("key",
+                () -> Mono.fromSupplier(() -> "value-" + loads.incrementAndGet())).block();
+
+        assertThat(value).isEqualTo("value-2");
+    }
+
+    @Test
+    void disabledCacheLoadsEveryTime() {
+        properties.setEnabled(false);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("key", () -> Mono.fromSupplier(loads::incrementAndGet).map(String::valueOf))
+                .block();
+        cache.get("key", () -> Mono.fromSupplier(loads::incrementAndGet).map(String::valueOf))
+                .block();
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get(ProviderResponseCache.REQUESTS_METRIC)
+                .tag("cache", "test")
+                .tag("result", result)
+                .counter()
+                .count();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2009 - 2020 Broadleaf Commerce
+ *
+ * Licensed under the Broadleaf End User License Agreement (EULA), Version 1.1 (the
+ * "Commercial License" located at http://license.broadleafcommerce.org/commercial_license-1.1.txt).
+ *
+ * Alternatively, the Commercial License may be replaced with a mutually agreed upon license (the
+ * "Custom License") between you and Broadleaf Commerce. You may not use this file except in
+ * compliance with the applicable license.
+ *
+ * NOTICE: All information contained herein is, and remains the property of Broadleaf Commerce, LLC
+ * The intellectual and technical concepts contained herein are proprietary to Broadleaf Commerce,
+ * LLC and may be covered by U.S. and Foreign Patents, patents in process, and are protected by
+ * trade secret or copyright law. Dissemination of this information or reproduction of this material
+ * is strictly forbidden unless prior written permission is obtained from Broadleaf Commerce, LLC.
+ */
+package com.broadleafcommerce.bulkoperations.service.provider.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+
+class ProviderUtilsTest {
+
+    private final ProviderUtils providerUtils = new ProviderUtils(new ObjectMapper());
+
+    @Test
+    void appendQueryParamsEncodesReservedCharacters() {
+        String cursor = "a b\"{c}[d]&e=f+g/h?é";
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("cursor", cursor);
+        params.add("page", "0");
+
+        String url = providerUtils.appendQueryParams("https://localhost/search?q=shirt", params);
+
+        assertThat(url).isEqualTo("https://localhost/search?q=shirt"
+                + "&cursor=a%20b%22%7Bc%7D%5Bd%5D%26e%3Df%2Bg%2Fh%3F%C3%A9&page=0");
+        URI uri = URI.create(url);
+        assertThat(uri.getQuery()).isEqualTo("q=shirt&cursor=" + cursor + "&page=0");
+    }
+
+    @Test
+    void appendQueryParamsStartsQueryWhenUrlHasNone() {
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("sort", "name,asc");
+        params.add("flag", null);
+
+        String url = providerUtils.appendQueryParams("https://localhost/items", params);
+
+        assertThat(url).isEqualTo("https://localhost/items?sort=name%2Casc&flag");
+    }
+
+    @Test
+    void appendQueryParamsLeavesUrlWithoutParamsUnchanged() {
+        assertThat(providerUtils.appendQueryParams("https://localhost/items",
+                new LinkedMultiValueMap<>())).isEqualTo("https://localhost/items");
+    }
+}